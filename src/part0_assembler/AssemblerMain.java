@@ -14,6 +14,7 @@ import java.nio.file.Path;
  * Outputs:
  *  - test_listing.txt
  *  - test_load.txt
+ *  - test_load.img  (binary load image)
  */
 public final class AssemblerMain {
     public static void main(String[] args) throws Exception {
@@ -36,10 +37,12 @@ public final class AssemblerMain {
         // outputs go into txt/
         Path listing = outDir.resolve(base + "_listing.txt");
         Path load    = outDir.resolve(base + "_load.txt");
+        Path image   = outDir.resolve(base + "_load.img");
 
-        new Assembler().assemble(asm, listing, load);
+        new Assembler().assemble(asm, listing, load, image);
 
         System.out.println("Wrote listing: " + listing.toAbsolutePath());
         System.out.println("Wrote load:    " + load.toAbsolutePath());
+        System.out.println("Wrote image:   " + image.toAbsolutePath());
     }
 }
\ No newline at end of file
@@ -9,7 +9,7 @@ import java.util.List;
  *  - the original line (for listing output), and
  *  - the parsed pieces (label/op/operands/comment) for assembly logic.
  *
- * Pass 1 fills in address/allocates/isLoc.
+ * Pass 1 fills in address/allocates/isLoc/isStart.
  * Pass 2 uses those fields to emit listing + load files.
  */
 public final class AsmLine {
@@ -31,6 +31,7 @@ public final class AsmLine {
     public Integer address; // location
     public boolean allocates; // instructions
     public boolean isLoc; // true if this is a LOC directive line (sets LC but does not allocate memory).
+    public boolean isStart; // true if this is a START directive line (names the entry point).
 
     public AsmLine(int lineNo, String originalLine, String commentText,
                    String label, String op, List<String> operands) {
@@ -14,6 +14,7 @@ import java.util.*;
  * Reads .asm (source numbers are DECIMAL) and outputs:
  *  - Listing file (LOC/WORD columns in OCTAL)
  *  - Load file    (LOC WORD in OCTAL only)
+ *  - Load image   (optional binary form of the load file, see ImageWriter)
  *
  * Two-pass design:
  *  PASS 1:
@@ -23,6 +24,11 @@ import java.util.*;
  *  PASS 2:
  *    - generate machine words (Data or encoded instructions)
  *    - write listing + load outputs
+ *
+ * Entry point (first record of the load file, and in the load image):
+ *  - START label   names it explicitly (any operand expression)
+ *  - otherwise it is the first instruction (the first allocating line
+ *    that is not Data)
  */
 public final class Assembler {
 
@@ -32,6 +38,9 @@ public final class Assembler {
     // parses raw lines into AsmLine objects.
     private final Tokenizer tokenizer = new Tokenizer();
 
+    // words of simulator memory; an entry point must lie inside it
+    private static final int MEMORY_WORDS = 2048;
+
     /**
      * Assemble a source file.
      *
@@ -41,6 +50,19 @@ public final class Assembler {
      * @throws IOException  if file I/O fails
      */
     public void assemble(Path asmPath, Path listingOut, Path loadOut) throws IOException {
+        assemble(asmPath, listingOut, loadOut, null);
+    }
+
+    /**
+     * Assemble a source file, also writing the binary load image.
+     *
+     * @param asmPath       path to input .asm file
+     * @param listingOut    path to output listing file
+     * @param loadOut       path to output load file
+     * @param imageOut      path to output load image, or null for none
+     * @throws IOException  if file I/O fails
+     */
+    public void assemble(Path asmPath, Path listingOut, Path loadOut, Path imageOut) throws IOException {
         // Read all source lines
         List<String> lines = Files.readAllLines(asmPath);
 
@@ -48,14 +70,27 @@ public final class Assembler {
         SymbolTable symtab = new SymbolTable();
         List<AsmLine> parsed = pass1(lines, symtab);
 
+        // entry point: START operand, else the first instruction
+        Integer entry = findEntry(parsed, symtab);
+
         // PASS 2: emit listing + load
         try (PrintWriter listPw = new PrintWriter(Files.newBufferedWriter(listingOut));
              PrintWriter loadPw = new PrintWriter(Files.newBufferedWriter(loadOut))) {
 
             ListingWriter listing = new ListingWriter(listPw);
             LoadWriter load = new LoadWriter(loadPw);
+            ImageWriter image = new ImageWriter();
+
+            if (entry != null) {
+                load.writeEntry(NumberUtil.toOct6(entry));
+                image.setEntry(entry);
+            }
+
+            pass2(parsed, symtab, listing, load, image);
 
-            pass2(parsed, symtab, listing, load);
+            if (imageOut != null) {
+                image.writeTo(imageOut);
+            }
         }
     }
 
@@ -63,6 +98,7 @@ public final class Assembler {
      * PASS 1:
      *  - defines labels to the current LC
      *  - handles LOC and sets LC
+     *  - marks the START directive (at most one)
      *  - marks data + instruction lines as allocators with addresses
      * 
      * @param lines     raw source lines
@@ -72,6 +108,7 @@ public final class Assembler {
     private List<AsmLine> pass1(List<String> lines, SymbolTable symtab) {
         List<AsmLine> out = new ArrayList<>();
         int lc = 0; // location counter in DECIMAL
+        AsmLine start = null; // START directive, if seen
 
         for (int i = 0; i < lines.size(); i++) {
             int lineNo = i + 1;
@@ -109,6 +146,22 @@ public final class Assembler {
                 continue;
             }
 
+            // names the entry point; resolved after pass 1 (may be a later label)
+            if (al.op.equalsIgnoreCase("START")) {
+                if (al.operands.size() != 1) {
+                    throw new RuntimeException("START expects 1 operand at line " + lineNo);
+                }
+                if (start != null) {
+                    throw new RuntimeException("Duplicate START at line " + lineNo
+                            + " (first at line " + start.lineNo + ")");
+                }
+                start = al;
+                al.isStart = true;
+                al.allocates = false;
+                out.add(al);
+                continue;
+            }
+
             // data or instruction => allocate one word at current LC
             al.allocates = true;
             al.address = lc;
@@ -131,9 +184,10 @@ public final class Assembler {
      * @param symtab    completed symbol table
      * @param listing   listing writer
      * @param load      load writer
+     * @param image     load image writer
      */
     private void pass2(List<AsmLine> parsed, SymbolTable symtab,
-                       ListingWriter listing, LoadWriter load) {
+                       ListingWriter listing, LoadWriter load, ImageWriter image) {
 
         for (AsmLine al : parsed) {
 
@@ -144,7 +198,7 @@ public final class Assembler {
             }
 
             // no LOC/WORD columns and no load file entry
-            if (al.isLoc) {
+            if (al.isLoc || al.isStart) {
                 listing.writeLine("", "", rebuildSource(al));
                 continue;
             }
@@ -167,7 +221,42 @@ public final class Assembler {
 
             // load file contains only loc/word pairs
             load.writeWord(locOct, wordOct);
+            image.writeWord(al.address, word);
+        }
+    }
+
+    /**
+     * Find the entry point after pass 1.
+     *
+     * @param parsed    parsed AsmLine list from pass 1
+     * @param symtab    completed symbol table
+     * @return          START operand if present, else the address of the
+     *                  first instruction, or null if there is neither
+     * @throws RuntimeException if the entry point is outside memory (0..2047)
+     */
+    private Integer findEntry(List<AsmLine> parsed, SymbolTable symtab) {
+        AsmLine first = null;
+        for (AsmLine al : parsed) {
+            if (al.isStart) {
+                int entry = parseDecimalOrLabel(al.operands.get(0), symtab, al.lineNo);
+                if (entry < 0 || entry >= MEMORY_WORDS) {
+                    throw new RuntimeException("START address " + entry + " out of range (0.."
+                            + (MEMORY_WORDS - 1) + ") at line " + al.lineNo);
+                }
+                return entry;
+            }
+            if (first == null && al.allocates && !al.op.equalsIgnoreCase("DATA")) {
+                first = al;
+            }
+        }
+        if (first == null) {
+            return null;
+        }
+        if (first.address < 0 || first.address >= MEMORY_WORDS) {
+            throw new RuntimeException("Entry address " + first.address + " out of range (0.."
+                    + (MEMORY_WORDS - 1) + ") at line " + first.lineNo);
         }
+        return first.address;
     }
 
     /**
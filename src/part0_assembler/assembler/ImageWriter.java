@@ -0,0 +1,92 @@
+package part0_assembler.assembler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Writes the binary Load Image, the compact alternative to the text Load
+ * File. The simulator's ProgramLoader maps it straight into memory.
+ *
+ * Layout (big-endian):
+ *  - header, 14 bytes:
+ *      magic       4 bytes  "C6LI"
+ *      version     u16      1
+ *      entry       u16      start address, 0xFFFF if none
+ *      segments    u16      number of segment table entries
+ *      checksum    u32      CRC-32 of everything after the header
+ *  - segment table: per segment, base address (u16) and word count (u16)
+ *  - words: each segment's 16-bit words, in table order
+ *
+ * A segment is a run of words at consecutive addresses, in the order the
+ * words were written, so a later segment overwrites an earlier one exactly
+ * like a later line of the text Load File.
+ */
+public final class ImageWriter {
+
+    public static final int MAGIC = 0x43364C49;     // "C6LI"
+    public static final int VERSION = 1;
+    public static final int NO_ENTRY = 0xFFFF;
+    public static final int HEADER_BYTES = 14;
+
+    private final List<int[]> segments = new ArrayList<>();   // {base, length}
+    private final List<Integer> words = new ArrayList<>();
+    private int entry = NO_ENTRY;
+
+    /**
+     * Add one word; a word that does not follow the previous one starts a
+     * new segment.
+     *
+     * @param address   memory address (DECIMAL)
+     * @param word      16-bit word
+     */
+    public void writeWord(int address, int word) {
+        int[] last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (last != null && last[0] + last[1] == address && last[1] < 0xFFFF) {
+            last[1]++;
+        } else {
+            segments.add(new int[] {address & 0xFFFF, 1});
+        }
+        words.add(word & 0xFFFF);
+    }
+
+    /**
+     * @param address start address recorded in the header
+     */
+    public void setEntry(int address) {
+        this.entry = address & 0xFFFF;
+    }
+
+    /**
+     * Write the image file.
+     *
+     * @param out           output path
+     * @throws IOException  if file I/O fails
+     */
+    public void writeTo(Path out) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + segments.size() * 4 + words.size() * 2);
+        buf.putInt(MAGIC);
+        buf.putShort((short) VERSION);
+        buf.putShort((short) entry);
+        buf.putShort((short) segments.size());
+        buf.putInt(0);  // checksum, filled in below
+
+        for (int[] seg : segments) {
+            buf.putShort((short) seg[0]);
+            buf.putShort((short) seg[1]);
+        }
+        for (int word : words) {
+            buf.putShort((short) word);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), HEADER_BYTES, buf.capacity() - HEADER_BYTES);
+        buf.putInt(HEADER_BYTES - 4, (int) crc.getValue());
+
+        Files.write(out, buf.array());
+    }
+}
@@ -9,6 +9,10 @@ import java.io.PrintWriter;
  *
  * Only lines that allocate a word are emitted here.
  * LOC directives and blank/comment lines do not produce load file output.
+ *
+ * The file may begin with one entry record naming the start address:
+ *
+ * START WORD(Octal)
  */
 public final class LoadWriter {
 
@@ -21,4 +25,8 @@ public final class LoadWriter {
     public void writeWord(String locOct, String wordOct) {
         out.println(locOct + " " + wordOct);
     }
+
+    public void writeEntry(String entryOct) {
+        out.println("START " + entryOct);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+; =========================================================
+; ParallelSearch.asm
+;
+; Per-core kernel for the multi-core version of the Program1 search:
+; each core scans one slice of the NUMBERS page and keeps the value
+; closest to QUERY in its own WORK block. The host (MultiCore /
+; ParallelSearch) then picks the best of the per-core results.
+;
+; Set up by the host for every core before it starts:
+; - PC = KERNEL, X3 = KERNEL (code-page base for jumps)
+; - X2 = this core's WORK block
+; - WORK[COUNT] = slice length, WORK[PTR] = address of its first number
+; - QUERY = the query value (shared, read by every core)
+;
+; WORK block layout (6 words per core):
+;   COUNT=0  PTR=1  BESTVAL=2  BESTDIFF=3  TEMPDIFF=4  CANDVAL=5
+; The block assembled at 512 is core 0's; the host fills in every
+; core's block after loading the kernel.
+;
+; Implementation notes:
+; - Candidates are read with indexed-then-indirect addressing through
+;   WORK[PTR], so no index register has to be stepped and every core
+;   runs the same code on its own data.
+; - A candidate replaces the best only if strictly closer, so ties keep
+;   the earlier number, as in Program1.
+; =========================================================
+
+START KERNEL
+
+LOC 24
+ZERO:       Data 0
+BIG:        Data 32767
+QUERY:      Data 0
+
+; =========================================================
+; SEARCH KERNEL
+; =========================================================
+
+LOC 64
+KERNEL:     LDR 0,0,BIG                 ; R0 <- largest positive difference
+            STR 0,2,BESTDIFF-WORK       ; BESTDIFF = 32767 so the first candidate wins
+
+LOOP:       LDR 0,2,0                   ; R0 <- WORK[COUNT], numbers left in this core's slice
+            JZ 0,3,DONE-KERNEL          ; slice finished
+            LDR 0,2,PTR-WORK,1          ; R0 <- MEM[WORK[PTR]] (indexed, then indirect)
+            STR 0,2,CANDVAL-WORK
+            SMR 0,0,QUERY               ; R0 = candidate - query
+            JGE 0,3,ABSOK-KERNEL
+
+            STR 0,2,TEMPDIFF-WORK       ; negative: TEMPDIFF = 0 - TEMPDIFF
+            LDR 1,0,ZERO
+            SMR 1,2,TEMPDIFF-WORK
+            STR 1,2,TEMPDIFF-WORK
+            JMA 3,COMPARE-KERNEL
+
+ABSOK:      STR 0,2,TEMPDIFF-WORK
+
+COMPARE:    LDR 0,2,TEMPDIFF-WORK
+            SMR 0,2,BESTDIFF-WORK
+            JGE 0,3,NEXT-KERNEL         ; not closer: keep the current best
+            LDR 0,2,TEMPDIFF-WORK       ; closer: update BESTDIFF and BESTVAL
+            STR 0,2,BESTDIFF-WORK
+            LDR 0,2,CANDVAL-WORK
+            STR 0,2,BESTVAL-WORK
+
+NEXT:       LDR 0,2,PTR-WORK            ; advance the slice pointer
+            AIR 0,1
+            STR 0,2,PTR-WORK
+            LDR 0,2,0                   ; one number fewer to scan (WORK[COUNT])
+            SIR 0,1
+            STR 0,2,0
+            JMA 3,LOOP-KERNEL
+
+DONE:       HLT
+
+; =========================================================
+; WORK BLOCK (core 0)
+; =========================================================
+
+LOC 512
+WORK:       Data 0    ; [0] COUNT: numbers left in the slice
+PTR:        Data 0    ; [1] PTR: address of the next number
+BESTVAL:    Data 0    ; [2] BESTVAL: closest value found so far
+BESTDIFF:   Data 0    ; [3] BESTDIFF: smallest absolute difference so far
+TEMPDIFF:   Data 0    ; [4] TEMPDIFF: absolute difference of the candidate
+CANDVAL:    Data 0    ; [5] CANDVAL: current candidate value
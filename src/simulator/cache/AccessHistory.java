@@ -0,0 +1,140 @@
+package simulator.cache;
+
+import simulator.machine.Memory;
+
+/**
+ * Fixed-size ring buffer of a cache's most recent demand accesses, for the
+ * GUI. Entries are kept in primitive arrays, so recording an access never
+ * allocates; text is only built by appendTo.
+ *
+ * Index 0 is the oldest entry still held, size() - 1 the newest.
+ */
+public final class AccessHistory {
+
+    private final int[] address;
+    private final int[] word;
+    private final int[] line;       // line index, or -1 for a write that was not allocated
+    private final boolean[] write;
+    private final boolean[] hit;
+    private int next = 0;           // slot the next access goes into
+    private int size = 0;
+
+    /**
+     * @param capacity                  number of accesses kept
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public AccessHistory(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Access history capacity must be positive: " + capacity);
+        }
+        this.address = new int[capacity];
+        this.word = new int[capacity];
+        this.line = new int[capacity];
+        this.write = new boolean[capacity];
+        this.hit = new boolean[capacity];
+    }
+
+    /**
+     * Record one access, replacing the oldest entry when full.
+     */
+    void record(boolean isWrite, boolean isHit, int addr, int value, int lineIndex) {
+        address[next] = addr;
+        word[next] = value;
+        line[next] = lineIndex;
+        write[next] = isWrite;
+        hit[next] = isHit;
+        next = next + 1 == address.length ? 0 : next + 1;
+        if (size < address.length) {
+            size++;
+        }
+    }
+
+    /**
+     * Forget every entry.
+     */
+    public void clear() {
+        next = 0;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return address.length;
+    }
+
+    /**
+     * @param i     0 (oldest) .. size() - 1 (newest)
+     * @return      accessed address
+     */
+    public int getAddress(int i) {
+        return address[slot(i)];
+    }
+
+    /**
+     * @param i     0 (oldest) .. size() - 1 (newest)
+     * @return      word read or written
+     */
+    public int getWord(int i) {
+        return word[slot(i)];
+    }
+
+    /**
+     * @param i     0 (oldest) .. size() - 1 (newest)
+     * @return      cache line index, or -1 for a write miss that was not allocated
+     */
+    public int getLine(int i) {
+        return line[slot(i)];
+    }
+
+    /**
+     * @param i     0 (oldest) .. size() - 1 (newest)
+     * @return      true for a write, false for a read
+     */
+    public boolean isWrite(int i) {
+        return write[slot(i)];
+    }
+
+    /**
+     * @param i     0 (oldest) .. size() - 1 (newest)
+     * @return      true if the access hit
+     */
+    public boolean isHit(int i) {
+        return hit[slot(i)];
+    }
+
+    /**
+     * Append one line per entry, oldest first, e.g.
+     * "  READ  miss 000012 = 000345 L3".
+     *
+     * @param sb destination
+     */
+    public void appendTo(StringBuilder sb) {
+        for (int i = 0; i < size; i++) {
+            int s = slot(i);
+            sb.append(write[s] ? "  WRITE " : "  READ  ")
+              .append(hit[s] ? "hit  " : "miss ")
+              .append(Memory.toOct6(address[s]))
+              .append(" = ")
+              .append(Memory.toOct6(word[s]));
+            if (line[s] >= 0) {
+                sb.append(" L").append(line[s]);
+            }
+            sb.append('\n');
+        }
+    }
+
+    /* ==========================
+     * Helpers
+     * ========================== */
+
+    private int slot(int i) {
+        if (i < 0 || i >= size) {
+            throw new IllegalArgumentException("Access history index out of range: " + i);
+        }
+        int s = next - size + i;
+        return s < 0 ? s + address.length : s;
+    }
+}
@@ -0,0 +1,137 @@
+package simulator.cache;
+
+import java.util.Arrays;
+
+/**
+ * Adaptive Replacement Cache (Megiddo and Modha), run separately in each set
+ * with c = ways.
+ *
+ * Each set keeps four recency lists of block numbers:
+ *  - T1: resident blocks seen once since they were loaded
+ *  - T2: resident blocks seen at least twice
+ *  - B1, B2: "ghosts", recently evicted from T1 / T2 (tags only, no data)
+ *
+ * A miss on a B1 ghost means T1 was evicted too eagerly, so the target size
+ * p of T1 grows; a miss on a B2 ghost shrinks it. The victim comes from T1
+ * when T1 is over its target, otherwise from T2. All list moves are O(1).
+ *
+ * Notes:
+ *  - Ghost hits adapt p when they cause an eviction (victim). A block that
+ *    goes into an invalid way still moves from its ghost list into T2.
+ *  - Lists are indexed by block number, which is unique across sets.
+ */
+final class ArcPolicy implements ReplacementPolicy {
+
+    private static final int T1 = 0;
+    private static final int T2 = 1;
+    private static final int B1 = 2;
+    private static final int B2 = 3;
+
+    private final int ways;
+    private final IndexLists lists;     // node = block, list = set * 4 + T1..B2
+    private final int[] target;         // per set: ARC's p, the target size of T1
+    private final int[] wayOfBlock;     // resident blocks only
+    private final int[] blockOfLine;    // set * ways + way -> block
+
+    ArcPolicy(int sets, int ways, int blockCount) {
+        this.ways = ways;
+        this.lists = new IndexLists(blockCount, sets * 4);
+        this.target = new int[sets];
+        this.wayOfBlock = new int[blockCount];
+        this.blockOfLine = new int[sets * ways];
+    }
+
+    @Override
+    public int victim(int set, int block) {
+        int list = lists.listOf(block);
+        int t1 = size(set, T1);
+        int b1 = size(set, B1);
+        int b2 = size(set, B2);
+
+        if (list == set * 4 + B1) {
+            target[set] = Math.min(ways, target[set] + Math.max(b2 / b1, 1));
+            return replace(set, false);
+        }
+        if (list == set * 4 + B2) {
+            target[set] = Math.max(0, target[set] - Math.max(b1 / b2, 1));
+            return replace(set, true);
+        }
+
+        // new block
+        if (t1 + b1 == ways) {
+            if (t1 < ways) {
+                lists.remove(lists.last(set * 4 + B1));
+                return replace(set, false);
+            }
+            // B1 is empty: drop T1's LRU block without keeping a ghost
+            int dropped = lists.last(set * 4 + T1);
+            lists.remove(dropped);
+            return wayOfBlock[dropped];
+        }
+        if (t1 + size(set, T2) + b1 + b2 >= 2 * ways) {
+            lists.remove(lists.last(set * 4 + B2));
+        }
+        return replace(set, false);
+    }
+
+    @Override
+    public void onFill(int set, int way, int block) {
+        int list = lists.listOf(block);
+        if (list == set * 4 + B1 || list == set * 4 + B2) {
+            lists.addFirst(set * 4 + T2, block);
+        } else {
+            // keep |T1| + |B1| <= c and the directory <= 2c when no eviction trimmed them
+            if (size(set, T1) + size(set, B1) >= ways && size(set, B1) > 0) {
+                lists.remove(lists.last(set * 4 + B1));
+            } else if (size(set, T1) + size(set, T2) + size(set, B1) + size(set, B2) >= 2 * ways
+                    && size(set, B2) > 0) {
+                lists.remove(lists.last(set * 4 + B2));
+            }
+            lists.addFirst(set * 4 + T1, block);
+        }
+        wayOfBlock[block] = way;
+        blockOfLine[set * ways + way] = block;
+    }
+
+    @Override
+    public void onHit(int set, int way) {
+        lists.addFirst(set * 4 + T2, blockOfLine[set * ways + way]);
+    }
+
+    @Override
+    public void onInvalidate(int set, int way) {
+        // the block is gone from the cache: take it out of T1/T2 without a ghost
+        int block = blockOfLine[set * ways + way];
+        int list = lists.listOf(block);
+        if (list == set * 4 + T1 || list == set * 4 + T2) {
+            lists.remove(block);
+        }
+    }
+
+    @Override
+    public void reset() {
+        lists.clear();
+        Arrays.fill(target, 0);
+    }
+
+    /* ==========================
+     * Helpers
+     * ========================== */
+
+    private int size(int set, int list) {
+        return lists.size(set * 4 + list);
+    }
+
+    /**
+     * ARC's REPLACE: move the LRU block of T1 or T2 to its ghost list and
+     * return the way it occupied.
+     */
+    private int replace(int set, boolean ghostInB2) {
+        int t1 = size(set, T1);
+        boolean fromT1 = t1 > 0
+                && (t1 > target[set] || (ghostInB2 && t1 == target[set]) || size(set, T2) == 0);
+        int evicted = fromT1 ? lists.last(set * 4 + T1) : lists.last(set * 4 + T2);
+        lists.addFirst(set * 4 + (fromT1 ? B1 : B2), evicted);
+        return wayOfBlock[evicted];
+    }
+}
@@ -1,65 +1,216 @@
 package simulator.cache;
 
+import java.util.Arrays;
 import simulator.machine.Memory;
+import simulator.machine.MemoryLevel;
+import simulator.machine.MemoryWriteListener;
 
 /**
- * Simple fully associative unified cache.
- * - Fully associative: any address may be stored in any cache line
- * - Unified: instruction fetches and data accesses use the same cache
- * - FIFO replacement: evict the oldest inserted cache line when full
- * - One word per line: matches the simulator's current Memory API
+ * Configurable cache level: set-associative with multi-word blocks and a
+ * choice of replacement and write policy. It can be used unified, split into
+ * I/D peers, as an L2 behind other caches, with a victim buffer and a
+ * prefetcher, or as one core's private cache kept coherent by MESI.
+ * - Organisation from CacheConfig: fully associative (default), direct-mapped
+ *   or N-way set associative
+ * - Unified by default: instruction fetches and data accesses use the same
+ *   cache (see CPU for split I/D caches)
+ * - Replacement within a set from CacheConfig (FIFO by default): invalid
+ *   ways are filled first, then the ReplacementPolicy picks the victim
+ * - Block size from CacheConfig: a miss loads the whole aligned block with
+ *   one Memory.readBlock transfer, so neighbouring words then hit
  *
- * Current write policy:
- * - Write-through
- * - Write-allocate
+ * Lookup:
+ * - Address a is in block (a / blockSize) at offset (a % blockSize)
+ * - Lines are stored set by set; set s owns lines [s * ways, (s + 1) * ways)
+ * - Set-associative / direct-mapped: only the ways of set (block % sets)
+ *   are searched
+ * - Fully associative: a flat block-to-line table gives the hit line
+ *   directly, so lookup cost does not grow with the line count
  *
- * That means:
+ * Write policy from CacheConfig (see WritePolicy):
+ * - Write-through (default): writes always update backing memory, and also
+ *   update the cache, allocating a line on a miss (the block is loaded after
+ *   memory is updated, so it already holds the new word)
+ * - Write-through, no allocate: as above, but a write miss leaves the
+ *   cache alone
+ * - Write-back: writes only update the cache (allocating on a miss) and
+ *   mark the word dirty; dirty words are written to memory when their line
+ *   is evicted or on flush()
+ *
+ * Coherence:
  * - Reads use the cache first, then memory on a miss
- * - Writes always update backing memory
- * - Writes also update the cache and allocate a line on a miss
+ * - The cache watches backing memory. A word written there by someone else
+ *   (IPL, console Store, loaders, tests) replaces the cached copy, and
+ *   Memory.clear() empties the cache, so direct memory writes never leave
+ *   stale or dirty data behind.
+ * - Caches over the same memory can be made peers (split I/D caches), so
+ *   one sees the other's write-back stores before they reach memory.
+ *
+ * Hierarchy:
+ * - The backing store is any MemoryLevel: Memory itself, or another Cache
+ *   (e.g. a shared L2 behind the L1 caches). A Cache is a MemoryLevel too.
+ * - Every access costs the configured hit latency; misses and write-backs
+ *   add the cycles the level below reports. There is no write buffer, so
+ *   write-through stores pay the full cost of the level below.
+ * - A lower level writing back its own dirty line is not a new value, so
+ *   the caches above leave their (possibly newer) copy alone.
+ *
+ * Prefetch (optional, see Prefetcher):
+ * - After each demand access the prefetcher may name a block, which is
+ *   loaded if it is not cached yet. The fill runs in the background: its
+ *   cycles are not charged, but a demand access that reaches the line
+ *   before the fill would have completed waits for the rest ("late").
+ * - Prefetches are counted apart from demand hits and misses: issued,
+ *   useful (used by a demand access), late, and unused (evicted before any
+ *   use, i.e. cache pollution).
+ *
+ * Victim buffer (optional, CacheConfig.withVictimBuffer):
+ * - A few fully associative lines that catch lines evicted from the cache.
+ *   A miss found there swaps the line back in for one extra hit latency
+ *   instead of a transfer from the level below; it still counts as a miss,
+ *   and as a victim hit.
+ *
+ * Multi-core coherence (optional, see CoherenceBus):
+ * - Private caches of several cores over one memory can share a snooping
+ *   bus. Each line then carries a MESI state: read misses issue BusRd,
+ *   stores to lines not held exclusively issue BusRdX or BusUpgr, and
+ *   other cores' transactions flush, downgrade or invalidate lines here.
+ * - Misses on blocks invalidated that way are counted as coherence misses.
+ * - Such a cache can be used from several threads (one per core): a hit on
+ *   a line held in a state that needs no transaction only locks this
+ *   cache; any other access holds the bus first (see CoherenceBus).
+ *
+ * Miss classification (3C, see MissClassifier): every demand miss is
+ * counted as compulsory, capacity or conflict (or coherence, on a bus).
  */
-public final class Cache {
+public final class Cache implements MemoryLevel {
 
     public static final int DEFAULT_LINE_COUNT = 16;
-    private final Memory backingMemory;
+    private final MemoryLevel backing;
+    private final MemorySnoop snoop = new MemorySnoop();
+    private CacheConfig config;
+    private ReplacementPolicy policy;
+    private Prefetcher prefetcher;      // null when the cache does not prefetch
+    private final WritePolicy writePolicy;
     private final CacheLine[] lines;
+    private final int ways;
+    private final int setCount;
+    private final int blockSize;
+    private final int blockShift;   // log2(blockSize)
+    // fully associative only: block number -> line index, -1 if not cached
+    private final int[] lineOfBlock;
+    // per set: number of ways filled since the last clear. Ways 0..filled-1
+    // are valid and way "filled" is next, except for lines the coherence bus
+    // invalidated (counted in busHoles), which are reused first.
+    private final int[] filledWays;
+    private int busHoles = 0;
+    // recently evicted lines (empty array when there is no victim buffer)
+    private final CacheLine[] victims;
+    private int nextVictim = 0;         // victim buffer slot to replace next
+    private final MissClassifier missClasses;
     private long nextFifoOrder = 1L;
+    // listeners told about write-back stores, which do not reach memory yet
+    private MemoryWriteListener[] listeners = new MemoryWriteListener[0];
+    // caches whose dirty words this cache must see / caches that watch this one
+    private Cache[] peers = new Cache[0];
+    private Cache[] watchers = new Cache[0];
+    private CoherenceBus bus;           // null unless kept coherent with other cores' caches
+    // true while the cache itself writes memory, so the snoop ignores it
+    private boolean writingMemory = false;
+    // true while dirty lines are written back, so the caches above ignore it
+    private boolean writingBack = false;
     // for debugging
     private long hitCount = 0L;
     private long missCount = 0L;
     private long accessCount = 0L;
-    private String lastAccessSummary = "[CACHE] No accesses yet.";
+    private long writebackCount = 0L;
+    private long cycleCount = 0L;
+    private long victimHitCount = 0L;
+    private long prefetchIssued = 0L;
+    private long prefetchUseful = 0L;
+    private long prefetchLate = 0L;
+    private long prefetchUnused = 0L;
+    private long busReads = 0L;
+    private long busReadExclusives = 0L;
+    private long busUpgrades = 0L;
+    private long snoopFlushes = 0L;
+    private long snoopInvalidations = 0L;
+    // last event, kept as primitives and only formatted by getLastAccessSummary()
+    private Event lastEvent = Event.NONE;
+    private boolean lastHit;
+    private int lastAddress;
+    private int lastWord;
+    private int lastLine;               // line index, or -1 for a write that was not allocated
+    private int lastPrefetch = -1;      // address prefetched after the access, or -1
+    private int lastFlushed;
+    private AccessHistory history;      // recent accesses for the GUI; null when off
+
+    private enum Event { NONE, CLEARED, READ, WRITE, FLUSH }
 
     /**
-     * Construct a 16-line cache backed by the given memory.
+     * Construct a 16-line fully associative cache backed by the given memory.
      *
-     * @param backingMemory real memory backing store
+     * @param backing   memory (or lower cache) backing store
      */
-    public Cache(Memory backingMemory) {
-        this(backingMemory, DEFAULT_LINE_COUNT);
+    public Cache(MemoryLevel backing) {
+        this(backing, DEFAULT_LINE_COUNT);
     }
 
     /**
-     * Construct a cache with a caller-specified number of lines.
+     * Construct a fully associative cache with a caller-specified number of lines.
      *
-     * @param backingMemory real memory backing store
-     * @param lineCount     number of cache lines
-     * @throws IllegalArgumentException if backingMemory is null or lineCount is not positive
+     * @param backing     memory (or lower cache) backing store
+     * @param lineCount   number of cache lines
+     * @throws IllegalArgumentException if backing is null or lineCount is not positive
      */
-    public Cache(Memory backingMemory, int lineCount) {
-        if (backingMemory == null) {
+    public Cache(MemoryLevel backing, int lineCount) {
+        this(backing, CacheConfig.fullyAssociative(lineCount));
+    }
+
+    /**
+     * Construct a cache with the given organisation.
+     *
+     * @param backing   memory (or lower cache) backing store
+     * @param config    line count and associativity
+     * @throws IllegalArgumentException if backing or config is null
+     */
+    public Cache(MemoryLevel backing, CacheConfig config) {
+        if (backing == null) {
             throw new IllegalArgumentException("Backing memory cannot be null.");
         }
-        if (lineCount <= 0) {
-            throw new IllegalArgumentException("Cache line count must be positive.");
+        if (config == null) {
+            throw new IllegalArgumentException("Cache config cannot be null.");
         }
 
-        this.backingMemory = backingMemory;
-        this.lines = new CacheLine[lineCount];
+        this.backing = backing;
+        this.config = config;
+        this.ways = config.getWays();
+        this.setCount = config.getSetCount();
+        this.blockSize = config.getBlockSize();
+        this.blockShift = Integer.numberOfTrailingZeros(blockSize);
+        this.lines = new CacheLine[config.getLineCount()];
+        this.filledWays = new int[setCount];
+        this.policy = config.getReplacement().create(config);
+        this.prefetcher = config.getPrefetcher().create(config);
+        this.writePolicy = config.getWritePolicy();
+
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = new CacheLine(blockSize);
+        }
+        this.victims = new CacheLine[config.getVictimEntries()];
+        for (int i = 0; i < victims.length; i++) {
+            victims[i] = new CacheLine(blockSize);
+        }
+        this.missClasses = new MissClassifier(lines.length, config.getBlockCount());
 
-        for (int i = 0; i < lineCount; i++) {
-            lines[i] = new CacheLine();
+        if (config.isFullyAssociative()) {
+            lineOfBlock = new int[Memory.SIZE >> blockShift];
+            Arrays.fill(lineOfBlock, -1);
+        } else {
+            lineOfBlock = null;
         }
+
+        backing.addWriteListener(snoop);
     }
 
     /**
@@ -69,74 +220,370 @@ public final class Cache {
      * - return the cached word
      *
      * On a miss:
-     * - fetch from backing memory
-     * - insert into cache using FIFO replacement
+     * - load the word's whole block from backing memory
+     * - insert into cache, evicting via the replacement policy if the set is full
      * - return the fetched word
      *
      * @param address   memory address
      * @return          cached or fetched 16-bit word
      */
     public int read(int address) {
+        return read(address, -1);
+    }
+
+    /**
+     * Read one 16-bit word on behalf of an instruction (see read(int)).
+     * The instruction address lets a stride prefetcher follow each
+     * instruction's access pattern separately.
+     *
+     * @param address   memory address
+     * @param pc        address of the instruction making the access, or -1
+     * @return          cached or fetched 16-bit word
+     */
+    public int read(int address, int pc) {
+        if (bus == null) {
+            return read(address, pc, null, 0, 0);
+        }
+        synchronized (this) {
+            if (prefetcher == null && findHitIndex(address) >= 0) {
+                return read(address, pc, null, 0, 0);
+            }
+        }
+        synchronized (bus) {
+            synchronized (this) {
+                return read(address, pc, null, 0, 0);
+            }
+        }
+    }
+
+    /**
+     * Read one word, optionally copying words of its block into dest before
+     * the prefetcher runs (a prefetch may evict the line just used).
+     *
+     * @param address       memory address
+     * @param pc            address of the instruction making the access, or -1
+     * @param dest          destination for count words from address on, or null
+     * @param destOffset    first index written in dest
+     * @param count         words to copy, all within address's block
+     * @return              cached or fetched 16-bit word
+     */
+    private int read(int address, int pc, int[] dest, int destOffset, int count) {
         accessCount++;
+        cycleCount += config.getHitLatency();
 
+        int offset = address & (blockSize - 1);
         int hitIndex = findHitIndex(address);
         if (hitIndex >= 0) {
             hitCount++;
-            int value = lines[hitIndex].getDataWord() & 0xFFFF;
-            lastAccessSummary = "[CACHE] READ hit  addr="
-                    + Memory.toOct6(address)
-                    + " word=" + Memory.toOct6(value)
-                    + " line=" + hitIndex;
+            missClasses.access(address >> blockShift, false);
+            policy.onHit(hitIndex / ways, hitIndex % ways);
+            boolean firstUse = usePrefetched(lines[hitIndex]);
+            int value = lines[hitIndex].getWord(offset);
+            noteAccess(false, true, address, value, hitIndex);
+            copyWords(lines[hitIndex], offset, dest, destOffset, count);
+            prefetchAfter(pc, address, false, firstUse);
             return value;
         }
 
         missCount++;
-        int value = backingMemory.read(address);
-        int insertedAt = insertOrReplace(address, value);
-
-        lastAccessSummary = "[CACHE] READ miss addr="
-                + Memory.toOct6(address)
-                + " word=" + Memory.toOct6(value)
-                + " line=" + insertedAt;
-
-        return value & 0xFFFF;
+        Memory.checkAddress(address);
+        missClasses.access(address >> blockShift, true);
+        int insertedAt = insertOrReplace(address, false);
+        int value = lines[insertedAt].getWord(offset);
+        noteAccess(false, false, address, value, insertedAt);
+        copyWords(lines[insertedAt], offset, dest, destOffset, count);
+        prefetchAfter(pc, address, true, false);
+        return value;
     }
 
     /**
      * Write one 16-bit word through the cache.
-     * - Always update backing memory (write-through)
-     * - On hit, update the cache line too
-     * - On miss, allocate a cache line and store the new word there
+     * - Write-through modes: always update backing memory
+     * - On hit, update the cache line too (and mark it dirty in write-back)
+     * - On miss, allocate a cache line and store the new word there, unless
+     *   the write policy is no-allocate
      *
      * @param address   memory address
      * @param word      16-bit word to write
      */
     public void write(int address, int word) {
+        write(address, word, -1);
+    }
+
+    /**
+     * Write one 16-bit word on behalf of an instruction (see write(int, int)
+     * and read(int, int)).
+     *
+     * @param address   memory address
+     * @param word      16-bit word to write
+     * @param pc        address of the instruction making the access, or -1
+     */
+    public void write(int address, int word, int pc) {
+        if (bus == null) {
+            store(address, word, pc);
+            return;
+        }
+        synchronized (this) {
+            if (ownsForStore(address)) {
+                store(address, word, pc);
+                return;
+            }
+        }
+        synchronized (bus) {
+            synchronized (this) {
+                store(address, word, pc);
+            }
+        }
+    }
+
+    /**
+     * Body of write(int, int, int), run with the locks the bus needs.
+     */
+    private void store(int address, int word, int pc) {
         accessCount++;
+        cycleCount += config.getHitLatency();
 
-        // always update real memory
-        backingMemory.write(address, word);
         int maskedWord = word & 0xFFFF;
-
+        boolean writeBack = writePolicy == WritePolicy.WRITE_BACK;
+        int offset = address & (blockSize - 1);
         int hitIndex = findHitIndex(address);
         if (hitIndex >= 0) {
             hitCount++;
-            lines[hitIndex].updateWord(maskedWord);
-
-            lastAccessSummary = "[CACHE] WRITE hit  addr="
-                    + Memory.toOct6(address)
-                    + " word=" + Memory.toOct6(maskedWord)
-                    + " line=" + hitIndex;
+            missClasses.access(address >> blockShift, false);
+            policy.onHit(hitIndex / ways, hitIndex % ways);
+            boolean firstUse = usePrefetched(lines[hitIndex]);
+            if (bus != null) {
+                own(lines[hitIndex]);
+            }
+            // update the line first: caches above re-read it (peek) when the store reaches memory
+            lines[hitIndex].updateWord(offset, maskedWord);
+            if (writeBack) {
+                lines[hitIndex].markDirty(offset);
+                announceStore(address, maskedWord);
+            } else {
+                writeMemory(address, maskedWord);
+            }
+            noteAccess(true, true, address, maskedWord, hitIndex);
+            prefetchAfter(pc, address, false, firstUse);
             return;
         }
 
         missCount++;
-        int insertedAt = insertOrReplace(address, maskedWord);
+        if (writeBack || bus != null) {
+            Memory.checkAddress(address);
+        }
+        if (bus != null) {
+            claim(address);
+        }
+        if (!writeBack) {
+            // update a victim buffer copy first: caches above re-read it (peek) when the store reaches memory
+            CacheLine buffered = lineHolding(address);
+            if (buffered != null) {
+                buffered.updateWord(offset, maskedWord);
+            }
+            writeMemory(address, maskedWord);
+        }
+        missClasses.access(address >> blockShift, true);
+        if (writePolicy == WritePolicy.WRITE_NO_ALLOCATE) {
+            noteAccess(true, false, address, maskedWord, -1);
+            prefetchAfter(pc, address, true, false);
+            return;
+        }
+
+        int insertedAt = insertOrReplace(address, true);
+        // a block swapped in from the victim buffer predates the store
+        lines[insertedAt].updateWord(offset, maskedWord);
+        if (bus != null) {
+            lines[insertedAt].setState(writeBack ? MesiState.MODIFIED : MesiState.EXCLUSIVE);
+        }
+        if (writeBack) {
+            lines[insertedAt].markDirty(offset);
+            announceStore(address, maskedWord);
+        }
+        noteAccess(true, false, address, maskedWord, insertedAt);
+        prefetchAfter(pc, address, true, false);
+    }
+
+    /**
+     * Read a word without touching cache state or statistics.
+     * Used by tools that inspect code (e.g. the block translator) and must
+     * not disturb the hit/miss behaviour of the program being simulated.
+     *
+     * @param address   memory address
+     * @return          cached word if present, otherwise the backing memory word
+     */
+    @Override
+    public int peek(int address) {
+        CacheLine line = lineHolding(address);
+        if (line != null) {
+            return line.getWord(address & (blockSize - 1));
+        }
+        for (Cache peer : peers) {
+            int word = peer.dirtyWord(address);
+            if (word >= 0) {
+                return word;
+            }
+        }
+        return backing.peek(address);
+    }
+
+    /**
+     * Serve a block fill for the cache above. Each of this cache's blocks
+     * in the range counts as one access (hit or miss), however many of its
+     * words are copied.
+     *
+     * @param address       first address
+     * @param dest          destination array
+     * @param destOffset    first index written in dest
+     * @param length        number of words
+     * @return              simulated cycles taken, including lower levels
+     * @throws IllegalArgumentException if any address is out of range
+     */
+    @Override
+    public int readBlock(int address, int[] dest, int destOffset, int length) {
+        long start = cycleCount;
+        int copied = 0;
+        while (copied < length) {
+            int first = address + copied;
+            int offset = first & (blockSize - 1);
+            int count = Math.min(length - copied, blockSize - offset);
+            read(first, -1, dest, destOffset + copied, count);
+            copied += count;
+        }
+        return (int) (cycleCount - start);
+    }
+
+    /**
+     * Take a store from the cache above (write-through or write-back);
+     * same as write().
+     *
+     * @return simulated cycles taken, including lower levels
+     */
+    @Override
+    public int writeWord(int address, int word) {
+        long start = cycleCount;
+        write(address, word);
+        return (int) (cycleCount - start);
+    }
+
+    /**
+     * Write every dirty word back to memory, including lines in the victim
+     * buffer. Lines stay valid and become clean. Does nothing unless the
+     * cache is write-back.
+     *
+     * @return number of lines written back
+     */
+    public int flush() {
+        if (bus == null) {
+            return flushLines();
+        }
+        synchronized (bus) {
+            synchronized (this) {
+                return flushLines();
+            }
+        }
+    }
+
+    private int flushLines() {
+        int flushed = 0;
+        for (CacheLine line : lines) {
+            if (line.isValid() && line.isDirty()) {
+                cycleCount += writeBack(line);
+                flushed++;
+            }
+        }
+        for (CacheLine line : victims) {
+            if (line.isValid() && line.isDirty()) {
+                cycleCount += writeBack(line);
+                flushed++;
+            }
+        }
+        if (flushed > 0) {
+            lastEvent = Event.FLUSH;
+            lastFlushed = flushed;
+        }
+        return flushed;
+    }
+
+    /**
+     * Register a listener for writes that go through this cache.
+     *
+     * The listener is registered with the backing level, which covers
+     * write-through stores, write-backs and direct Memory.write calls (IPL,
+     * console Store, tests). Write-back stores, which do not reach the
+     * backing level yet, are reported by the cache itself.
+     *
+     * @param listener listener to notify
+     */
+    @Override
+    public void addWriteListener(MemoryWriteListener listener) {
+        backing.addWriteListener(listener);
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    /**
+     * Remove a listener added with addWriteListener. Unknown listeners are ignored.
+     *
+     * @param listener listener to remove
+     */
+    @Override
+    public void removeWriteListener(MemoryWriteListener listener) {
+        backing.removeWriteListener(listener);
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                MemoryWriteListener[] next = new MemoryWriteListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, next, 0, i);
+                System.arraycopy(listeners, i + 1, next, i, listeners.length - i - 1);
+                listeners = next;
+                return;
+            }
+        }
+    }
 
-        lastAccessSummary = "[CACHE] WRITE miss addr="
-                + Memory.toOct6(address)
-                + " word=" + Memory.toOct6(maskedWord)
-                + " line=" + insertedAt;
+    /**
+     * Keep this cache coherent with another cache over the same memory,
+     * e.g. an instruction cache watching the data cache:
+     * - a write-back store in the peer updates this cache's copy of the word
+     * - a miss (or peek) here takes the peer's dirty words instead of the
+     *   older words still in memory
+     *
+     * Write-through stores need no help: this cache already sees them in
+     * backing memory.
+     *
+     * Adding the same peer again has no effect.
+     *
+     * @param peer                      cache whose stores this cache must see
+     * @throws IllegalArgumentException if peer is null, this cache, or uses other memory
+     */
+    public void addPeer(Cache peer) {
+        if (peer == null || peer == this) {
+            throw new IllegalArgumentException("Peer must be another cache.");
+        }
+        if (peer.backing != backing) {
+            throw new IllegalArgumentException("Peer cache must use the same backing memory.");
+        }
+        if (bus != null || peer.bus != null) {
+            throw new IllegalArgumentException("Caches on a coherence bus cannot be peers.");
+        }
+        for (Cache existing : peers) {
+            if (existing == peer) {
+                return;
+            }
+        }
+        peers = Arrays.copyOf(peers, peers.length + 1);
+        peers[peers.length - 1] = peer;
+        peer.watchers = Arrays.copyOf(peer.watchers, peer.watchers.length + 1);
+        peer.watchers[peer.watchers.length - 1] = this;
+    }
+
+    /**
+     * Stop watching the backing level, for a cache that is being discarded
+     * (e.g. when the cache hierarchy is rebuilt). Dirty words are not
+     * written back; call flush() first to keep them.
+     */
+    public void detach() {
+        backing.removeWriteListener(snoop);
     }
 
     /**
@@ -160,43 +607,128 @@ public final class Cache {
      */
     public String dump() {
         StringBuilder sb = new StringBuilder();
-        sb.append(lastAccessSummary).append('\n');
+        sb.append(getLastAccessSummary()).append('\n');
         sb.append("[CACHE] accesses=").append(accessCount)
           .append(" hits=").append(hitCount)
-          .append(" misses=").append(missCount)
+          .append(" misses=").append(missCount);
+        if (writePolicy == WritePolicy.WRITE_BACK) {
+            sb.append(" writebacks=").append(writebackCount);
+        }
+        sb.append('\n');
+        sb.append("[CACHE] cycles=").append(cycleCount)
+          .append(" AMAT=").append(String.format("%.2f", getAverageAccessTime()))
           .append('\n');
+        sb.append("[CACHE] misses compulsory=").append(getCompulsoryMisses())
+          .append(" capacity=").append(getCapacityMisses())
+          .append(" conflict=").append(getConflictMisses());
+        if (bus != null) {
+            sb.append(" coherence=").append(getCoherenceMisses());
+        }
+        if (victims.length > 0) {
+            sb.append(" victim-hits=").append(victimHitCount);
+        }
+        sb.append('\n');
+        if (bus != null) {
+            sb.append("[CACHE] bus BusRd=").append(busReads)
+              .append(" BusRdX=").append(busReadExclusives)
+              .append(" BusUpgr=").append(busUpgrades)
+              .append(" flushes=").append(snoopFlushes)
+              .append(" invalidated=").append(snoopInvalidations)
+              .append('\n');
+        }
+        if (prefetcher != null) {
+            sb.append("[CACHE] prefetch issued=").append(prefetchIssued)
+              .append(" useful=").append(prefetchUseful)
+              .append(" late=").append(prefetchLate)
+              .append(" unused=").append(prefetchUnused)
+              .append('\n');
+        }
+        sb.append("[CACHE] ").append(config.describe()).append('\n');
 
         for (int i = 0; i < lines.length; i++) {
-            CacheLine line = lines[i];
             sb.append("L").append(i).append(": ");
-
-            if (!line.isValid()) {
-                sb.append("INVALID");
-            } else {
-                sb.append("addr=")
-                  .append(Memory.toOct6(line.getAddressTag()))
-                  .append(" word=")
-                  .append(Memory.toOct6(line.getDataWord()))
-                  .append(" fifo=")
-                  .append(line.getFifoOrder());
-            }
-
+            appendLine(sb, lines[i]);
+            sb.append('\n');
+        }
+        for (int i = 0; i < victims.length; i++) {
+            sb.append("V").append(i).append(": ");
+            appendLine(sb, victims[i]);
             sb.append('\n');
         }
+        if (history != null && history.size() > 0) {
+            sb.append("[CACHE] last ").append(history.size()).append(" accesses:\n");
+            history.appendTo(sb);
+        }
 
         return sb.toString();
     }
 
+    /**
+     * One line of the dump: tag, word(s), FIFO order and markers.
+     */
+    private void appendLine(StringBuilder sb, CacheLine line) {
+        if (!line.isValid()) {
+            sb.append("INVALID");
+        } else if (blockSize == 1) {
+            sb.append("addr=")
+              .append(Memory.toOct6(line.getAddressTag()))
+              .append(" word=")
+              .append(Memory.toOct6(line.getDataWord()))
+              .append(" fifo=")
+              .append(line.getFifoOrder());
+            if (line.isDirty()) {
+                sb.append(" dirty");
+            }
+            if (line.isPrefetched()) {
+                sb.append(" prefetched");
+            }
+            if (bus != null) {
+                sb.append(' ').append(line.getState());
+            }
+        } else {
+            sb.append("addr=")
+              .append(Memory.toOct6(line.getAddressTag()))
+              .append("..")
+              .append(Memory.toOct6(line.getAddressTag() + blockSize - 1))
+              .append(" fifo=")
+              .append(line.getFifoOrder())
+              .append(" words=");
+            for (int w = 0; w < blockSize; w++) {
+                sb.append(w == 0 ? "" : " ").append(Memory.toOct6(line.getWord(w)));
+                if (line.isDirty(w)) {
+                    sb.append('*');
+                }
+            }
+            if (line.isPrefetched()) {
+                sb.append(" prefetched");
+            }
+            if (bus != null) {
+                sb.append(' ').append(line.getState());
+            }
+        }
+    }
+
     /**
      * Find the cache line containing the given address.
      *
      * @param address   memory address
-     * @return          matching line index, or -1 if not found
+     * @return          matching line index, or -1 if not found (including
+     *                  out-of-range addresses, which backing memory rejects)
      */
     private int findHitIndex(int address) {
-        for (int i = 0; i < lines.length; i++) {
+        if (address < 0 || address >= Memory.SIZE) {
+            return -1;
+        }
+        int block = address >> blockShift;
+        if (lineOfBlock != null) {
+            return lineOfBlock[block];
+        }
+
+        int tag = block << blockShift;
+        int base = (block % setCount) * ways;
+        for (int i = base; i < base + ways; i++) {
             CacheLine line = lines[i];
-            if (line.isValid() && line.getAddressTag() == address) {
+            if (line.isValid() && line.getAddressTag() == tag) {
                 return i;
             }
         }
@@ -204,36 +736,108 @@ public final class Cache {
     }
 
     /**
-     * Insert a word into the cache.
+     * Load the block containing an address into the cache.
      *
      * Strategy:
-     * - first use any invalid line
-     * - otherwise evict the oldest line by FIFO order
+     * - the block's set fills its invalid ways in order
+     * - once the set is full, the replacement policy picks the victim, and
+     *   its dirty words (write-back only) are written to memory first
+     * - with a victim buffer, the evicted line goes into the buffer instead
+     *   (the buffer's oldest line is written back and reused), and a block
+     *   found in the buffer is swapped back in without a memory transfer
+     * - otherwise the block is copied from the backing level in one
+     *   readBlock transfer, whose cycles are added to this cache's count;
+     *   on a coherence bus a read fill first issues BusRd (a write fill has
+     *   already claimed the block)
      *
-     * @param address   memory address
-     * @param word      16-bit data word
+     * @param address   memory address (already range-checked)
+     * @param forWrite  true for a write-allocate fill
      * @return          index of the inserted/replaced cache line
      */
-    private int insertOrReplace(int address, int word) {
-        int invalidIndex = findFirstInvalidIndex();
-        if (invalidIndex >= 0) {
-            lines[invalidIndex].fill(address, word, nextFifoOrder++);
-            return invalidIndex;
+    private int insertOrReplace(int address, boolean forWrite) {
+        int block = address >> blockShift;
+        int set = block % setCount;
+        int way = filledWays[set] < ways ? filledWays[set]++
+                : busHoles > 0 ? invalidWay(set, block)
+                : policy.victim(set, block);
+
+        int index = set * ways + way;
+        int tag = block << blockShift;
+        CacheLine line = lines[index];
+        if (line.isValid() && line.isPrefetched()) {
+            prefetchUnused++;
+            line.clearPrefetched();
+        }
+        if (lineOfBlock != null) {
+            if (line.isValid()) {
+                lineOfBlock[line.getAddressTag() >> blockShift] = -1;
+            }
+            lineOfBlock[block] = index;
         }
 
-        int victimIndex = findFifoVictimIndex();
-        lines[victimIndex].fill(address, word, nextFifoOrder++);
-        return victimIndex;
+        if (victims.length > 0) {
+            int slot = findVictim(tag);
+            if (slot >= 0) {
+                // swap: the buffered block comes back, the evicted line takes its slot
+                lines[index] = victims[slot];
+                victims[slot] = line;
+                victimHitCount++;
+                cycleCount += config.getHitLatency();
+                lines[index].reinsert(nextFifoOrder++);
+                policy.onFill(set, way, block);
+                return index;
+            }
+            if (line.isValid()) {
+                line = bufferVictim(line);
+                lines[index] = line;
+            }
+        } else if (line.isValid() && line.isDirty()) {
+            cycleCount += writeBack(line);
+        }
+
+        boolean shared = false;
+        if (bus != null && !forWrite) {
+            busReads++;
+            shared = bus.read(this, tag);
+        }
+        cycleCount += backing.readBlock(tag, line.words(), 0, blockSize);
+        for (Cache peer : peers) {
+            for (int offset = 0; offset < blockSize; offset++) {
+                int word = peer.dirtyWord(tag + offset);
+                if (word >= 0) {
+                    line.updateWord(offset, word);
+                }
+            }
+        }
+        line.fill(tag, nextFifoOrder++);
+        if (shared) {
+            line.setState(MesiState.SHARED);
+        }
+        policy.onFill(set, way, block);
+        return index;
     }
 
     /**
-     * Find the first invalid cache line.
-     *
-     * @return invalid line index, or -1 if none exists
+     * Way to fill in a full set that may contain lines invalidated by the
+     * coherence bus: the first invalid way, otherwise the policy's victim.
      */
-    private int findFirstInvalidIndex() {
-        for (int i = 0; i < lines.length; i++) {
-            if (!lines[i].isValid()) {
+    private int invalidWay(int set, int block) {
+        int base = set * ways;
+        for (int way = 0; way < ways; way++) {
+            if (!lines[base + way].isValid()) {
+                busHoles--;
+                return way;
+            }
+        }
+        return policy.victim(set, block);
+    }
+
+    /**
+     * @return victim buffer slot holding the block with this tag, or -1
+     */
+    private int findVictim(int tag) {
+        for (int i = 0; i < victims.length; i++) {
+            if (victims[i].isValid() && victims[i].getAddressTag() == tag) {
                 return i;
             }
         }
@@ -241,23 +845,327 @@ public final class Cache {
     }
 
     /**
-     * Find the FIFO victim line.
+     * Put an evicted line into the victim buffer in place of the oldest
+     * entry, which is written back if dirty.
      *
-     * @return index of the oldest valid cache line
+     * @return the displaced entry, free to hold the incoming block
      */
-    private int findFifoVictimIndex() {
-        int victimIndex = 0;
-        long oldestOrder = Long.MAX_VALUE;
+    private CacheLine bufferVictim(CacheLine evicted) {
+        CacheLine oldest = victims[nextVictim];
+        if (oldest.isValid() && oldest.isDirty()) {
+            cycleCount += writeBack(oldest);
+        }
+        victims[nextVictim] = evicted;
+        nextVictim = (nextVictim + 1) % victims.length;
+        return oldest;
+    }
 
-        for (int i = 0; i < lines.length; i++) {
-            CacheLine line = lines[i];
-            if (line.isValid() && line.getFifoOrder() < oldestOrder) {
-                oldestOrder = line.getFifoOrder();
-                victimIndex = i;
+    /**
+     * Copy a line's dirty words to memory and mark them clean.
+     *
+     * @return cycles taken by the backing level
+     */
+    private int writeBack(CacheLine line) {
+        int cycles = 0;
+        writingBack = true;
+        try {
+            for (int offset = 0; offset < blockSize; offset++) {
+                if (line.isDirty(offset)) {
+                    line.markClean(offset);
+                    cycles += writeMemory(line.getAddressTag() + offset, line.getWord(offset));
+                }
             }
+        } finally {
+            writingBack = false;
         }
+        writebackCount++;
+        return cycles;
+    }
 
-        return victimIndex;
+    /**
+     * Write the backing level on the cache's own behalf (not snooped).
+     * Write-through stores add their cycles here; write-backs are added by
+     * the caller.
+     *
+     * @return cycles taken by the backing level
+     */
+    private int writeMemory(int address, int word) {
+        writingMemory = true;
+        try {
+            int cycles = backing.writeWord(address, word);
+            if (!writingBack) {
+                cycleCount += cycles;
+            }
+            return cycles;
+        } finally {
+            writingMemory = false;
+        }
+    }
+
+    /**
+     * Count a demand access to a line. The first use of a prefetched line
+     * makes the prefetch useful; if its fill is still in flight the access
+     * also waits for it to complete.
+     *
+     * @return true if this was the first use of a prefetched line
+     */
+    private boolean usePrefetched(CacheLine line) {
+        if (!line.isPrefetched()) {
+            return false;
+        }
+        line.clearPrefetched();
+        prefetchUseful++;
+        if (line.getReadyAt() > cycleCount) {
+            prefetchLate++;
+            cycleCount = line.getReadyAt();
+        }
+        return true;
+    }
+
+    /**
+     * Copy count words of a line, from offset on, into dest.
+     */
+    private static void copyWords(CacheLine line, int offset, int[] dest, int destOffset, int count) {
+        for (int i = 0; i < count; i++) {
+            dest[destOffset + i] = line.getWord(offset + i);
+        }
+    }
+
+    /**
+     * Ask the prefetcher about a demand access just handled, and load the
+     * block it names unless it is out of range or already cached (or in the
+     * victim buffer).
+     */
+    private void prefetchAfter(int pc, int address, boolean miss, boolean firstUse) {
+        if (prefetcher == null) {
+            return;
+        }
+        int target = prefetcher.onAccess(pc, address, miss, firstUse);
+        if (target < 0 || target >= Memory.SIZE || lineHolding(target) != null) {
+            return;
+        }
+
+        // the fill overlaps later accesses: note when it completes instead of
+        // charging it to this access
+        long issuedAt = cycleCount;
+        int index = insertOrReplace(target, false);
+        lines[index].markPrefetched(cycleCount);
+        cycleCount = issuedAt;
+        lastPrefetch = target;
+        prefetchIssued++;
+    }
+
+    /**
+     * @return true if a store to the address is a write-back hit on a line
+     *         held MODIFIED or EXCLUSIVE, which needs no bus transaction
+     *         (and no prefetch, which could issue one)
+     */
+    private boolean ownsForStore(int address) {
+        if (prefetcher != null || writePolicy != WritePolicy.WRITE_BACK) {
+            return false;
+        }
+        int hitIndex = findHitIndex(address);
+        if (hitIndex < 0) {
+            return false;
+        }
+        MesiState state = lines[hitIndex].getState();
+        return state == MesiState.MODIFIED || state == MesiState.EXCLUSIVE;
+    }
+
+    /**
+     * Make a line writable before a store hits it: a SHARED line first
+     * invalidates the other copies (BusUpgr). Afterwards the line is
+     * MODIFIED, or EXCLUSIVE in a write-through cache (memory stays current).
+     */
+    private void own(CacheLine line) {
+        if (line.getState() == MesiState.SHARED) {
+            busUpgrades++;
+            bus.invalidate(this, line.getAddressTag());
+        }
+        line.setState(writePolicy == WritePolicy.WRITE_BACK ? MesiState.MODIFIED : MesiState.EXCLUSIVE);
+    }
+
+    /**
+     * Claim a block for a store that missed: upgrade the copy in the victim
+     * buffer if there is one, otherwise invalidate every other copy (BusRdX)
+     * before memory is read or written.
+     */
+    private void claim(int address) {
+        CacheLine buffered = lineHolding(address);
+        if (buffered != null) {
+            own(buffered);
+            return;
+        }
+        busReadExclusives++;
+        bus.invalidate(this, address & -blockSize);
+    }
+
+    /**
+     * Snoop another cache's BusRd: flush a modified copy and keep it SHARED.
+     *
+     * @param tag   address of the first word of the block
+     * @return      true if this cache holds the block
+     */
+    synchronized boolean snoopRead(int tag) {
+        CacheLine line = lineHolding(tag);
+        if (line == null) {
+            return false;
+        }
+        if (line.isDirty()) {
+            cycleCount += writeBack(line);
+            snoopFlushes++;
+        }
+        line.setState(MesiState.SHARED);
+        return true;
+    }
+
+    /**
+     * Snoop another cache's BusRdX or BusUpgr: flush dirty words, then drop
+     * the block.
+     *
+     * @param tag   address of the first word of the block
+     */
+    synchronized void snoopInvalidate(int tag) {
+        int index = findHitIndex(tag);
+        CacheLine line = index >= 0 ? lines[index] : lineHolding(tag);
+        if (line == null) {
+            return;
+        }
+        if (line.isDirty()) {
+            cycleCount += writeBack(line);
+            snoopFlushes++;
+        }
+        if (line.isPrefetched()) {
+            prefetchUnused++;
+        }
+        snoopInvalidations++;
+        missClasses.invalidated(tag >> blockShift);
+        line.invalidate();
+        if (index >= 0) {
+            if (lineOfBlock != null) {
+                lineOfBlock[tag >> blockShift] = -1;
+            }
+            policy.onInvalidate(index / ways, index % ways);
+            busHoles++;
+        }
+    }
+
+    /**
+     * Called by CoherenceBus.attach.
+     */
+    void joinBus(CoherenceBus joined) {
+        if (bus != null) {
+            throw new IllegalArgumentException("Cache is already on a coherence bus.");
+        }
+        if (peers.length > 0 || watchers.length > 0) {
+            throw new IllegalArgumentException("Split caches cannot join a coherence bus.");
+        }
+        bus = joined;
+    }
+
+    /**
+     * @return true if the other cache uses the same backing level
+     */
+    boolean sharesBackingWith(Cache other) {
+        return other.backing == backing;
+    }
+
+    /**
+     * @return true if a cache below this one is writing back a dirty line
+     */
+    private boolean lowerLevelWritingBack() {
+        MemoryLevel level = backing;
+        while (level instanceof Cache lower) {
+            if (lower.writingBack) {
+                return true;
+            }
+            level = lower.backing;
+        }
+        return false;
+    }
+
+    /**
+     * Report a write-back store, which memory has not seen, to the write
+     * listeners and to caches watching this one.
+     */
+    private void announceStore(int address, int word) {
+        for (MemoryWriteListener l : listeners) {
+            l.wordWritten(address);
+        }
+        for (Cache watcher : watchers) {
+            watcher.peerStored(address, word);
+        }
+    }
+
+    /**
+     * A peer cache stored a word it has not written to memory yet: replace
+     * this cache's copy, which the peer now owns.
+     */
+    private void peerStored(int address, int word) {
+        CacheLine line = lineHolding(address);
+        if (line != null) {
+            int offset = address & (blockSize - 1);
+            line.updateWord(offset, word);
+            line.markClean(offset);
+        }
+    }
+
+    /**
+     * @return the cached word if it is dirty here, otherwise -1
+     */
+    private int dirtyWord(int address) {
+        CacheLine line = lineHolding(address);
+        if (line != null) {
+            int offset = address & (blockSize - 1);
+            if (line.isDirty(offset)) {
+                return line.getWord(offset);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the line holding an address, in the cache or in the victim
+     *         buffer, or null if neither has it
+     */
+    private CacheLine lineHolding(int address) {
+        int hitIndex = findHitIndex(address);
+        if (hitIndex >= 0) {
+            return lines[hitIndex];
+        }
+        if (victims.length > 0 && address >= 0 && address < Memory.SIZE) {
+            int slot = findVictim(address & -blockSize);
+            if (slot >= 0) {
+                return victims[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remember a demand access for getLastAccessSummary() and the history.
+     * Nothing is formatted here: this runs on every access.
+     *
+     * @param line  line index, or -1 for a write that was not allocated
+     */
+    private void noteAccess(boolean write, boolean hit, int address, int word, int line) {
+        lastEvent = write ? Event.WRITE : Event.READ;
+        lastHit = hit;
+        lastAddress = address;
+        lastWord = word;
+        lastLine = line;
+        lastPrefetch = -1;
+        if (history != null) {
+            history.record(write, hit, address, word, line);
+        }
+    }
+
+    /**
+     * Line number for access summaries: "3", or "3+1" (line 3, word 1) when
+     * lines hold more than one word.
+     */
+    private String lineLabel(int index, int offset) {
+        return blockSize == 1 ? Integer.toString(index) : index + "+" + offset;
     }
 
     
@@ -268,27 +1176,87 @@ public final class Cache {
     /**
      * Clear the cache and reset statistics.
      *
-     * This does not clear backing memory. It only clears the cache contents.
+     * This does not clear backing memory. It only clears the cache contents;
+     * dirty words are discarded (call flush() first to keep them).
      */
     public void clear() {
-        for (CacheLine line : lines) {
-            line.invalidate();
-        }
+        invalidateAll();
 
         nextFifoOrder = 1L;
         hitCount = 0L;
         missCount = 0L;
         accessCount = 0L;
-        lastAccessSummary = "[CACHE] Cleared.";
+        writebackCount = 0L;
+        cycleCount = 0L;
+        victimHitCount = 0L;
+        missClasses.reset();
+        prefetchIssued = 0L;
+        prefetchUseful = 0L;
+        prefetchLate = 0L;
+        prefetchUnused = 0L;
+        busReads = 0L;
+        busReadExclusives = 0L;
+        busUpgrades = 0L;
+        snoopFlushes = 0L;
+        snoopInvalidations = 0L;
+        if (prefetcher != null) {
+            prefetcher.reset();
+        }
+        lastEvent = Event.CLEARED;
+        if (history != null) {
+            history.clear();
+        }
     }
     
     /**
-     * Return the most recent cache event summary.
+     * Return the most recent cache event summary. The text is built here,
+     * from fields recorded by the access, not on every access.
      *
      * @return last access summary string
      */
     public String getLastAccessSummary() {
-        return lastAccessSummary;
+        return switch (lastEvent) {
+            case NONE -> "[CACHE] No accesses yet.";
+            case CLEARED -> "[CACHE] Cleared.";
+            case FLUSH -> "[CACHE] FLUSH wrote back " + lastFlushed + " line(s)";
+            case READ, WRITE -> {
+                StringBuilder sb = new StringBuilder("[CACHE] ")
+                        .append(lastEvent == Event.READ ? "READ" : "WRITE")
+                        .append(lastHit ? " hit  addr=" : " miss addr=")
+                        .append(Memory.toOct6(lastAddress))
+                        .append(" word=").append(Memory.toOct6(lastWord));
+                if (lastLine < 0) {
+                    sb.append(" not allocated");
+                } else {
+                    sb.append(" line=").append(lineLabel(lastLine, lastAddress & (blockSize - 1)));
+                }
+                if (lastPrefetch >= 0) {
+                    sb.append(" (prefetch ").append(Memory.toOct6(lastPrefetch)).append(')');
+                }
+                yield sb.toString();
+            }
+        };
+    }
+
+    /**
+     * Keep the last N demand accesses in a ring buffer (see AccessHistory),
+     * or stop keeping them.
+     *
+     * @param capacity                  accesses to keep, 0 to turn the history off
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public void setHistorySize(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Access history capacity cannot be negative: " + capacity);
+        }
+        history = capacity == 0 ? null : new AccessHistory(capacity);
+    }
+
+    /**
+     * @return recent accesses, oldest first, or null when the history is off
+     */
+    public AccessHistory getHistory() {
+        return history;
     }
 
     public long getHitCount() {
@@ -303,8 +1271,229 @@ public final class Cache {
         return accessCount;
     }
 
+    /** @return number of line write-backs (evictions of dirty lines and flushes) */
+    public long getWritebackCount() {
+        return writebackCount;
+    }
+
+    /** @return simulated cycles spent in this cache and the levels below it */
+    public long getCycleCount() {
+        return cycleCount;
+    }
+
+    /**
+     * Average memory access time seen by the user of this cache.
+     *
+     * @return cycles per access, or 0 before the first access
+     */
+    public double getAverageAccessTime() {
+        return accessCount == 0L ? 0.0 : (double) cycleCount / accessCount;
+    }
+
+    /** @return misses on blocks never accessed before (since the last clear) */
+    public long getCompulsoryMisses() {
+        return missClasses.getCompulsory();
+    }
+
+    /** @return misses a fully associative LRU cache of the same size would also take */
+    public long getCapacityMisses() {
+        return missClasses.getCapacity();
+    }
+
+    /** @return misses a fully associative LRU cache of the same size would not take */
+    public long getConflictMisses() {
+        return missClasses.getConflict();
+    }
+
+    /** @return misses on blocks another core's store invalidated here (coherence bus only) */
+    public long getCoherenceMisses() {
+        return missClasses.getCoherence();
+    }
+
+    /** @return BusRd transactions issued (read misses and prefetches on a coherence bus) */
+    public long getBusReads() {
+        return busReads;
+    }
+
+    /** @return BusRdX transactions issued (store misses on a coherence bus) */
+    public long getBusReadExclusives() {
+        return busReadExclusives;
+    }
+
+    /** @return BusUpgr transactions issued (stores to SHARED lines) */
+    public long getBusUpgrades() {
+        return busUpgrades;
+    }
+
+    /** @return modified lines written back because another core asked for them */
+    public long getSnoopFlushes() {
+        return snoopFlushes;
+    }
+
+    /** @return lines invalidated by other cores' stores */
+    public long getSnoopInvalidations() {
+        return snoopInvalidations;
+    }
+
+    /** @return the coherence bus this cache is on, or null */
+    public CoherenceBus getBus() {
+        return bus;
+    }
+
+    /** @return misses served from the victim buffer instead of the level below */
+    public long getVictimHitCount() {
+        return victimHitCount;
+    }
+
+    /** @return blocks loaded by the prefetcher */
+    public long getPrefetchIssued() {
+        return prefetchIssued;
+    }
+
+    /** @return prefetched blocks later used by a demand access */
+    public long getPrefetchUseful() {
+        return prefetchUseful;
+    }
+
+    /** @return useful prefetches whose fill had not completed when first used */
+    public long getPrefetchLate() {
+        return prefetchLate;
+    }
+
+    /** @return prefetched blocks evicted before any demand access used them */
+    public long getPrefetchUnused() {
+        return prefetchUnused;
+    }
+
     public int getLineCount() {
         return lines.length;
     }
 
-}
\ No newline at end of file
+    public CacheConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Switch replacement policy. The cache is cleared (contents and
+     * statistics) so the new policy starts from an empty cache.
+     *
+     * @param kind                      policy to use from now on
+     * @throws IllegalArgumentException if kind is null
+     */
+    public void setReplacement(ReplacementPolicy.Kind kind) {
+        config = config.withReplacement(kind);
+        policy = kind.create(config);
+        flush();
+        clear();
+    }
+
+    /**
+     * Switch prefetcher. The cache is cleared (contents and statistics) so
+     * the comparison with and without prefetch starts from an empty cache.
+     *
+     * @param kind                      prefetcher to use from now on
+     * @throws IllegalArgumentException if kind is null
+     */
+    public void setPrefetcher(Prefetcher.Kind kind) {
+        config = config.withPrefetcher(kind);
+        prefetcher = kind.create(config);
+        flush();
+        clear();
+    }
+
+    /**
+     * Drop every line without writing anything back.
+     */
+    private void invalidateAll() {
+        for (CacheLine line : lines) {
+            line.invalidate();
+        }
+        for (CacheLine line : victims) {
+            line.invalidate();
+        }
+        nextVictim = 0;
+        if (lineOfBlock != null) {
+            Arrays.fill(lineOfBlock, -1);
+        }
+        Arrays.fill(filledWays, 0);
+        busHoles = 0;
+        policy.reset();
+    }
+
+    /**
+     * Keeps cached words in step with writes made directly to the backing
+     * level. The cache's own writes, and write-backs by lower caches (which
+     * carry older data than any dirty word here), are skipped.
+     */
+    private final class MemorySnoop implements MemoryWriteListener {
+
+        @Override
+        public void wordWritten(int address) {
+            if (bus == null) {
+                refreshWord(address);
+                return;
+            }
+            // another core's thread may be writing memory
+            synchronized (Cache.this) {
+                refreshWord(address);
+            }
+        }
+
+        /**
+         * A bulk load: refresh every held line overlapping the range, rather
+         * than looking up each loaded address.
+         */
+        @Override
+        public void rangeWritten(int first, int last) {
+            if (bus == null) {
+                refreshRange(first, last);
+                return;
+            }
+            synchronized (Cache.this) {
+                refreshRange(first, last);
+            }
+        }
+
+        @Override
+        public void memoryCleared() {
+            synchronized (Cache.this) {
+                invalidateAll();
+            }
+        }
+
+        private void refreshWord(int address) {
+            if (writingMemory || lowerLevelWritingBack()) {
+                return;
+            }
+            CacheLine line = lineHolding(address);
+            if (line != null) {
+                int offset = address & (blockSize - 1);
+                line.updateWord(offset, backing.peek(address));
+                line.markClean(offset);
+            }
+        }
+
+        private void refreshRange(int first, int last) {
+            if (writingMemory || lowerLevelWritingBack()) {
+                return;
+            }
+            refresh(lines, first, last);
+            refresh(victims, first, last);
+        }
+
+        private void refresh(CacheLine[] held, int first, int last) {
+            for (CacheLine line : held) {
+                if (!line.isValid()) {
+                    continue;
+                }
+                int tag = line.getAddressTag();
+                int from = Math.max(first, tag);
+                int to = Math.min(last, tag + blockSize - 1);
+                for (int address = from; address <= to; address++) {
+                    line.updateWord(address - tag, backing.peek(address));
+                    line.markClean(address - tag);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package simulator.cache;
+
+import simulator.machine.Memory;
+
+/**
+ * Organisation of a Cache: how many lines, how they are grouped into sets,
+ * and how many words each line holds.
+ *
+ * - Fully associative: one set holding every line (any block, any line)
+ * - Direct-mapped:     one line per set (each block has exactly one line)
+ * - N-way:             lineCount / N sets of N lines each
+ *
+ * A line holds one aligned block of blockSize words (1, 2, 4, 8 or 16).
+ * Address a is in block (a / blockSize), which maps to set
+ * (block % setCount). When a set is full, the replacement policy (FIFO by
+ * default) picks the line to evict. The write policy (write-through by
+ * default) decides when stores reach memory. Every access costs hitLatency
+ * cycles, plus whatever the level below charges for misses and write-backs.
+ * An optional prefetcher (none by default) loads blocks ahead of demand, and
+ * an optional victim buffer (none by default) keeps the last few evicted
+ * lines.
+ *
+ * Instances are immutable; the with* methods return modified copies.
+ */
+public final class CacheConfig {
+
+    public static final int MAX_BLOCK_SIZE = 16;
+    public static final long DEFAULT_RANDOM_SEED = 6461L;
+    public static final int DEFAULT_HIT_LATENCY = 1;
+    public static final int MAX_VICTIM_BUFFER = 16;
+
+    private final int lineCount;
+    private final int ways;
+    private final int blockSize;
+    private final ReplacementPolicy.Kind replacement;
+    private final long randomSeed;
+    private final WritePolicy writePolicy;
+    private final int hitLatency;
+    private final Prefetcher.Kind prefetcher;
+    private final int victimEntries;
+
+    private CacheConfig(int lineCount, int ways, int blockSize, ReplacementPolicy.Kind replacement,
+                        long randomSeed, WritePolicy writePolicy, int hitLatency, Prefetcher.Kind prefetcher,
+                        int victimEntries) {
+        if (lineCount <= 0) {
+            throw new IllegalArgumentException("Cache line count must be positive.");
+        }
+        if (ways <= 0 || ways > lineCount || lineCount % ways != 0) {
+            throw new IllegalArgumentException(
+                    "Associativity must divide the line count: " + ways + " ways, " + lineCount + " lines.");
+        }
+        if (blockSize <= 0 || blockSize > MAX_BLOCK_SIZE || Integer.bitCount(blockSize) != 1) {
+            throw new IllegalArgumentException(
+                    "Block size must be a power of two from 1 to " + MAX_BLOCK_SIZE + ": " + blockSize);
+        }
+        this.lineCount = lineCount;
+        this.ways = ways;
+        if (replacement == null) {
+            throw new IllegalArgumentException("Replacement policy cannot be null.");
+        }
+        if (writePolicy == null) {
+            throw new IllegalArgumentException("Write policy cannot be null.");
+        }
+        if (hitLatency < 0) {
+            throw new IllegalArgumentException("Hit latency cannot be negative: " + hitLatency);
+        }
+        if (prefetcher == null) {
+            throw new IllegalArgumentException("Prefetcher cannot be null.");
+        }
+        if (victimEntries < 0 || victimEntries > MAX_VICTIM_BUFFER) {
+            throw new IllegalArgumentException(
+                    "Victim buffer must hold 0 to " + MAX_VICTIM_BUFFER + " lines: " + victimEntries);
+        }
+        this.blockSize = blockSize;
+        this.replacement = replacement;
+        this.randomSeed = randomSeed;
+        this.writePolicy = writePolicy;
+        this.hitLatency = hitLatency;
+        this.prefetcher = prefetcher;
+        this.victimEntries = victimEntries;
+    }
+
+    /**
+     * @param lineCount number of cache lines
+     * @return          fully associative organisation
+     */
+    public static CacheConfig fullyAssociative(int lineCount) {
+        return new CacheConfig(lineCount, lineCount, 1, ReplacementPolicy.Kind.FIFO, DEFAULT_RANDOM_SEED,
+                WritePolicy.WRITE_THROUGH, DEFAULT_HIT_LATENCY,
+                Prefetcher.Kind.NONE, 0);
+    }
+
+    /**
+     * @param lineCount number of cache lines (one per set)
+     * @return          direct-mapped organisation
+     */
+    public static CacheConfig directMapped(int lineCount) {
+        return new CacheConfig(lineCount, 1, 1, ReplacementPolicy.Kind.FIFO, DEFAULT_RANDOM_SEED,
+                WritePolicy.WRITE_THROUGH, DEFAULT_HIT_LATENCY,
+                Prefetcher.Kind.NONE, 0);
+    }
+
+    /**
+     * @param lineCount number of cache lines
+     * @param ways      lines per set; must divide lineCount
+     * @return          N-way set-associative organisation
+     */
+    public static CacheConfig setAssociative(int lineCount, int ways) {
+        return new CacheConfig(lineCount, ways, 1, ReplacementPolicy.Kind.FIFO, DEFAULT_RANDOM_SEED,
+                WritePolicy.WRITE_THROUGH, DEFAULT_HIT_LATENCY,
+                Prefetcher.Kind.NONE, 0);
+    }
+
+    /**
+     * @param words words per line: 1, 2, 4, 8 or 16
+     * @return      same organisation with the given block size
+     */
+    public CacheConfig withBlockSize(int words) {
+        return new CacheConfig(lineCount, ways, words, replacement, randomSeed, writePolicy, hitLatency,
+                prefetcher, victimEntries);
+    }
+
+    /**
+     * @param kind  replacement policy used when a set is full
+     * @return      same organisation with the given policy
+     */
+    public CacheConfig withReplacement(ReplacementPolicy.Kind kind) {
+        return new CacheConfig(lineCount, ways, blockSize, kind, randomSeed, writePolicy, hitLatency,
+                prefetcher, victimEntries);
+    }
+
+    /**
+     * @param seed  seed for RANDOM replacement
+     * @return      same organisation with the given seed
+     */
+    public CacheConfig withRandomSeed(long seed) {
+        return new CacheConfig(lineCount, ways, blockSize, replacement, seed, writePolicy, hitLatency,
+                prefetcher, victimEntries);
+    }
+
+    /**
+     * @param policy    write-through, write-no-allocate or write-back
+     * @return          same organisation with the given write policy
+     */
+    public CacheConfig withWritePolicy(WritePolicy policy) {
+        return new CacheConfig(lineCount, ways, blockSize, replacement, randomSeed, policy, hitLatency,
+                prefetcher, victimEntries);
+    }
+
+    /**
+     * @param cycles    simulated cycles for every access to this cache
+     * @return          same organisation with the given hit latency
+     */
+    public CacheConfig withHitLatency(int cycles) {
+        return new CacheConfig(lineCount, ways, blockSize, replacement, randomSeed, writePolicy, cycles,
+                prefetcher, victimEntries);
+    }
+
+    /**
+     * @param kind  prefetcher to put in front of the cache
+     * @return      same organisation with the given prefetcher
+     */
+    public CacheConfig withPrefetcher(Prefetcher.Kind kind) {
+        return new CacheConfig(lineCount, ways, blockSize, replacement, randomSeed, writePolicy, hitLatency,
+                kind, victimEntries);
+    }
+
+    /**
+     * @param entries   lines kept in the victim buffer, 0 for none
+     * @return          same organisation with the given victim buffer
+     */
+    public CacheConfig withVictimBuffer(int entries) {
+        return new CacheConfig(lineCount, ways, blockSize, replacement, randomSeed, writePolicy, hitLatency,
+                prefetcher, entries);
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public int getWays() {
+        return ways;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public ReplacementPolicy.Kind getReplacement() {
+        return replacement;
+    }
+
+    public long getRandomSeed() {
+        return randomSeed;
+    }
+
+    public WritePolicy getWritePolicy() {
+        return writePolicy;
+    }
+
+    public int getHitLatency() {
+        return hitLatency;
+    }
+
+    public Prefetcher.Kind getPrefetcher() {
+        return prefetcher;
+    }
+
+    /**
+     * @return lines kept in the victim buffer (0 = no victim buffer)
+     */
+    public int getVictimEntries() {
+        return victimEntries;
+    }
+
+    /**
+     * @return number of distinct blocks in memory (Memory.SIZE / blockSize)
+     */
+    public int getBlockCount() {
+        return Memory.SIZE / blockSize;
+    }
+
+    public int getSetCount() {
+        return lineCount / ways;
+    }
+
+    public boolean isFullyAssociative() {
+        return ways == lineCount;
+    }
+
+    public boolean isDirectMapped() {
+        return ways == 1;
+    }
+
+    /**
+     * Short description for the cache dump,
+     * e.g. "16 lines, 4-way (4 sets), 4-word blocks, LRU, Write-back, 1-cycle hit, Stride prefetch".
+     *
+     * @return human-readable organisation
+     */
+    public String describe() {
+        String organisation;
+        if (isFullyAssociative()) {
+            organisation = "fully associative";
+        } else if (isDirectMapped()) {
+            organisation = "direct-mapped";
+        } else {
+            organisation = ways + "-way (" + getSetCount() + " sets)";
+        }
+        String blocks = blockSize == 1 ? "" : ", " + blockSize + "-word blocks";
+        return lineCount + " lines, " + organisation + blocks + ", " + replacement + ", " + writePolicy
+                + ", " + hitLatency + "-cycle hit"
+                + (prefetcher == Prefetcher.Kind.NONE ? "" : ", " + prefetcher + " prefetch")
+                + (victimEntries == 0 ? "" : ", " + victimEntries + "-line victim buffer");
+    }
+
+    @Override
+    public String toString() {
+        return describe();
+    }
+}
@@ -1,27 +1,51 @@
 package simulator.cache;
 
+import java.util.Arrays;
+
 /**
  * One cache line in the simulator cache.
- * - Fully associative cache, so each line may hold any memory address.
+ * - The tag is the address of the first word of the block, so a line can
+ *   hold any block its set admits (any block at all when the cache is fully
+ *   associative).
  * - Unified cache, so the same line structure is used for both
  *   instruction fetches and normal data reads/writes.
- * - One memory word per line, which matches the simulator's current
- *   word-based Memory API and keeps Part II simple.
+ * - Holds one aligned block of 1..16 words; with one-word blocks this is
+ *   the original word-per-line cache.
+ * - Write-back caches mark each stored word dirty (one bit per word), so an
+ *   eviction or flush writes back only the words that changed.
+ * - A line loaded by the prefetcher stays marked until its first demand
+ *   use, and records the cycle its fill completes.
+ * - Each line carries a MESI state for caches on a CoherenceBus; a fill
+ *   starts EXCLUSIVE and the cache adjusts it.
  */
 public final class CacheLine {
 
     private boolean valid;
     private int addressTag;
-    private int dataWord;
+    private final int[] words;
     private long fifoOrder;
+    private int dirtyWords;     // bit i set = word i not yet in memory
+    private boolean prefetched; // loaded by the prefetcher and not used yet
+    private long readyAt;       // cache cycle at which the prefetch fill completes
+    private MesiState state = MesiState.INVALID;
 
     /**
-     * Construct an invalid cache line.
+     * Construct an invalid one-word cache line.
      */
     public CacheLine() {
+        this(1);
+    }
+
+    /**
+     * Construct an invalid cache line.
+     *
+     * @param blockSize words held by the line
+     */
+    public CacheLine(int blockSize) {
         this.valid = false;
         this.addressTag = 0;
-        this.dataWord = 0;
+        this.words = new int[blockSize];
+        this.dirtyWords = 0;
         this.fifoOrder = 0L;
     }
 
@@ -29,12 +53,30 @@ public final class CacheLine {
         return valid;
     }
 
+    /**
+     * @return address of the first word in the block
+     */
     public int getAddressTag() {
         return addressTag;
     }
 
+    /**
+     * @return first word of the block (the only word with one-word blocks)
+     */
     public int getDataWord() {
-        return dataWord;
+        return words[0];
+    }
+
+    /**
+     * @param offset    word offset within the block
+     * @return          cached 16-bit word
+     */
+    public int getWord(int offset) {
+        return words[offset];
+    }
+
+    public int getBlockSize() {
+        return words.length;
     }
 
     public long getFifoOrder() {
@@ -42,27 +84,124 @@ public final class CacheLine {
     }
 
     /**
-     * Fill or overwrite this cache line.
+     * @return true if any word still has to be written back
+     */
+    public boolean isDirty() {
+        return dirtyWords != 0;
+    }
+
+    /**
+     * @param offset    word offset within the block
+     * @return          true if that word still has to be written back
+     */
+    public boolean isDirty(int offset) {
+        return (dirtyWords & (1 << offset)) != 0;
+    }
+
+    /**
+     * @return true if the prefetcher loaded this line and no demand access has used it yet
+     */
+    public boolean isPrefetched() {
+        return prefetched;
+    }
+
+    /**
+     * @return coherence state (see MesiState)
+     */
+    public MesiState getState() {
+        return state;
+    }
+
+    void setState(MesiState state) {
+        this.state = state;
+    }
+
+    /**
+     * @return cache cycle at which the prefetch fill completes
+     */
+    long getReadyAt() {
+        return readyAt;
+    }
+
+    /**
+     * Mark a freshly filled line as loaded by the prefetcher.
+     *
+     * @param readyAt cache cycle at which the fill completes
+     */
+    void markPrefetched(long readyAt) {
+        this.prefetched = true;
+        this.readyAt = readyAt;
+    }
+
+    /**
+     * A demand access has used the prefetched line.
+     */
+    void clearPrefetched() {
+        this.prefetched = false;
+    }
+
+    /**
+     * Mark this line as holding the block starting at the given address.
+     * The caller has already loaded the block into words().
      *
-     * @param addressTag full memory address for the cached word
-     * @param dataWord cached 16-bit word
-     * @param fifoOrder insertion order used for FIFO replacement
+     * @param addressTag address of the first word of the block
+     * @param fifoOrder  insertion order (shown in dumps; FIFO evicts the lowest)
      */
-    public void fill(int addressTag, int dataWord, long fifoOrder) {
+    void fill(int addressTag, long fifoOrder) {
         this.valid = true;
         this.addressTag = addressTag;
-        this.dataWord = dataWord & 0xFFFF;
         this.fifoOrder = fifoOrder;
+        this.dirtyWords = 0;
+        this.prefetched = false;
+        this.state = MesiState.EXCLUSIVE;
     }
 
     /**
-     * Update only the cached data word while keeping the tag and FIFO age.
+     * Put a line back into the cache from the victim buffer. The tag, words
+     * and dirty bits are kept; only the insertion order changes.
+     *
+     * @param fifoOrder insertion order (shown in dumps; FIFO evicts the lowest)
+     */
+    void reinsert(long fifoOrder) {
+        this.fifoOrder = fifoOrder;
+    }
+
+    /**
+     * Block storage, for bulk fills from Memory.
+     *
+     * @return the line's word array (not a copy)
+     */
+    int[] words() {
+        return words;
+    }
+
+    /**
+     * Update one cached word while keeping the tag and FIFO age.
      * Useful on write hits.
      *
-     * @param dataWord new 16-bit word value
+     * @param offset    word offset within the block
+     * @param dataWord  new 16-bit word value
+     */
+    public void updateWord(int offset, int dataWord) {
+        words[offset] = dataWord & 0xFFFF;
+    }
+
+    /**
+     * Mark one word as changed in the cache only (write-back store).
+     *
+     * @param offset word offset within the block
+     */
+    void markDirty(int offset) {
+        dirtyWords |= 1 << offset;
+    }
+
+    /**
+     * Mark one word as matching memory again.
+     *
+     * @param offset word offset within the block
      */
-    public void updateWord(int dataWord) {
-        this.dataWord = dataWord & 0xFFFF;
+    void markClean(int offset) {
+        dirtyWords &= ~(1 << offset);
     }
 
     /**
@@ -71,7 +210,10 @@ public final class CacheLine {
     public void invalidate() {
         this.valid = false;
         this.addressTag = 0;
-        this.dataWord = 0;
+        Arrays.fill(words, 0);
         this.fifoOrder = 0L;
+        this.dirtyWords = 0;
+        this.prefetched = false;
+        this.state = MesiState.INVALID;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,103 @@
+package simulator.cache;
+
+import java.util.Arrays;
+
+/**
+ * Snooping bus that keeps the private caches of several cores coherent with
+ * the MESI protocol. All caches on a bus share one backing level (normally
+ * Memory).
+ *
+ * Transactions, issued by a cache and snooped by every other cache:
+ *  - BusRd:   read miss. A MODIFIED copy is written back (flush) and every
+ *             copy becomes SHARED; the reader gets SHARED if anyone else had
+ *             the block, otherwise EXCLUSIVE.
+ *  - BusRdX:  write miss. Other copies are written back if dirty and
+ *             invalidated; the writer gets the block MODIFIED (EXCLUSIVE
+ *             when write-through).
+ *  - BusUpgr: write hit on a SHARED line. Other copies are invalidated.
+ * A store to an EXCLUSIVE line changes it to MODIFIED without a transaction.
+ *
+ * Each cache counts the transactions it issues and the flushes and
+ * invalidations it suffers (see Cache.getBusReads() etc.). The transactions
+ * themselves cost no cycles; flushes cost the write-back, charged to the
+ * cache that flushes.
+ *
+ * Threads: a cache on a bus locks itself for each access. An access that
+ * can issue a transaction or write the backing level also holds this bus's
+ * monitor, taken before the cache's own, and each snooped cache is locked
+ * while it responds. Locks are always taken bus first, then caches, so
+ * cores on separate threads run in parallel while each transaction, with
+ * its snoops and state changes, is atomic.
+ */
+public final class CoherenceBus {
+
+    private Cache[] caches = new Cache[0];
+
+    /**
+     * Put a cache on the bus.
+     *
+     * @param cache                     cache to keep coherent with the others
+     * @throws IllegalArgumentException if the cache is null, already on a bus,
+     *                                  split (has peers), or uses another
+     *                                  backing level than the caches already here
+     */
+    public void attach(Cache cache) {
+        if (cache == null) {
+            throw new IllegalArgumentException("Cache cannot be null.");
+        }
+        if (caches.length > 0 && !caches[0].sharesBackingWith(cache)) {
+            throw new IllegalArgumentException("Caches on a coherence bus must use the same backing memory.");
+        }
+        cache.joinBus(this);
+        caches = Arrays.copyOf(caches, caches.length + 1);
+        caches[caches.length - 1] = cache;
+    }
+
+    /**
+     * @return number of caches on the bus
+     */
+    public int size() {
+        return caches.length;
+    }
+
+    /**
+     * @param i     cache index, in attach order
+     * @return      cache on the bus
+     */
+    public Cache getCache(int i) {
+        return caches[i];
+    }
+
+    /**
+     * BusRd: every other cache holding the block flushes it if modified and
+     * keeps it SHARED.
+     *
+     * @param requester cache taking the read miss
+     * @param tag       address of the first word of the block
+     * @return          true if another cache holds the block
+     */
+    boolean read(Cache requester, int tag) {
+        boolean shared = false;
+        for (Cache c : caches) {
+            if (c != requester && c.snoopRead(tag)) {
+                shared = true;
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * BusRdX / BusUpgr: every other cache holding the block flushes it if
+     * dirty and invalidates it.
+     *
+     * @param requester cache about to store into the block
+     * @param tag       address of the first word of the block
+     */
+    void invalidate(Cache requester, int tag) {
+        for (Cache c : caches) {
+            if (c != requester) {
+                c.snoopInvalidate(tag);
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package simulator.cache;
+
+import java.util.Arrays;
+
+/**
+ * First in, first out: evict the way that was filled longest ago.
+ *
+ * Ways are filled in order and each fill replaces the oldest, so the oldest
+ * way is always the one after the most recent fill: one pointer per set.
+ */
+final class FifoPolicy implements ReplacementPolicy {
+
+    private final int ways;
+    private final int[] oldest;
+
+    FifoPolicy(int sets, int ways) {
+        this.ways = ways;
+        this.oldest = new int[sets];
+    }
+
+    @Override
+    public int victim(int set, int block) {
+        return oldest[set];
+    }
+
+    @Override
+    public void onFill(int set, int way, int block) {
+        oldest[set] = way + 1 == ways ? 0 : way + 1;
+    }
+
+    @Override
+    public void onHit(int set, int way) {
+        // insertion order only
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(oldest, 0);
+    }
+}
@@ -0,0 +1,99 @@
+package simulator.cache;
+
+import java.util.Arrays;
+
+/**
+ * A set of doubly linked lists over integer node ids, stored in int arrays.
+ *
+ * Each node is on at most one list at a time. Every operation is O(1) and
+ * nothing is allocated after construction, so replacement policies can use
+ * it on every cache access.
+ */
+final class IndexLists {
+
+    static final int NONE = -1;
+
+    private final int[] prev;
+    private final int[] next;
+    private final int[] owner;  // list holding the node, or NONE
+    private final int[] head;   // most recently added
+    private final int[] tail;   // least recently added
+    private final int[] size;
+
+    /**
+     * @param nodeCount number of node ids (0..nodeCount-1)
+     * @param listCount number of lists (0..listCount-1)
+     */
+    IndexLists(int nodeCount, int listCount) {
+        prev = new int[nodeCount];
+        next = new int[nodeCount];
+        owner = new int[nodeCount];
+        head = new int[listCount];
+        tail = new int[listCount];
+        size = new int[listCount];
+        clear();
+    }
+
+    /**
+     * Remove every node from every list.
+     */
+    void clear() {
+        Arrays.fill(owner, NONE);
+        Arrays.fill(head, NONE);
+        Arrays.fill(tail, NONE);
+        Arrays.fill(size, 0);
+    }
+
+    /**
+     * Put a node at the head of a list, first removing it from any list.
+     */
+    void addFirst(int list, int node) {
+        remove(node);
+        prev[node] = NONE;
+        next[node] = head[list];
+        if (head[list] != NONE) {
+            prev[head[list]] = node;
+        } else {
+            tail[list] = node;
+        }
+        head[list] = node;
+        owner[node] = list;
+        size[list]++;
+    }
+
+    /**
+     * Take a node off its list. Nodes on no list are ignored.
+     */
+    void remove(int node) {
+        int list = owner[node];
+        if (list == NONE) {
+            return;
+        }
+        if (prev[node] != NONE) {
+            next[prev[node]] = next[node];
+        } else {
+            head[list] = next[node];
+        }
+        if (next[node] != NONE) {
+            prev[next[node]] = prev[node];
+        } else {
+            tail[list] = prev[node];
+        }
+        owner[node] = NONE;
+        size[list]--;
+    }
+
+    /** @return tail node of the list, or NONE if it is empty */
+    int last(int list) {
+        return tail[list];
+    }
+
+    /** @return list holding the node, or NONE */
+    int listOf(int node) {
+        return owner[node];
+    }
+
+    int size(int list) {
+        return size[list];
+    }
+}
@@ -0,0 +1,113 @@
+package simulator.cache;
+
+/**
+ * Least frequently used: evict the way with the fewest accesses since it
+ * was filled; ties go to the way accessed longest ago.
+ *
+ * Each set keeps its ways in a binary min-heap on (count, last access), with
+ * a position index so an access can re-sort its way in O(log ways). The
+ * victim is the heap root.
+ */
+final class LfuPolicy implements ReplacementPolicy {
+
+    private final int ways;
+    private final int[] heap;       // per set: heap slot -> way
+    private final int[] slotOf;     // per set: way -> heap slot
+    private final long[] count;     // per line
+    private final long[] lastUse;   // per line
+    private long clock = 0L;
+
+    LfuPolicy(int sets, int ways) {
+        this.ways = ways;
+        this.heap = new int[sets * ways];
+        this.slotOf = new int[sets * ways];
+        this.count = new long[sets * ways];
+        this.lastUse = new long[sets * ways];
+        reset();
+    }
+
+    @Override
+    public int victim(int set, int block) {
+        return heap[set * ways];
+    }
+
+    @Override
+    public void onFill(int set, int way, int block) {
+        int line = set * ways + way;
+        count[line] = 1L;
+        lastUse[line] = ++clock;
+        int slot = siftUp(set, slotOf[line]);
+        siftDown(set, slot);
+    }
+
+    @Override
+    public void onHit(int set, int way) {
+        int line = set * ways + way;
+        count[line]++;
+        lastUse[line] = ++clock;
+        siftDown(set, slotOf[line]);
+    }
+
+    @Override
+    public void reset() {
+        for (int line = 0; line < heap.length; line++) {
+            heap[line] = line % ways;
+            slotOf[line] = line % ways;
+            count[line] = 0L;
+            lastUse[line] = 0L;
+        }
+        clock = 0L;
+    }
+
+    /* ==========================
+     * Helpers
+     * ========================== */
+
+    private boolean less(int set, int wayA, int wayB) {
+        int a = set * ways + wayA;
+        int b = set * ways + wayB;
+        return count[a] != count[b] ? count[a] < count[b] : lastUse[a] < lastUse[b];
+    }
+
+    private int siftUp(int set, int slot) {
+        int base = set * ways;
+        int way = heap[base + slot];
+        while (slot > 0) {
+            int parent = (slot - 1) >> 1;
+            int parentWay = heap[base + parent];
+            if (!less(set, way, parentWay)) {
+                break;
+            }
+            place(base, slot, parentWay);
+            slot = parent;
+        }
+        place(base, slot, way);
+        return slot;
+    }
+
+    private void siftDown(int set, int slot) {
+        int base = set * ways;
+        int way = heap[base + slot];
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= ways) {
+                break;
+            }
+            if (child + 1 < ways && less(set, heap[base + child + 1], heap[base + child])) {
+                child++;
+            }
+            int childWay = heap[base + child];
+            if (!less(set, childWay, way)) {
+                break;
+            }
+            place(base, slot, childWay);
+            slot = child;
+        }
+        place(base, slot, way);
+    }
+
+    private void place(int base, int slot, int way) {
+        heap[base + slot] = way;
+        slotOf[base + way] = slot;
+    }
+}
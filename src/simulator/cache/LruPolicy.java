@@ -0,0 +1,38 @@
+package simulator.cache;
+
+/**
+ * Least recently used: evict the way whose last hit or fill is oldest.
+ *
+ * Each set keeps its ways on a recency list (most recent at the head), so
+ * an access is a move-to-front and the victim is the tail.
+ */
+final class LruPolicy implements ReplacementPolicy {
+
+    private final int ways;
+    private final IndexLists recency;   // node = set * ways + way, list = set
+
+    LruPolicy(int sets, int ways) {
+        this.ways = ways;
+        this.recency = new IndexLists(sets * ways, sets);
+    }
+
+    @Override
+    public int victim(int set, int block) {
+        return recency.last(set) - set * ways;
+    }
+
+    @Override
+    public void onFill(int set, int way, int block) {
+        recency.addFirst(set, set * ways + way);
+    }
+
+    @Override
+    public void onHit(int set, int way) {
+        recency.addFirst(set, set * ways + way);
+    }
+
+    @Override
+    public void reset() {
+        recency.clear();
+    }
+}
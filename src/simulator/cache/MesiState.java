@@ -0,0 +1,28 @@
+package simulator.cache;
+
+/**
+ * MESI coherence state of a cache line. Only maintained for caches on a
+ * CoherenceBus; other caches fill lines as EXCLUSIVE and never change it.
+ *
+ * - MODIFIED:  only copy, may hold words memory has not seen (write-back)
+ * - EXCLUSIVE: only copy, same as memory; a store needs no bus transaction
+ * - SHARED:    other caches may hold it; a store must invalidate them first
+ * - INVALID:   line holds nothing
+ */
+public enum MesiState {
+    MODIFIED("M"),
+    EXCLUSIVE("E"),
+    SHARED("S"),
+    INVALID("I");
+
+    private final String label;
+
+    MesiState(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
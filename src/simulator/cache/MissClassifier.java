@@ -0,0 +1,105 @@
+package simulator.cache;
+
+import java.util.Arrays;
+
+/**
+ * Sorts a cache's demand misses into the "3C" classes by running two shadow
+ * caches next to it:
+ *  - an infinite cache (every block ever referenced): a miss on a block it
+ *    has never seen is compulsory
+ *  - a fully associative LRU cache with the same number of lines: a miss
+ *    that also misses there is a capacity miss, one that hits there is a
+ *    conflict miss (caused by the mapping or the replacement policy)
+ *
+ * For a cache on a CoherenceBus, a miss on a block another core's store
+ * invalidated here is counted as a fourth class, coherence, instead.
+ *
+ * Shadows hold block numbers only and are updated on every demand access
+ * in O(1).
+ */
+final class MissClassifier {
+
+    private static final int RESIDENT = 0;
+
+    private final int lineCount;
+    private final boolean[] seen;       // infinite shadow, per block
+    private final boolean[] lost;       // per block: invalidated by the bus since the last access
+    private final IndexLists shadow;    // fully associative LRU shadow, most recent first
+    private long compulsory = 0L;
+    private long capacity = 0L;
+    private long conflict = 0L;
+    private long coherence = 0L;
+
+    MissClassifier(int lineCount, int blockCount) {
+        this.lineCount = lineCount;
+        this.seen = new boolean[blockCount];
+        this.lost = new boolean[blockCount];
+        this.shadow = new IndexLists(blockCount, 1);
+    }
+
+    /**
+     * Record a demand access and, if the real cache missed, classify it.
+     *
+     * @param block block number accessed
+     * @param miss  true if the real cache missed
+     */
+    void access(int block, boolean miss) {
+        boolean shadowHit = shadow.listOf(block) == RESIDENT;
+        if (miss) {
+            if (!seen[block]) {
+                compulsory++;
+            } else if (lost[block]) {
+                coherence++;
+            } else if (!shadowHit) {
+                capacity++;
+            } else {
+                conflict++;
+            }
+        }
+        seen[block] = true;
+        lost[block] = false;
+        shadow.addFirst(RESIDENT, block);
+        if (shadow.size(RESIDENT) > lineCount) {
+            shadow.remove(shadow.last(RESIDENT));
+        }
+    }
+
+    /**
+     * The bus invalidated this cache's copy of a block: its next miss is a
+     * coherence miss.
+     *
+     * @param block block number invalidated
+     */
+    void invalidated(int block) {
+        lost[block] = true;
+    }
+
+    long getCompulsory() {
+        return compulsory;
+    }
+
+    long getCapacity() {
+        return capacity;
+    }
+
+    long getConflict() {
+        return conflict;
+    }
+
+    long getCoherence() {
+        return coherence;
+    }
+
+    /**
+     * Forget all history and counts (the cache has been cleared).
+     */
+    void reset() {
+        Arrays.fill(seen, false);
+        Arrays.fill(lost, false);
+        shadow.clear();
+        compulsory = 0L;
+        capacity = 0L;
+        conflict = 0L;
+        coherence = 0L;
+    }
+}
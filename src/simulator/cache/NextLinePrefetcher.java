@@ -0,0 +1,29 @@
+package simulator.cache;
+
+/**
+ * Tagged next-line prefetch: a miss on block b, or the first use of a
+ * prefetched block b, prefetches block b + 1. A sequential stream
+ * (straight-line instruction fetch, array copies) then stays one block
+ * ahead of the program after its first miss.
+ */
+final class NextLinePrefetcher implements Prefetcher {
+
+    private final int blockSize;
+
+    NextLinePrefetcher(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public int onAccess(int pc, int address, boolean miss, boolean firstUse) {
+        if (!miss && !firstUse) {
+            return -1;
+        }
+        return (address & -blockSize) + blockSize;
+    }
+
+    @Override
+    public void reset() {
+        // no history
+    }
+}
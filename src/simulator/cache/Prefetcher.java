@@ -0,0 +1,67 @@
+package simulator.cache;
+
+/**
+ * Hardware prefetcher in front of a Cache: watches demand accesses and
+ * names a block to load before it is asked for.
+ *
+ * Calls from the Cache, after each demand read or write:
+ *  - onAccess(pc, address, miss, firstUse) returns an address to prefetch
+ *    or -1. The Cache drops addresses that are out of range or already
+ *    cached, so prefetchers need not check.
+ *
+ * "pc" is the address of the instruction making a data access, or -1 when
+ * it is not known (instruction fetches, fills for an upper cache, console
+ * Load), so per-instruction prefetchers can tell access streams apart.
+ */
+public interface Prefetcher {
+
+    /**
+     * A demand access has been handled.
+     *
+     * @param pc        instruction making the access, or -1
+     * @param address   accessed address
+     * @param miss      true if the access missed
+     * @param firstUse  true if it was the first use of a prefetched line
+     * @return          address to prefetch, or -1 for none
+     */
+    int onAccess(int pc, int address, boolean miss, boolean firstUse);
+
+    /**
+     * Forget all history (the cache has been cleared).
+     */
+    void reset();
+
+    /**
+     * Selectable prefetchers.
+     */
+    enum Kind {
+        NONE("No prefetch"),
+        NEXT_LINE("Next-line"),
+        STRIDE("Stride");
+
+        private final String label;
+
+        Kind(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Build a prefetcher for the given cache organisation.
+         *
+         * @param config    block size
+         * @return          new prefetcher with empty history, or null for NONE
+         */
+        public Prefetcher create(CacheConfig config) {
+            return switch (this) {
+                case NONE -> null;
+                case NEXT_LINE -> new NextLinePrefetcher(config.getBlockSize());
+                case STRIDE -> new StridePrefetcher(config.getBlockSize());
+            };
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+}
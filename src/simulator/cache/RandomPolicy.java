@@ -0,0 +1,40 @@
+package simulator.cache;
+
+import java.util.Random;
+
+/**
+ * Random replacement from a seeded generator, so runs are repeatable.
+ * Clearing the cache restarts the sequence from the seed.
+ */
+final class RandomPolicy implements ReplacementPolicy {
+
+    private final int ways;
+    private final long seed;
+    private final Random random;
+
+    RandomPolicy(int ways, long seed) {
+        this.ways = ways;
+        this.seed = seed;
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public int victim(int set, int block) {
+        return random.nextInt(ways);
+    }
+
+    @Override
+    public void onFill(int set, int way, int block) {
+        // no history
+    }
+
+    @Override
+    public void onHit(int set, int way) {
+        // no history
+    }
+
+    @Override
+    public void reset() {
+        random.setSeed(seed);
+    }
+}
@@ -0,0 +1,107 @@
+package simulator.cache;
+
+/**
+ * Chooses which way of a full set the Cache evicts.
+ *
+ * The Cache fills a set's invalid ways itself (in way order) and only asks
+ * the policy for a victim when every way of the set is valid. It reports
+ * every hit and fill so the policy can keep its bookkeeping up to date.
+ *
+ * Calls from the Cache, for one access:
+ *  - hit:  onHit(set, way)
+ *  - miss: victim(set, block) if the set is full, then onFill(set, way, block)
+ *  - coherence invalidation (multi-core only): onInvalidate(set, way)
+ *
+ * "block" is the memory block number (address / blockSize), which is unique
+ * across sets; policies that remember evicted blocks (ARC) key on it.
+ *
+ * Implementations keep per-access work O(1) or O(log ways).
+ */
+public interface ReplacementPolicy {
+
+    /**
+     * Pick the way to evict from a full set.
+     *
+     * @param set   set index
+     * @param block block about to be loaded
+     * @return      way index, 0..ways-1
+     */
+    int victim(int set, int block);
+
+    /**
+     * A block has been loaded into a way (after an eviction or into an
+     * invalid way).
+     *
+     * @param set   set index
+     * @param way   way that now holds the block
+     * @param block block number
+     */
+    void onFill(int set, int way, int block);
+
+    /**
+     * A read or write hit the given way.
+     *
+     * @param set   set index
+     * @param way   way that hit
+     */
+    void onHit(int set, int way);
+
+    /**
+     * The block in a way was dropped on its own (another core's store, see
+     * CoherenceBus); the way is filled again before the policy is next
+     * asked for a victim in this set. Policies that only track ways need
+     * not react.
+     *
+     * @param set   set index
+     * @param way   way that no longer holds its block
+     */
+    default void onInvalidate(int set, int way) {
+    }
+
+    /**
+     * Forget all history (the cache has been cleared).
+     */
+    void reset();
+
+    /**
+     * Selectable replacement policies.
+     */
+    enum Kind {
+        FIFO("FIFO"),
+        LRU("LRU"),
+        PLRU("Tree PLRU"),
+        RANDOM("Random"),
+        LFU("LFU"),
+        ARC("ARC");
+
+        private final String label;
+
+        Kind(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Build a policy sized for the given cache organisation.
+         *
+         * @param config    line count, associativity, block size and seed
+         * @return          new policy with empty history
+         */
+        public ReplacementPolicy create(CacheConfig config) {
+            int sets = config.getSetCount();
+            int ways = config.getWays();
+            return switch (this) {
+                case FIFO -> new FifoPolicy(sets, ways);
+                case LRU -> new LruPolicy(sets, ways);
+                case PLRU -> new TreePlruPolicy(sets, ways);
+                case RANDOM -> new RandomPolicy(ways, config.getRandomSeed());
+                case LFU -> new LfuPolicy(sets, ways);
+                case ARC -> new ArcPolicy(sets, ways, config.getBlockCount());
+            };
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package simulator.cache;
+
+import java.util.Arrays;
+
+/**
+ * Per-instruction stride prefetch (a reference prediction table).
+ *
+ * Each data-accessing instruction gets a table entry, indexed by its
+ * address, holding the last address it touched and the stride between its
+ * last two accesses. Once the same non-zero stride is seen twice in a row
+ * (e.g. LDR r,1,0 inside a loop while X1 steps through an array), each
+ * access prefetches the address one block ahead along the stride:
+ * address + stride * max(1, blockSize / |stride|).
+ *
+ * Accesses without an instruction address (pc = -1) are ignored.
+ */
+final class StridePrefetcher implements Prefetcher {
+
+    static final int TABLE_SIZE = 64;   // entries, direct-mapped on pc
+
+    private final int blockSize;
+    private final int[] tag = new int[TABLE_SIZE];          // pc owning the entry, -1 if free
+    private final int[] lastAddress = new int[TABLE_SIZE];
+    private final int[] stride = new int[TABLE_SIZE];
+    private final boolean[] confirmed = new boolean[TABLE_SIZE];
+
+    StridePrefetcher(int blockSize) {
+        this.blockSize = blockSize;
+        reset();
+    }
+
+    @Override
+    public int onAccess(int pc, int address, boolean miss, boolean firstUse) {
+        if (pc < 0) {
+            return -1;
+        }
+        int entry = pc & (TABLE_SIZE - 1);
+        if (tag[entry] != pc) {
+            tag[entry] = pc;
+            lastAddress[entry] = address;
+            stride[entry] = 0;
+            confirmed[entry] = false;
+            return -1;
+        }
+
+        int delta = address - lastAddress[entry];
+        lastAddress[entry] = address;
+        confirmed[entry] = delta != 0 && delta == stride[entry];
+        stride[entry] = delta;
+        if (!confirmed[entry]) {
+            return -1;
+        }
+        return address + delta * Math.max(1, blockSize / Math.abs(delta));
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(tag, -1);
+        Arrays.fill(lastAddress, 0);
+        Arrays.fill(stride, 0);
+        Arrays.fill(confirmed, false);
+    }
+}
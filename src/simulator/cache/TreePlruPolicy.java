@@ -0,0 +1,75 @@
+package simulator.cache;
+
+import java.util.Arrays;
+
+/**
+ * Tree pseudo-LRU: one bit per node of a binary tree over each set's ways.
+ *
+ * - Each bit points to the half of its subtree that was used less recently.
+ * - An access flips the bits on the path to its way to point away from it.
+ * - The victim is found by following the bits from the root.
+ *
+ * Both are O(log ways). When ways is not a power of two the tree is sized
+ * up and leaves past the last way are never chosen.
+ */
+final class TreePlruPolicy implements ReplacementPolicy {
+
+    private final int ways;
+    private final int leaves;       // ways rounded up to a power of two
+    private final boolean[] right;  // per set: nodes 1..leaves-1, true = victim is on the right
+
+    TreePlruPolicy(int sets, int ways) {
+        this.ways = ways;
+        this.leaves = Integer.highestOneBit(ways) == ways ? ways : Integer.highestOneBit(ways) << 1;
+        this.right = new boolean[sets * leaves];
+    }
+
+    @Override
+    public int victim(int set, int block) {
+        int base = set * leaves;
+        int node = 1;
+        int first = 0;
+        int span = leaves;
+        while (span > 1) {
+            int half = span >> 1;
+            if (right[base + node] && first + half < ways) {
+                node = 2 * node + 1;
+                first += half;
+            } else {
+                node = 2 * node;
+            }
+            span = half;
+        }
+        return first;
+    }
+
+    @Override
+    public void onFill(int set, int way, int block) {
+        touch(set, way);
+    }
+
+    @Override
+    public void onHit(int set, int way) {
+        touch(set, way);
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(right, false);
+    }
+
+    /* ==========================
+     * Helpers
+     * ========================== */
+
+    private void touch(int set, int way) {
+        int base = set * leaves;
+        int node = leaves + way;
+        while (node > 1) {
+            int parent = node >> 1;
+            // used the left child -> next victim is on the right, and vice versa
+            right[base + parent] = (node & 1) == 0;
+            node = parent;
+        }
+    }
+}
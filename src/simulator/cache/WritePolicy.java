@@ -0,0 +1,29 @@
+package simulator.cache;
+
+/**
+ * How Cache.write treats backing memory and write misses.
+ *
+ * - WRITE_THROUGH:     memory is written on every store; a miss allocates
+ *                      a line (the original behaviour)
+ * - WRITE_NO_ALLOCATE: memory is written on every store; a miss does not
+ *                      allocate, so only reads bring blocks in
+ * - WRITE_BACK:        stores only update the cache and mark the word
+ *                      dirty; dirty words reach memory when their line is
+ *                      evicted or on Cache.flush(). A miss allocates.
+ */
+public enum WritePolicy {
+    WRITE_THROUGH("Write-through"),
+    WRITE_NO_ALLOCATE("Write-through, no allocate"),
+    WRITE_BACK("Write-back");
+
+    private final String label;
+
+    WritePolicy(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -1,16 +1,28 @@
 package simulator.control;
 
+import simulator.io.InputQueue;
+import simulator.io.PrinterDevice;
 import simulator.io.ProgramLoader;
 import simulator.machine.MachineState;
 import simulator.machine.Memory;
+import simulator.machine.MemoryLevel;
 import javax.swing.*;
 import java.awt.Component;
 import java.io.File;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.util.function.Consumer;
+import simulator.cpu.BlockEngine;
 import simulator.cpu.CPU;
+import simulator.cpu.RunStatus;
+import simulator.cpu.StepResult;
 import java.util.function.Supplier;
 import simulator.cache.Cache;
+import simulator.cache.CacheConfig;
+import simulator.cache.Prefetcher;
+import simulator.cache.ReplacementPolicy;
+import simulator.trace.TraceRecorder;
 
 /**
  * Controller for the CSCI 6461 simulator.
@@ -38,13 +50,37 @@ public final class Controller {
     private final Consumer<String> setConsoleInputText;
     private final Consumer<String> appendPrinterOutput;
     private final ProgramLoader loader = new ProgramLoader();
+    // keyboard / card-reader input waiting to be read by IN
+    private final InputQueue consoleInput = new InputQueue();
+    // console printer; flushes to the GUI in chunks instead of per character
+    private final PrinterDevice printer = new PrinterDevice(this::showPrinted);
     private final Memory memory = new Memory();
     private final MachineState state = new MachineState();
-    private final CPU cpu;
+    private CPU cpu;   // rebuilt when switching between unified and split caches
+    private BlockEngine engine;   // drives the CPU in turbo Run; rebuilt with it
     private static final int RUN_DELAY_MS = 50; // delay in ms between steps in run mode
     private Timer runTimer;
+    private boolean traceSteps = true; // log every instruction while running
+    // Run speed: RUN_RATE_TIMED uses the Swing timer, anything else runs on
+    // a worker thread at that many instructions per second (0 = unlimited)
+    public static final long RUN_RATE_TIMED = -1L;
+    public static final long RUN_RATE_MAX = TurboRunner.UNLIMITED;
+    private long runRate = RUN_RATE_TIMED;
+    private TurboRunner turboRunner;
+    private Runnable afterTurboStop;   // Halt/Reset work deferred until the worker ends
+    // snapshot shown by the GUI while the turbo worker owns the live state
+    private final MachineState frameState = new MachineState();
     private final Runnable clearPrinterOutput;
-    private final Cache cache = new Cache(memory);
+    // unified cache, or the D-cache when split; icache is only used when split.
+    // Both sit on memory, or on the shared l2 when it is enabled (else null).
+    private Cache cache = new Cache(memory);
+    private Cache icache = new Cache(memory);
+    private Cache l2;
+    // shared second-level cache: 256 lines, 8-way, 4-word blocks, 10-cycle hit
+    private static final CacheConfig L2_CONFIG =
+            CacheConfig.setAssociative(256, 8).withBlockSize(4).withHitLatency(10);
+    private static final int VICTIM_BUFFER_LINES = 4;
+    private static final int CACHE_HISTORY = 8;     // recent accesses listed in the cache display
 
     /**
      * Cointroller construct that connects the simulator core to the GUI.
@@ -95,22 +131,29 @@ public final class Controller {
         // start from a clean machine state
         memory.clear();
         state.clear();
-        cache.clear();
+        clearCaches();
+        cache.setHistorySize(CACHE_HISTORY);
+        icache.setHistorySize(CACHE_HISTORY);
 
         // build the CPU with callbacks for keyboard/printer device I/O.
         this.cpu = new CPU(
                 cache,
                 state,
                 this::readNextConsoleChar,
-                this::writePrinterChar
+                printer::write
         );
+        this.engine = new BlockEngine(cpu);
     }
 
     /* ==========================
      * Expose model to GUI for refresh
      * ========================== */
 
-    public MachineState getState() { return state; }
+    /**
+     * State for the GUI to display. While turbo Run is active this is the
+     * latest published snapshot, not the state the worker is changing.
+     */
+    public MachineState getState() { return isTurboRunning() ? frameState : state; }
     public Memory getMemory() { return memory; }
 
     /** ==========================
@@ -124,6 +167,10 @@ public final class Controller {
      * - Parse file with ProgramLoader and log summary
      */
     public void handleIPL() {
+        if (isTurboRunning()) {
+            log.accept("[IPL] Ignored because RUN is active.\n");
+            return;
+        }
         log.accept("[IPL] Initial Program Load requested.\n");
 
         // user chooses file
@@ -153,53 +200,54 @@ public final class Controller {
         // Clear machine before loading
         memory.clear();
         state.clear();
-        cache.clear();
+        clearCaches();
 
         // parse the file
         try {
-            ProgramLoader.LoadFile parsed = loader.parse(file);
-
-            // write each record into memory
-            for (ProgramLoader.Record r : parsed.records) {
-                memory.write(r.address, r.word);
-            }
-
-            cache.clear();
+            // stream the records straight into memory
+            ProgramLoader.LoadFile parsed = loader.load(file, memory);
 
-            // set PC to first loaded address (good “start point”)
-            if (parsed.firstAddress >= 0) {
-                state.setPC(parsed.firstAddress);
-                state.setMAR(parsed.firstAddress); // common convenience
-            }
+            clearCaches();
 
             // show a dump of loaded words in the Cache Content text area (verification)
-            setCacheText.accept(cache.dump());
+            setCacheText.accept(cacheDump());
 
             log.accept("[IPL] Loaded " + parsed.recordsLoaded + " word(s) into memory.\n");
-            if (parsed.firstAddress >= 0) {
-                log.accept("[IPL] PC set to " + Memory.toOct6(parsed.firstAddress) + " (octal).\n");
-            }
 
-            Integer start = tryFindStartAddressFromListing(file);
-            if (start != null) {
+            // entry record written by the assembler (START, or its first
+            // instruction); files without one start at the first loaded word
+            int start = parsed.entryAddress >= 0 ? parsed.entryAddress : parsed.firstAddress;
+            if (start >= 0) {
                 state.setPC(start);
-                state.setMAR(start);
-                log.accept("[IPL] Start address from listing: PC <- " + Memory.toOct6(start) + "\n");
-            } else if (parsed.firstAddress >= 0) {
-                state.setPC(parsed.firstAddress);
-                state.setMAR(parsed.firstAddress);
-                log.accept("[IPL] Start address fallback: PC <- " + Memory.toOct6(parsed.firstAddress) + "\n");
+                state.setMAR(start); // common convenience
+                log.accept("[IPL] PC <- " + Memory.toOct6(start)
+                        + (parsed.entryAddress >= 0 ? " (entry point)" : " (first loaded word)") + "\n");
             }
 
             refreshUI.run();
         } catch (IOException ex) {
             log.accept("[IPL] ERROR reading file: " + ex.getMessage() + "\n");
+            discardPartialLoad();
         } catch (IllegalArgumentException ex) {
             log.accept("[IPL] ERROR parsing file: " + ex.getMessage() + "\n");
+            discardPartialLoad();
         } catch (RuntimeException ex) {
             log.accept("[IPL] ERROR loading memory: " + ex.getMessage() + "\n");
+            discardPartialLoad();
         }
     }
+
+    /**
+     * After a failed IPL: a text load file may have been partly stored, so
+     * clear memory and the caches rather than leave half a program to run.
+     */
+    private void discardPartialLoad() {
+        memory.clear();
+        clearCaches();
+        setCacheText.accept(cacheDump());
+        log.accept("[IPL] Memory cleared; no program loaded.\n");
+        refreshUI.run();
+    }
     
     /**
      * Sets a selected register from the operator "switch" inputs.
@@ -212,6 +260,10 @@ public final class Controller {
      * This avoids ambiguity when binary default is all zeros.
      */
     public void handleSetTarget(String target, String binaryText, String octalText) {
+        if (isTurboRunning()) {
+            log.accept("[SET] Ignored because RUN is active.\n");
+            return;
+        }
         int value = parseSwitchValue(binaryText, octalText);
 
         switch (target) {
@@ -233,7 +285,7 @@ public final class Controller {
                 log.accept("[SET] MAR <- " + Memory.toOct6(state.getMAR()) + "\n");
 
                 // show memory at MAR on console area
-                setCacheText.accept(cache.dump());
+                setCacheText.accept(cacheDump());
             }
             case "MBR" -> {
                 state.setMBR(value);
@@ -302,7 +354,7 @@ public final class Controller {
      */
     public void handleRun() {
         // Dd not start a second run loop if one is already active
-        if (runTimer != null && runTimer.isRunning()) {
+        if (isRunActive()) {
             log.accept("[RUN] Run loop is already active.\n");
             return;
         }
@@ -314,10 +366,17 @@ public final class Controller {
         }
 
         log.accept("[RUN] Run requested.\n");
+        submitConsoleInput();
+
+        if (runRate != RUN_RATE_TIMED) {
+            startTurbo();
+            return;
+        }
+
         log.accept("[RUN] Starting timed fetch-decode-execute loop.\n");
 
         runTimer = new Timer(RUN_DELAY_MS, e -> {
-            String msg = executeOneStep();
+            StepResult result = executeOneStep(traceSteps);
 
             // stop automatically once the CPU halts
             if (cpu.isHalted()) {
@@ -328,7 +387,7 @@ public final class Controller {
 
             // If the CPU is waiting for keyboard/card input, stop the timer
             // so the user can type into the console input field and press Run again
-            if (msg.contains("waiting/no input")) {
+            if (result.isWaitingForInput()) {
                 stopRunTimer();
                 log.accept("[RUN] Execution paused waiting for input.\n");
             }
@@ -344,19 +403,249 @@ public final class Controller {
      * conflicting execution modes.
      */
     public void handleStep() {
-        if (runTimer != null && runTimer.isRunning()) {
+        if (isRunActive()) {
             log.accept("[STEP] Ignored because RUN is active.\n");
             return;
         }
-        executeOneStep();
+        executeOneStep(true);
+    }
+
+    /**
+     * Start or stop copying printer output to a file.
+     *
+     * @param enabled   true to ask for a file and start copying, false to stop
+     * @return          true if printer output is being copied afterwards
+     */
+    public boolean handlePrinterLog(boolean enabled) {
+        if (!enabled) {
+            printer.setTee(null);
+            reportPrinterLogError();
+            log.accept("[PRINTER] Stopped copying output to file.\n");
+            return false;
+        }
+
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Copy Printer Output To");
+        if (chooser.showSaveDialog(parent) != JFileChooser.APPROVE_OPTION) {
+            log.accept("[PRINTER] File selection cancelled.\n");
+            return false;
+        }
+
+        File file = chooser.getSelectedFile();
+        try {
+            printer.setTee(new BufferedWriter(new FileWriter(file)));
+        } catch (IOException ex) {
+            log.accept("[PRINTER] ERROR opening file: " + ex.getMessage() + "\n");
+            return false;
+        }
+        log.accept("[PRINTER] Copying output to " + file.getAbsolutePath() + "\n");
+        return true;
+    }
+
+    /**
+     * Start or stop recording the CPU's memory address trace to a file, for
+     * offline study with simulator.trace.CacheSweep. Refused while running.
+     *
+     * @param enabled   true to ask for a file and start recording, false to stop
+     * @return          true if a trace is being recorded afterwards
+     */
+    public boolean handleTraceRecording(boolean enabled) {
+        TraceRecorder current = cpu.getTraceRecorder();
+        if (isRunActive()) {
+            log.accept("[TRACE] Trace recording unchanged because RUN is active.\n");
+            return current != null;
+        }
+        if (!enabled) {
+            if (current != null) {
+                cpu.setTraceRecorder(null);
+                try {
+                    current.close();
+                    log.accept("[TRACE] Stopped; " + current.getCount() + " accesses recorded.\n");
+                } catch (IOException ex) {
+                    log.accept("[TRACE] ERROR writing trace: " + ex.getMessage() + "\n");
+                }
+            }
+            return false;
+        }
+        if (current != null) {
+            return true;
+        }
+
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Record Memory Trace To");
+        if (chooser.showSaveDialog(parent) != JFileChooser.APPROVE_OPTION) {
+            log.accept("[TRACE] File selection cancelled.\n");
+            return false;
+        }
+
+        File file = chooser.getSelectedFile();
+        try {
+            cpu.setTraceRecorder(new TraceRecorder(file.toPath()));
+        } catch (IOException ex) {
+            log.accept("[TRACE] ERROR opening file: " + ex.getMessage() + "\n");
+            return false;
+        }
+        log.accept("[TRACE] Recording memory accesses to " + file.getAbsolutePath() + "\n");
+        return true;
+    }
+
+    /**
+     * Choose the Run speed. Takes effect the next time Run is pressed.
+     *
+     * @param instructionsPerSecond RUN_RATE_TIMED for the timed step loop,
+     *                              RUN_RATE_MAX for full speed, or a target rate
+     * @throws IllegalArgumentException for other negative values
+     */
+    public void setRunRate(long instructionsPerSecond) {
+        if (instructionsPerSecond < 0 && instructionsPerSecond != RUN_RATE_TIMED) {
+            throw new IllegalArgumentException("Run rate cannot be negative: " + instructionsPerSecond);
+        }
+        runRate = instructionsPerSecond;
+    }
+
+    /**
+     * Turn per-instruction logging during Run on or off.
+     * Single Step always logs its instruction.
+     *
+     * @param enabled true to log every instruction while running
+     */
+    public void setTraceSteps(boolean enabled) {
+        traceSteps = enabled;
+    }
+
+    /**
+     * Switch between one unified cache and split instruction / data caches.
+     * Both caches are flushed and cleared; memory and registers are kept.
+     * Refused while running.
+     *
+     * @param split true for separate I- and D-caches
+     * @return      configuration in effect afterwards (the old one if refused)
+     */
+    public boolean setSplitCaches(boolean split) {
+        if (isRunActive()) {
+            log.accept("[CACHE] Cache configuration unchanged because RUN is active.\n");
+            return cpu.isSplitCache();
+        }
+        if (split == cpu.isSplitCache()) {
+            return split;
+        }
+
+        flushCaches();
+        rebuildCpu(split);
+        clearCaches();
+        log.accept(split
+                ? "[CACHE] Split instruction and data caches (caches cleared).\n"
+                : "[CACHE] Unified cache (caches cleared).\n");
+        setCacheText.accept(cacheDump());
+        return split;
+    }
+
+    /**
+     * Add or remove the shared second-level cache behind the L1 cache(s).
+     * The L1 caches are rebuilt on the new level below (same organisation)
+     * after all dirty words are written back; memory and registers are kept.
+     * Refused while running.
+     *
+     * @param enabled   true to put an L2 cache between the L1 cache(s) and memory
+     * @return          configuration in effect afterwards (the old one if refused)
+     */
+    public boolean setL2Cache(boolean enabled) {
+        if (isRunActive()) {
+            log.accept("[CACHE] Cache configuration unchanged because RUN is active.\n");
+            return l2 != null;
+        }
+        if (enabled == (l2 != null)) {
+            return enabled;
+        }
+
+        rebuildCaches(enabled, cache.getConfig().getVictimEntries());
+        log.accept(enabled
+                ? "[CACHE] Shared L2 cache enabled: " + l2.getConfig().describe() + ".\n"
+                : "[CACHE] L2 cache removed.\n");
+        setCacheText.accept(cacheDump());
+        return enabled;
+    }
+
+    /**
+     * Add or remove a victim buffer behind each L1 cache. The L1 caches are
+     * rebuilt (empty) after all dirty words are written back; memory and
+     * registers are kept. Refused while running.
+     *
+     * @param enabled   true for a VICTIM_BUFFER_LINES-line victim buffer
+     * @return          configuration in effect afterwards (the old one if refused)
+     */
+    public boolean setVictimBuffer(boolean enabled) {
+        boolean current = cache.getConfig().getVictimEntries() > 0;
+        if (isRunActive()) {
+            log.accept("[CACHE] Cache configuration unchanged because RUN is active.\n");
+            return current;
+        }
+        if (enabled == current) {
+            return enabled;
+        }
+
+        rebuildCaches(l2 != null, enabled ? VICTIM_BUFFER_LINES : 0);
+        log.accept(enabled
+                ? "[CACHE] " + VICTIM_BUFFER_LINES + "-line victim buffer added (caches cleared).\n"
+                : "[CACHE] Victim buffer removed (caches cleared).\n");
+        setCacheText.accept(cacheDump());
+        return enabled;
+    }
+
+    /**
+     * Choose the cache replacement policy. The cache is cleared so the new
+     * policy starts cold; memory is not touched. Refused while running.
+     *
+     * @param kind  requested policy
+     * @return      policy in effect afterwards (the old one if refused)
+     */
+    public ReplacementPolicy.Kind setCacheReplacement(ReplacementPolicy.Kind kind) {
+        if (isRunActive()) {
+            log.accept("[CACHE] Replacement policy unchanged because RUN is active.\n");
+            return cache.getConfig().getReplacement();
+        }
+        cache.setReplacement(kind);
+        icache.setReplacement(kind);
+        if (l2 != null) {
+            l2.setReplacement(kind);
+        }
+        log.accept("[CACHE] Replacement policy: " + kind + " (cache cleared).\n");
+        setCacheText.accept(cacheDump());
+        return kind;
+    }
+
+    /**
+     * Choose the prefetcher of the L1 cache(s). They are cleared so hit
+     * rates with and without prefetch start from the same cold cache; memory
+     * is not touched. Refused while running.
+     *
+     * @param kind  requested prefetcher
+     * @return      prefetcher in effect afterwards (the old one if refused)
+     */
+    public Prefetcher.Kind setCachePrefetcher(Prefetcher.Kind kind) {
+        if (isRunActive()) {
+            log.accept("[CACHE] Prefetcher unchanged because RUN is active.\n");
+            return cache.getConfig().getPrefetcher();
+        }
+        cache.setPrefetcher(kind);
+        icache.setPrefetcher(kind);
+        log.accept("[CACHE] Prefetcher: " + kind + " (cache cleared).\n");
+        setCacheText.accept(cacheDump());
+        return kind;
     }
 
     /**
      * Halt CPU execution and stop the active run loop.
      */
     public void handleHalt() {
+        if (isTurboRunning()) {
+            afterTurboStop = this::handleHalt;
+            turboRunner.requestStop();
+            return;
+        }
         stopRunTimer();
         cpu.halt();
+        printer.flush();
         log.accept("[HALT] Halt requested.\n");
         log.accept("[HALT] CPU halted and run loop stopped.\n");
         refreshUI.run();
@@ -369,19 +658,30 @@ public final class Controller {
      * clears the cache/debug display, and re-enables future stepping/running.
      */
     public void handleReset() {
+        if (isTurboRunning()) {
+            afterTurboStop = this::handleReset;
+            turboRunner.requestStop();
+            return;
+        }
         stopRunTimer();
         memory.clear();
         state.clear();
-        cache.clear();
+        clearCaches();
         setCacheText.accept("");
+        printer.discard();
         clearPrinterOutput.run();
         setConsoleInputText.accept("");
+        consoleInput.clear();
         cpu.reset();
         log.accept("[RESET] Cleared registers, memory, and printer output.\n");
         refreshUI.run();
     }
 
     public void handleLoad() {
+        if (isTurboRunning()) {
+            log.accept("[LOAD] Ignored because RUN is active.\n");
+            return;
+        }
         int mar = state.getMAR();
         int word = cache.read(mar);
         state.setMBR(word);
@@ -390,7 +690,7 @@ public final class Controller {
                 " WORD=" + Memory.toOct6(word) + "\n");
 
         // show memory contents at MAR as required by deliverable
-        setCacheText.accept(cache.dump());
+        setCacheText.accept(cacheDump());
         refreshUI.run();
     }
 
@@ -398,6 +698,10 @@ public final class Controller {
      * Load the memory word at the current MAR into MBR, then advance MAR by one.
      */
     public void handleLoadPlus() {
+        if (isTurboRunning()) {
+            log.accept("[LOAD+] Ignored because RUN is active.\n");
+            return;
+        }
         handleLoad();
         state.setMAR(state.getMAR() + 1); // advance MAR to the next memory location
         log.accept("[LOAD+] MAR incremented to " + Memory.toOct6(state.getMAR()) + "\n");
@@ -408,6 +712,10 @@ public final class Controller {
      * Store the contents of MBR into memory at the address currently held in MAR.
      */
     public void handleStore() {
+        if (isTurboRunning()) {
+            log.accept("[STORE] Ignored because RUN is active.\n");
+            return;
+        }
         int mar = state.getMAR();
         int word = state.getMBR();
         memory.write(mar, word);
@@ -416,7 +724,7 @@ public final class Controller {
                 " WORD=" + Memory.toOct6(word) + "\n");
 
         // Show memory contents at MAR
-        setCacheText.accept(cache.dump());
+        setCacheText.accept(cacheDump());
         refreshUI.run();
     }
 
@@ -424,6 +732,10 @@ public final class Controller {
      * Store the contents of MBR into memory at MAR, then advance MAR by one.
      */
     public void handleStorePlus() {
+        if (isTurboRunning()) {
+            log.accept("[STORE+] Ignored because RUN is active.\n");
+            return;
+        }
         handleStore();
         state.setMAR(state.getMAR() + 1); // advance MAR to the next memory location
         log.accept("[STORE+] MAR incremented to " + Memory.toOct6(state.getMAR()) + "\n");
@@ -441,10 +753,190 @@ public final class Controller {
      * of throwing an exception.
      */
     private void refreshCacheAtMAR() {
-        setCacheText.accept(cache.dump());
+        setCacheText.accept(cacheDump());
+    }
+
+    /**
+     * Cache display text: the unified cache, or every cache (I, D, L2) with
+     * the average access time the CPU sees across its L1 caches.
+     */
+    private String cacheDump() {
+        boolean split = cpu.isSplitCache();
+        if (!split && l2 == null) {
+            return cache.dump();
+        }
+
+        StringBuilder sb = new StringBuilder();
+        long accesses = cache.getAccessCount();
+        long cycles = cache.getCycleCount();
+        if (split) {
+            accesses += icache.getAccessCount();
+            cycles += icache.getCycleCount();
+            sb.append("---- Instruction cache ----\n").append(icache.dump())
+              .append("---- Data cache ----\n").append(cache.dump());
+        } else {
+            sb.append("---- L1 cache ----\n").append(cache.dump());
+        }
+        if (l2 != null) {
+            sb.append("---- L2 cache ----\n").append(l2.dump());
+        }
+        sb.append("[MEMORY] CPU accesses=").append(accesses)
+          .append(" cycles=").append(cycles)
+          .append(" AMAT=").append(String.format("%.2f", accesses == 0L ? 0.0 : (double) cycles / accesses))
+          .append('\n');
+        return sb.toString();
+    }
+
+    /**
+     * Empty all caches and reset their statistics (memory is not touched).
+     */
+    private void clearCaches() {
+        cache.clear();
+        icache.clear();
+        if (l2 != null) {
+            l2.clear();
+        }
+    }
+
+    /**
+     * Write dirty words down the hierarchy: L1 caches first, then the L2.
+     */
+    private void flushCaches() {
+        cache.flush();
+        icache.flush();
+        if (l2 != null) {
+            l2.flush();
+        }
+    }
+
+    /**
+     * Write back all dirty words and build new, empty L1 cache(s), and L2 if
+     * requested, keeping the L1 organisation apart from the victim buffer.
+     * The CPU is rebuilt on them with the same unified/split choice.
+     */
+    private void rebuildCaches(boolean withL2, int victimEntries) {
+        flushCaches();
+        boolean split = cpu.isSplitCache();
+        cache.detach();
+        icache.detach();
+        if (l2 != null) {
+            l2.detach();
+        }
+        l2 = withL2
+                ? new Cache(memory, L2_CONFIG.withReplacement(cache.getConfig().getReplacement()))
+                : null;
+        MemoryLevel below = withL2 ? l2 : memory;
+        cache = new Cache(below, cache.getConfig().withVictimBuffer(victimEntries));
+        icache = new Cache(below, icache.getConfig().withVictimBuffer(victimEntries));
+        cache.setHistorySize(CACHE_HISTORY);
+        icache.setHistorySize(CACHE_HISTORY);
+        rebuildCpu(split);
+    }
+
+    /**
+     * Replace the CPU (and its block engine) with one using the current
+     * caches, unified or split, keeping its halted state and trace recorder.
+     */
+    private void rebuildCpu(boolean split) {
+        boolean halted = cpu.isHalted();
+        TraceRecorder recorder = cpu.getTraceRecorder();
+        engine.detach();
+        cpu.detach();
+        cpu = new CPU(
+                split ? icache : cache,
+                cache,
+                state,
+                this::readNextConsoleChar,
+                printer::write
+        );
+        if (halted) {
+            cpu.halt();
+        }
+        cpu.setTraceRecorder(recorder);
+        engine = new BlockEngine(cpu);
     }
 
     
+    /**
+     * Start turbo Run: the CPU runs on a worker thread at runRate and the
+     * GUI is refreshed from snapshots at TurboRunner.FRAME_RATE_HZ.
+     */
+    private void startTurbo() {
+        log.accept("[RUN] Starting turbo run on a worker thread at "
+                + (runRate == RUN_RATE_MAX ? "full speed" : runRate + " instr/s") + ".\n");
+
+        frameState.copyFrom(state);
+        printer.setFlushOnNewline(false); // frames deliver printer output
+
+        turboRunner = new TurboRunner(cpu, engine, runRate, this::captureTurboFrame, this::turboFinished);
+        turboRunner.start();
+    }
+
+    /**
+     * Called on the worker between slices: copy everything the GUI shows so
+     * the EDT never reads state the worker is changing.
+     *
+     * @return update to apply on the EDT
+     */
+    private Runnable captureTurboFrame() {
+        MachineState snapshot = new MachineState();
+        snapshot.copyFrom(state);
+        String cacheText = cacheDump();
+        String printed = printer.drain();
+
+        return () -> {
+            frameState.copyFrom(snapshot);
+            setCacheText.accept(cacheText);
+            if (!printed.isEmpty()) {
+                appendPrinterOutput.accept(printed);
+            }
+            reportPrinterLogError();
+            refreshUI.run();
+        };
+    }
+
+    /**
+     * Called on the EDT once the turbo worker has ended.
+     *
+     * @param status why the CPU stopped, or null if Halt/Reset stopped it
+     */
+    private void turboFinished(RunStatus status) {
+        TurboRunner runner = turboRunner;
+        turboRunner = null;
+        printer.setFlushOnNewline(true);
+
+        long ms = runner.getElapsedNanos() / 1_000_000L;
+        String target = runner.getTargetRate() == RUN_RATE_MAX
+                ? "unlimited"
+                : runner.getTargetRate() + " instr/s";
+        log.accept("[RUN] Turbo executed " + runner.getExecuted() + " instruction(s) in " + ms + " ms"
+                + " (achieved " + Math.round(runner.getAchievedRate()) + " instr/s, target " + target + ").\n");
+
+        if (status == RunStatus.FAULT) {
+            log.accept("[FAULT] " + cpu.getLastFault() + "\n");
+        }
+        if (status == RunStatus.HALTED || status == RunStatus.FAULT) {
+            log.accept("[RUN] CPU halted. Run loop stopped.\n");
+        } else if (status == RunStatus.WAITING_FOR_INPUT) {
+            log.accept("[RUN] Execution paused waiting for input.\n");
+        }
+        refreshUI.run();
+
+        Runnable then = afterTurboStop;
+        afterTurboStop = null;
+        if (then != null) {
+            then.run();
+        }
+    }
+
+    private boolean isTurboRunning() {
+        return turboRunner != null && turboRunner.isRunning();
+    }
+
+    private boolean isRunActive() {
+        return (runTimer != null && runTimer.isRunning()) || isTurboRunning();
+    }
+
     /**
      * Stop the active run timer if it exists.
      */
@@ -457,14 +949,22 @@ public final class Controller {
     /**
      * Execute one CPU step and refresh GUI state.
      *
-     * @return CPU step log message
+     * The step is only formatted into a log line when it will be shown;
+     * faults are always logged.
+     *
+     * @param logStep   true to append the "[STEP] ..." line to the log
+     * @return          what the step did (reused by the next step)
      */
-    private String executeOneStep() {
-        String msg = cpu.step();
-        log.accept(msg);
+    private StepResult executeOneStep(boolean logStep) {
+        StepResult result = cpu.step();
+        printer.flush();
+        reportPrinterLogError();
+        if (logStep || result.getOutcome() == StepResult.Outcome.FAULT) {
+            log.accept(result.format());
+        }
         refreshCacheAtMAR();
         refreshUI.run();
-        return msg;
+        return result;
     }
 
     /* ==========================
@@ -484,91 +984,79 @@ public final class Controller {
     }
 
     /**
-     * Attempts to locate the matching listing file and extract the first instruction address.
-     *
-     * Convention:
-     *  - If user selects:  txt/test_load.txt
-     *  - We look for:      txt/test_listing.txt
-     *
-     * We scan listing lines and find the first line that has:
-     *  - two octal columns (LOC and WORD), AND
-     *  - source token is NOT "Data" and NOT "LOC"
-     *
-     * That gives the first instruction location (e.g., 000016).
+     * Move everything typed in the console input field into the input
+     * queue and clear the field. Called when the operator presses Enter,
+     * and before Run/Step read input.
      */
-    private Integer tryFindStartAddressFromListing(File loadFile) {
-        String name = loadFile.getName();
-        String listingName = name.replace("_load", "_listing");
-        File listing = new File(loadFile.getParentFile(), listingName);
-
-        if (!listing.exists()) return null;
-
-        try (java.io.BufferedReader br = new java.io.BufferedReader(new java.io.FileReader(listing))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String t = line.trim();
-                if (t.isEmpty() || t.startsWith(";")) continue;
-
-                String[] parts = t.split("\\s+");
-                if (parts.length < 3) continue;
-
-                // Listing format: LOC WORD <source...>
-                if (!parts[0].matches("[0-7]{6}") || !parts[1].matches("[0-7]{6}")) {
-                    continue;
-                }
+    public void submitConsoleInput() {
+        String text = getConsoleInputText.get();
+        if (text == null || text.isEmpty()) {
+            return;
+        }
 
-                String sourceToken = parts[2];
-                if (sourceToken.equalsIgnoreCase("Data") || sourceToken.equalsIgnoreCase("LOC")) {
-                    continue; // skip data/directives
-                }
+        int accepted = consoleInput.offer(text);
+        setConsoleInputText.accept("");
 
-                // first instruction line found
-                return Integer.parseInt(parts[0], 8);
-            }
-        } catch (Exception e) {
-            log.accept("[IPL] Warning: couldn't parse listing for start address.\n");
+        log.accept("[INPUT] Queued " + accepted + " character(s).\n");
+        if (accepted < text.length()) {
+            log.accept("[INPUT] Input buffer full; " + (text.length() - accepted)
+                    + " character(s) dropped.\n");
         }
-        return null;
     }
 
     /**
-     * Read one character from the GUI console input field.
+     * Read one character for the CPU's IN instruction.
      *
      * Behavior:
-     * - If the input field is empty, return -1 to indicate that no input is ready
-     * - Otherwise, consume the first character and remove it from the field
-     *
-     * This method is used by CPU device input instructions such as IN.
+     * - On the EDT (Single Step / timed Run), never block: pick up any typed
+     *   text, then return -1 if nothing is queued so the CPU waits
+     * - On the turbo worker, park until the operator submits input; a stop
+     *   request interrupts the wait and -1 is returned
      *
      * @return next character code as an integer, or -1 if no input is available
      */
     private int readNextConsoleChar() {
-        String text = getConsoleInputText.get();
-
-        // No input is available right now.
-        if (text == null || text.isEmpty()) {
-            return -1;
+        if (SwingUtilities.isEventDispatchThread()) {
+            submitConsoleInput();
+            return consoleInput.poll();
         }
 
-        // Consume the first available character.
-        char ch = text.charAt(0);
-
-        // Remove the consumed character from the GUI input field.
-        String remaining = text.substring(1);
-        setConsoleInputText.accept(remaining);
+        int ch = consoleInput.poll();
+        if (ch >= 0) {
+            return ch;
+        }
 
-        return ch;
+        // about to park: show what has been printed so far first
+        turboRunner.flushFrame();
+        try {
+            return consoleInput.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
     }
 
     /**
-     * Append one character to the GUI printer area.
-     *
-     * This method is used by CPU device output instructions such as OUT.
+     * Printer sink: append a flushed chunk to the GUI printer area,
+     * hopping to the EDT if the chunk was flushed on the turbo worker.
      *
-     * @param value low 8-bit character code to print
+     * @param chunk printed text
      */
-    private void writePrinterChar(int value) {
-        char ch = (char) (value & 0xFF);
-        appendPrinterOutput.accept(Character.toString(ch));
+    private void showPrinted(String chunk) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            appendPrinterOutput.accept(chunk);
+        } else {
+            SwingUtilities.invokeLater(() -> appendPrinterOutput.accept(chunk));
+        }
+    }
+
+    /**
+     * Log (once) a failure of the printer's file copy, which also stops it.
+     */
+    private void reportPrinterLogError() {
+        IOException ex = printer.takeTeeError();
+        if (ex != null) {
+            log.accept("[PRINTER] Copy to file stopped: " + ex.getMessage() + "\n");
+        }
     }
 }
\ No newline at end of file
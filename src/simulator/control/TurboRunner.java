@@ -0,0 +1,205 @@
+package simulator.control;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javax.swing.SwingUtilities;
+import simulator.cpu.BlockEngine;
+import simulator.cpu.CPU;
+import simulator.cpu.RunStatus;
+
+/**
+ * Runs the CPU on a background thread, at full speed or at a target
+ * instruction rate ("turbo" Run mode).
+ *
+ * How it works:
+ *  - The worker calls engine.run(batch) in a loop, so a stop request is
+ *    seen within one batch (about a millisecond). The BlockEngine runs hot
+ *    basic blocks as compiled code and interprets the rest.
+ *  - With a target rate, each batch is about 1 ms worth of instructions and
+ *    the worker parks between batches until the time at which that many
+ *    instructions are due. Sleeping only between batches keeps the
+ *    achieved rate close to the target even for 10M instr/s.
+ *  - Between batches, at most FRAME_RATE_HZ times per second, the worker
+ *    captures a frame (a Runnable that applies a snapshot) and posts it to
+ *    the EDT. A new frame is only captured once the previous one has been
+ *    shown, so register, cache and printer updates are coalesced.
+ *  - When the worker ends, one last frame and the finish callback run on
+ *    the EDT. A null status means the run was stopped by requestStop().
+ *  - requestStop() also interrupts the worker, so an IN parked on an empty
+ *    input queue gives up and the run ends.
+ *
+ * Only the worker touches the CPU while isRunning() is true.
+ */
+final class TurboRunner {
+
+    static final int FRAME_RATE_HZ = 30;
+    static final long SLICE = 20_000L;
+    /** target rate meaning "as fast as possible" */
+    static final long UNLIMITED = 0L;
+
+    private static final long FRAME_NANOS = 1_000_000_000L / FRAME_RATE_HZ;
+
+    private final CPU cpu;
+    private final BlockEngine engine;
+    private final long targetRate;
+    private final Supplier<Runnable> captureFrame;
+    private final Consumer<RunStatus> finished;
+    private final AtomicBoolean framePending = new AtomicBoolean(false);
+
+    private volatile boolean stopRequested = false;
+    private volatile boolean running = false;
+    private Thread worker;
+
+    // written by the worker, read on the EDT after it ends
+    private volatile long executed = 0L;
+    private volatile long elapsedNanos = 0L;
+
+    /**
+     * @param cpu           CPU to run
+     * @param engine        block engine driving that CPU
+     * @param targetRate    instructions per second, or UNLIMITED
+     * @param captureFrame  called on the worker between batches; returns the
+     *                      update to apply on the EDT
+     * @param finished      called on the EDT after the worker ends
+     */
+    TurboRunner(CPU cpu, BlockEngine engine, long targetRate,
+                Supplier<Runnable> captureFrame, Consumer<RunStatus> finished) {
+        if (targetRate < 0) {
+            throw new IllegalArgumentException("Target rate cannot be negative: " + targetRate);
+        }
+        this.cpu = cpu;
+        this.engine = engine;
+        this.targetRate = targetRate;
+        this.captureFrame = captureFrame;
+        this.finished = finished;
+    }
+
+    /**
+     * Start the worker thread.
+     */
+    void start() {
+        running = true;
+        worker = new Thread(this::runLoop, "cpu-turbo");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Ask the worker to stop after its current batch (or its current wait
+     * for input). Does not wait, so the EDT stays responsive; the finish
+     * callback reports when it is done.
+     */
+    void requestStop() {
+        stopRequested = true;
+        worker.interrupt();
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    long getTargetRate() {
+        return targetRate;
+    }
+
+    /** @return instructions retired by this run so far */
+    long getExecuted() {
+        return executed;
+    }
+
+    /** @return wall-clock time of this run so far, in nanoseconds */
+    long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /** @return achieved instructions per second */
+    double getAchievedRate() {
+        long nanos = elapsedNanos;
+        return nanos == 0 ? 0.0 : executed * 1e9 / nanos;
+    }
+
+    /* ==========================
+     * Helpers
+     * ========================== */
+
+    private void runLoop() {
+        RunStatus status = RunStatus.BUDGET_EXHAUSTED;
+        long batch = targetRate == UNLIMITED ? SLICE : Math.max(1L, Math.min(SLICE, targetRate / 1000L));
+        double nanosPerInstruction = targetRate == UNLIMITED ? 0.0 : 1e9 / targetRate;
+
+        long startNanos = System.nanoTime();
+        long startCount = cpu.getInstructionCount();
+        long nextFrame = startNanos + FRAME_NANOS;
+
+        try {
+            while (!stopRequested) {
+                status = engine.run(batch);
+                long count = cpu.getInstructionCount() - startCount;
+                executed = count;
+                elapsedNanos = System.nanoTime() - startNanos;
+                if (status != RunStatus.BUDGET_EXHAUSTED) {
+                    break;
+                }
+
+                if (targetRate != UNLIMITED) {
+                    parkUntil(startNanos + (long) (count * nanosPerInstruction));
+                }
+
+                long now = System.nanoTime();
+                if (now >= nextFrame) {
+                    publishFrame();
+                    nextFrame = now + FRAME_NANOS;
+                }
+            }
+        } finally {
+            elapsedNanos = System.nanoTime() - startNanos;
+            Runnable lastFrame = captureFrame.get();
+            // an IN interrupted by requestStop() also counts as "stopped"
+            boolean stopped = status == RunStatus.BUDGET_EXHAUSTED
+                    || (stopRequested && status == RunStatus.WAITING_FOR_INPUT);
+            RunStatus result = stopped ? null : status;
+            SwingUtilities.invokeLater(() -> {
+                lastFrame.run();
+                running = false;
+                finished.accept(result);
+            });
+        }
+    }
+
+    /**
+     * Park the worker until the given System.nanoTime() deadline, or until
+     * a stop is requested.
+     */
+    private void parkUntil(long deadline) {
+        long remaining;
+        while (!stopRequested && (remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /**
+     * Capture and post a frame right away, even if one is already pending.
+     * Called on the worker before it parks (e.g. IN waiting for input), so
+     * the operator sees the prompt that was just printed.
+     */
+    void flushFrame() {
+        Runnable frame = captureFrame.get();
+        SwingUtilities.invokeLater(frame);
+    }
+
+    /**
+     * Post a frame to the EDT unless the previous one is still waiting.
+     */
+    private void publishFrame() {
+        if (!framePending.compareAndSet(false, true)) {
+            return;
+        }
+        Runnable frame = captureFrame.get();
+        SwingUtilities.invokeLater(() -> {
+            frame.run();
+            framePending.set(false);
+        });
+    }
+}
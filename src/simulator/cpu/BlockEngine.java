@@ -0,0 +1,270 @@
+package simulator.cpu;
+
+import java.util.Arrays;
+import simulator.cache.Cache;
+import simulator.machine.MachineState;
+import simulator.machine.Memory;
+import simulator.machine.MemoryWriteListener;
+
+/**
+ * Second execution engine next to the CPU.step()/run() interpreter.
+ *
+ * How it works:
+ *  - A basic block is straight-line code starting at a "leader" PC and ending
+ *    with the first HLT/JZ/JNE/JCC/JMA/JSR/RFS/SOB/JGE (or MAX_BLOCK_LENGTH).
+ *  - Leaders are the first PC of a run and every PC reached right after a
+ *    block-ending instruction.
+ *  - Each leader is interpreted and counted; once it reaches the hot
+ *    threshold its block is translated to a hidden class (BlockTranslator)
+ *    and later entries run the compiled code instead.
+ *
+ * Correctness:
+ *  - Compiled code fetches every instruction through the same cache path and
+ *    calls the interpreter's own op methods, so cache, CC and I/O behaviour
+ *    match the interpreter exactly.
+ *  - A write into a translated range drops the block (MemoryWriteListener);
+ *    each fetch also re-checks the word, so code rewritten inside the block
+ *    that is currently running is handed back to the interpreter.
+ *  - The engine listens to the CPU's D-cache; call detach() before
+ *    discarding it while that cache stays in use.
+ */
+public final class BlockEngine implements MemoryWriteListener {
+
+    public static final int DEFAULT_HOT_THRESHOLD = 50;
+    public static final int MAX_BLOCK_LENGTH = 64;
+
+    private final CPU cpu;
+    private final MachineState s;
+    private final Cache cache;     // the CPU's instruction cache
+    private final int hotThreshold;
+    private final BlockTranslator translator = new BlockTranslator();
+
+    // per leader PC: compiled block, its length, and its entry count
+    private final CompiledBlock[] blocks = new CompiledBlock[Memory.SIZE];
+    private final int[] blockLength = new int[Memory.SIZE];
+    private final int[] entryCount = new int[Memory.SIZE];
+
+    // number of compiled blocks covering each address (for write invalidation)
+    private final int[] coverage = new int[Memory.SIZE];
+
+    // scratch buffers for block formation
+    private final int[] scanAddresses = new int[MAX_BLOCK_LENGTH];
+    private final int[] scanWords = new int[MAX_BLOCK_LENGTH];
+
+    private boolean atLeader = true;
+    private long translatedBlocks = 0L;
+    private long compiledInstructions = 0L;
+    private long invalidatedBlocks = 0L;
+
+    /**
+     * Build an engine with the default hot threshold.
+     *
+     * @param cpu CPU to drive (its cache and state are used directly)
+     */
+    public BlockEngine(CPU cpu) {
+        this(cpu, DEFAULT_HOT_THRESHOLD);
+    }
+
+    /**
+     * Build an engine with a caller-chosen hot threshold.
+     *
+     * @param cpu           CPU to drive
+     * @param hotThreshold  block entries before translation (at least 1)
+     * @throws IllegalArgumentException if hotThreshold is not positive
+     */
+    public BlockEngine(CPU cpu, int hotThreshold) {
+        if (cpu == null) {
+            throw new IllegalArgumentException("CPU cannot be null.");
+        }
+        if (hotThreshold <= 0) {
+            throw new IllegalArgumentException("Hot threshold must be positive.");
+        }
+        this.cpu = cpu;
+        this.s = cpu.state();
+        this.cache = cpu.getInstructionCache();
+        this.hotThreshold = hotThreshold;
+
+        // the D-cache reports every store (including write-back ones) and
+        // all direct memory writes
+        cpu.getDataCache().addWriteListener(this);
+    }
+
+    /**
+     * Execute up to maxInstructions, using compiled blocks where available.
+     * Same contract as CPU.run(long).
+     *
+     * @param maxInstructions   instruction budget for this call
+     * @return                  why execution stopped
+     */
+    public RunStatus run(long maxInstructions) {
+        if (cpu.isHalted()) {
+            return RunStatus.HALTED;
+        }
+
+        long start = cpu.getInstructionCount();
+        long done = 0;
+
+        while (done < maxInstructions) {
+            int pc = s.getPC();
+            int status;
+
+            CompiledBlock block = atLeader && pc < Memory.SIZE ? blocks[pc] : null;
+            if (block != null && blockLength[pc] <= maxInstructions - done) {
+                try {
+                    status = block.run(cpu);
+                } catch (IllegalArgumentException ex) {
+                    status = cpu.faultFrom(ex);
+                }
+                compiledInstructions += cpu.getInstructionCount() - start - done;
+                atLeader = true;
+            } else {
+                if (atLeader && pc < Memory.SIZE) {
+                    profile(pc);
+                }
+                status = cpu.executeOne();
+                atLeader = status != CPU.EXEC_OK || endsBlock(s.getIR());
+            }
+
+            done = cpu.getInstructionCount() - start;
+
+            if (status != CPU.EXEC_OK && status != CPU.EXEC_BAIL) {
+                return CPU.toRunStatus(status);
+            }
+        }
+        return RunStatus.BUDGET_EXHAUSTED;
+    }
+
+    /**
+     * Stop listening for memory writes. Call before discarding an engine
+     * whose CPU's caches stay in use (e.g. when the CPU is rebuilt).
+     */
+    public void detach() {
+        cpu.getDataCache().removeWriteListener(this);
+    }
+
+    /**
+     * Execute until HLT, a fault, or an IN with no input.
+     *
+     * @return HALTED, FAULT or WAITING_FOR_INPUT
+     */
+    public RunStatus runUntilHalt() {
+        return run(Long.MAX_VALUE);
+    }
+
+    public long getTranslatedBlockCount() {
+        return translatedBlocks;
+    }
+
+    public long getCompiledInstructionCount() {
+        return compiledInstructions;
+    }
+
+    public long getInvalidatedBlockCount() {
+        return invalidatedBlocks;
+    }
+
+    /* ==========================
+     * MemoryWriteListener
+     * ========================== */
+
+    /**
+     * Drop every compiled block whose range contains the written address.
+     */
+    @Override
+    public void wordWritten(int address) {
+        if (coverage[address] == 0) {
+            return;
+        }
+        int lowest = Math.max(0, address - MAX_BLOCK_LENGTH + 1);
+        for (int start = address; start >= lowest && coverage[address] > 0; start--) {
+            if (blocks[start] != null && start + blockLength[start] > address) {
+                dropBlock(start);
+            }
+        }
+    }
+
+    @Override
+    public void memoryCleared() {
+        Arrays.fill(blocks, null);
+        Arrays.fill(blockLength, 0);
+        Arrays.fill(entryCount, 0);
+        Arrays.fill(coverage, 0);
+        atLeader = true;
+    }
+
+    /* ==========================
+     * Helpers
+     * ========================== */
+
+    /**
+     * Count one entry into the block at pc and translate it once it is hot.
+     */
+    private void profile(int pc) {
+        if (entryCount[pc] < 0) {
+            return; // not translatable
+        }
+        if (++entryCount[pc] >= hotThreshold) {
+            translate(pc);
+        }
+    }
+
+    /**
+     * Form the basic block starting at pc and compile it.
+     * Reads code with Cache.peek so profiling never changes hit/miss counts.
+     */
+    private void translate(int pc) {
+        int length = 0;
+        int addr = pc;
+
+        while (length < MAX_BLOCK_LENGTH && addr < Memory.SIZE) {
+            int word = cache.peek(addr);
+            if (CPU.MNEMONICS[(word >>> 10) & 0x3F] == null) {
+                break; // unsupported opcode: leave it to the interpreter's fault path
+            }
+            scanAddresses[length] = addr;
+            scanWords[length] = word;
+            length++;
+            addr++;
+            if (endsBlock(word)) {
+                break;
+            }
+        }
+
+        if (length == 0) {
+            entryCount[pc] = -1;
+            return;
+        }
+
+        try {
+            blocks[pc] = translator.translate(scanAddresses, scanWords, length);
+        } catch (IllegalStateException ex) {
+            entryCount[pc] = -1; // keep interpreting this block
+            return;
+        }
+        blockLength[pc] = length;
+        for (int i = 0; i < length; i++) {
+            coverage[pc + i]++;
+        }
+        translatedBlocks++;
+    }
+
+    private void dropBlock(int start) {
+        int length = blockLength[start];
+        for (int i = 0; i < length; i++) {
+            coverage[start + i]--;
+        }
+        blocks[start] = null;
+        blockLength[start] = 0;
+        entryCount[start] = 0;
+        invalidatedBlocks++;
+    }
+
+    /**
+     * True for instructions that end a basic block: HLT and the transfer
+     * instructions JZ, JNE, JCC, JMA, JSR, RFS, SOB, JGE (opcodes 0, 8..15).
+     */
+    private static boolean endsBlock(int word) {
+        int opcode = (word >>> 10) & 0x3F;
+        return opcode == 0 || (opcode >= 8 && opcode <= 15);
+    }
+}
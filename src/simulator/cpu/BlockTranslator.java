@@ -0,0 +1,315 @@
+package simulator.cpu;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Translates one basic block of guest instructions into a hidden JVM class
+ * implementing CompiledBlock.
+ *
+ * Generated run(CPU cpu) method, per instruction at address A with word W:
+ *
+ *   status = cpu.blockFetch(A, W)              // same fetch as the interpreter
+ *   if (status != 0) return status
+ *   status = cpu.retire(cpu.opXXX(r, ix, I, addr))   // operands are constants
+ *   if (status != 0) return status
+ *   ...
+ *   return 0
+ *
+ * Because the operands are constants and the op methods are the interpreter's
+ * own, HotSpot can inline and fold them (e.g. no indexing when ix == 0) while
+ * cache, CC and I/O behaviour stay identical to CPU.step().
+ *
+ * Only a minimal class file is emitted: no fields, a constructor, and run().
+ * All early exits branch to one "ireturn" so a single StackMapTable frame is
+ * enough for the verifier.
+ */
+final class BlockTranslator {
+
+    private static final String CPU_CLASS = "simulator/cpu/CPU";
+    private static final String BLOCK_INTERFACE = "simulator/cpu/CompiledBlock";
+    private static final String BLOCK_CLASS = "simulator/cpu/TranslatedBlock";
+    private static final String OP_DESC = "(IIII)I";
+
+    // JVM opcodes used by the generator
+    private static final int ALOAD_0 = 0x2A;
+    private static final int ALOAD_1 = 0x2B;
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int DUP = 0x59;
+    private static final int POP = 0x57;
+    private static final int IFNE = 0x9A;
+    private static final int IRETURN = 0xAC;
+    private static final int RETURN = 0xB1;
+    private static final int INVOKEVIRTUAL = 0xB6;
+    private static final int INVOKESPECIAL = 0xB7;
+
+    private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    /**
+     * Translate a block and load it as a hidden class.
+     *
+     * @param addresses instruction addresses, in execution order
+     * @param words     instruction words at those addresses
+     * @param length    number of instructions in the block
+     * @return          executable block
+     * @throws IllegalStateException if the class cannot be defined
+     */
+    CompiledBlock translate(int[] addresses, int[] words, int length) {
+        byte[] bytes = generate(addresses, words, length);
+        try {
+            MethodHandles.Lookup hidden = lookup.defineHiddenClass(bytes, true);
+            return (CompiledBlock) hidden
+                    .findConstructor(hidden.lookupClass(), MethodType.methodType(void.class))
+                    .invoke();
+        } catch (Throwable t) {
+            throw new IllegalStateException("Block translation failed: " + t, t);
+        }
+    }
+
+    /**
+     * Build the class file bytes for one block.
+     */
+    byte[] generate(int[] addresses, int[] words, int length) {
+        ConstantPool cp = new ConstantPool();
+        int thisClass = cp.classRef(BLOCK_CLASS);
+        int superClass = cp.classRef("java/lang/Object");
+        int iface = cp.classRef(BLOCK_INTERFACE);
+        int objectInit = cp.methodRef("java/lang/Object", "<init>", "()V");
+        int fetch = cp.methodRef(CPU_CLASS, "blockFetch", "(II)I");
+        int retire = cp.methodRef(CPU_CLASS, "retire", "(I)I");
+        int codeAttr = cp.utf8("Code");
+        int frameAttr = cp.utf8("StackMapTable");
+
+        // ---- run(CPU) body ----
+        ByteArrayOutputStream code = new ByteArrayOutputStream();
+        List<Integer> exitBranches = new ArrayList<>();
+
+        for (int i = 0; i < length; i++) {
+            int word = words[i] & 0xFFFF;
+            int opcode = (word >>> 10) & 0x3F;
+
+            // status = cpu.blockFetch(addr, word); if (status != 0) goto EXIT
+            code.write(ALOAD_1);
+            pushInt(code, cp, addresses[i]);
+            pushInt(code, cp, word);
+            code.write(INVOKEVIRTUAL);
+            writeU2(code, fetch);
+            exitIfNonZero(code, exitBranches);
+
+            // status = cpu.retire(cpu.opXXX(r, ix, ind, addr)); if (status != 0) goto EXIT
+            code.write(ALOAD_1);
+            code.write(ALOAD_1);
+            pushInt(code, cp, (word >>> 8) & 0x03);
+            pushInt(code, cp, (word >>> 6) & 0x03);
+            pushInt(code, cp, (word >>> 5) & 0x01);
+            pushInt(code, cp, word & 0x1F);
+            code.write(INVOKEVIRTUAL);
+            writeU2(code, cp.methodRef(CPU_CLASS, "op" + CPU.MNEMONICS[opcode], OP_DESC));
+            code.write(INVOKEVIRTUAL);
+            writeU2(code, retire);
+            exitIfNonZero(code, exitBranches);
+        }
+
+        // whole block done
+        code.write(ICONST_0);
+        code.write(IRETURN);
+
+        // EXIT: status is on the stack
+        int exitOffset = code.size();
+        code.write(IRETURN);
+
+        byte[] body = code.toByteArray();
+        for (int at : exitBranches) {
+            int delta = exitOffset - at;
+            body[at + 1] = (byte) (delta >>> 8);
+            body[at + 2] = (byte) delta;
+        }
+
+        int initName = cp.utf8("<init>");
+        int initDesc = cp.utf8("()V");
+        int runName = cp.utf8("run");
+        int runDesc = cp.utf8("(L" + CPU_CLASS + ";)I");
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);          // minor
+            out.writeShort(61);         // major: Java 17
+            cp.writeTo(out);
+            out.writeShort(0x0010 | 0x0020); // ACC_FINAL | ACC_SUPER
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(iface);
+            out.writeShort(0);          // fields
+            out.writeShort(2);          // methods
+
+            // public <init>() { super(); }
+            out.writeShort(0x0001);
+            out.writeShort(initName);
+            out.writeShort(initDesc);
+            out.writeShort(1);
+            out.writeShort(codeAttr);
+            out.writeInt(12 + 5);
+            out.writeShort(1);          // max stack
+            out.writeShort(1);          // max locals
+            out.writeInt(5);
+            out.writeByte(ALOAD_0);
+            out.writeByte(INVOKESPECIAL);
+            out.writeShort(objectInit);
+            out.writeByte(RETURN);
+            out.writeShort(0);          // exception table
+            out.writeShort(0);          // attributes
+
+            // public int run(CPU cpu)
+            int frameLength = 2 + 1 + 2 + 1;
+            out.writeShort(0x0001);
+            out.writeShort(runName);
+            out.writeShort(runDesc);
+            out.writeShort(1);
+            out.writeShort(codeAttr);
+            out.writeInt(12 + body.length + 6 + frameLength);
+            out.writeShort(6);          // max stack: cpu, cpu, 4 operands
+            out.writeShort(2);          // max locals: this, cpu
+            out.writeInt(body.length);
+            out.write(body);
+            out.writeShort(0);          // exception table
+            out.writeShort(1);          // attributes: StackMapTable
+            out.writeShort(frameAttr);
+            out.writeInt(frameLength);
+            out.writeShort(1);          // one frame, at EXIT
+            out.writeByte(247);         // same_locals_1_stack_item_frame_extended
+            out.writeShort(exitOffset);
+            out.writeByte(1);           // stack item: int
+
+            out.writeShort(0);          // class attributes
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write block class", e);
+        }
+    }
+
+    /* ==========================
+     * Helpers
+     * ========================== */
+
+    /**
+     * dup; ifne EXIT; pop   (branch offset patched once EXIT is known)
+     */
+    private static void exitIfNonZero(ByteArrayOutputStream code, List<Integer> exitBranches) {
+        code.write(DUP);
+        exitBranches.add(code.size());
+        code.write(IFNE);
+        code.write(0);
+        code.write(0);
+        code.write(POP);
+    }
+
+    private static void pushInt(ByteArrayOutputStream code, ConstantPool cp, int value) {
+        if (value >= -1 && value <= 5) {
+            code.write(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            code.write(BIPUSH);
+            code.write(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            code.write(SIPUSH);
+            writeU2(code, value);
+        } else {
+            code.write(LDC_W);
+            writeU2(code, cp.integer(value));
+        }
+    }
+
+    private static void writeU2(ByteArrayOutputStream code, int value) {
+        code.write(value >>> 8);
+        code.write(value);
+    }
+
+    /**
+     * Minimal constant pool: UTF8, Integer, Class, NameAndType, Methodref.
+     * Entries are de-duplicated by their textual key.
+     */
+    private static final class ConstantPool {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> index = new HashMap<>();
+        private int count = 1;
+
+        int utf8(String s) {
+            return entry("U" + s, () -> {
+                out.writeByte(1);
+                out.writeUTF(s);
+            });
+        }
+
+        int integer(int v) {
+            return entry("I" + v, () -> {
+                out.writeByte(3);
+                out.writeInt(v);
+            });
+        }
+
+        int classRef(String internalName) {
+            int name = utf8(internalName);
+            return entry("C" + internalName, () -> {
+                out.writeByte(7);
+                out.writeShort(name);
+            });
+        }
+
+        int methodRef(String owner, String name, String desc) {
+            int cls = classRef(owner);
+            int n = utf8(name);
+            int d = utf8(desc);
+            int nat = entry("N" + name + desc, () -> {
+                out.writeByte(12);
+                out.writeShort(n);
+                out.writeShort(d);
+            });
+            return entry("M" + owner + "." + name + desc, () -> {
+                out.writeByte(10);
+                out.writeShort(cls);
+                out.writeShort(nat);
+            });
+        }
+
+        void writeTo(DataOutputStream dst) throws IOException {
+            out.flush();
+            dst.writeShort(count);
+            bytes.writeTo(dst);
+        }
+
+        private int entry(String key, PoolWrite write) {
+            Integer existing = index.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            try {
+                write.run();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            int at = count++;
+            index.put(key, at);
+            return at;
+        }
+    }
+
+    @FunctionalInterface
+    private interface PoolWrite {
+        void run() throws IOException;
+    }
+}
@@ -5,6 +5,7 @@ import simulator.machine.MachineState;
 import java.util.function.IntConsumer;
 import java.util.function.IntSupplier;
 import simulator.cache.Cache;
+import simulator.trace.TraceRecorder;
 
 /**
  * CPU implements the fetch/decode/execute cycle for the simulator.
@@ -16,8 +17,18 @@ import simulator.cache.Cache;
  *
  * Notes:
  *  - Basic format decode: opcode(6) r(2) ix(2) I(1) addr(5)
+ *  - Each word is compiled once to threaded code (OpCompiler) and cached per
+ *    address (DecodeCache); the entry is dropped when that word is written.
  *  - Effective Address (EA) supports indexing + indirect for basic format.
  *  - Memory size is 2048; out-of-range triggers a halt with an error message.
+ *  - Caches: one unified cache, or split instruction / data caches. In a
+ *    split configuration instruction fetches use the I-cache; operand reads,
+ *    indirect pointer reads and stores use the D-cache.
+ *  - An optional TraceRecorder receives every fetch, operand read,
+ *    pointer read and store address, for offline cache studies.
+ *  - step() returns a StepResult per instruction (formatted to a log line
+ *    only on demand); run()/runUntilHalt() execute the same instructions
+ *    headlessly and only return a RunStatus.
  */
 public final class CPU {
 
@@ -28,7 +39,32 @@ public final class CPU {
     private final IntSupplier inputReader;
     /** Writes one output character code to a device callback. */
     private final IntConsumer outputWriter; 
-    private final Cache cache;
+    private final Cache icache;     // instruction fetches
+    private final Cache dcache;     // operands, indirect pointers, stores (same object when unified)
+
+    static final String[] MNEMONICS = buildMnemonics();
+    private final DecodeCache decodeCache = new DecodeCache();
+    private TraceRecorder trace;    // null when not recording
+
+    // execute() result codes; run() maps them onto RunStatus.
+    // EXEC_BAIL is only used by translated blocks: "instruction done, leave the block".
+    static final int EXEC_OK = 0;
+    static final int EXEC_HALT = 1;
+    static final int EXEC_WAIT = 2;
+    static final int EXEC_FAULT = 3;
+    static final int EXEC_BAIL = 4;
+
+    // details of the last executed instruction, kept as primitives so that
+    // only step() pays for copying them into its StepResult
+    private int lastPC;
+    private DecodedInstruction last;
+    private int lastEA;
+    private int lastValue;
+    private int lastAux;
+    private boolean lastFlag;   // branch taken / TRR equal / DVD divide-by-zero
+    private String lastFault;
+    private long instructionCount = 0L;
+    private final StepResult stepResult = new StepResult();
 
     /**
      * Construct a CPU attached to a unified cache and machine state.
@@ -50,10 +86,69 @@ public final class CPU {
      * @param outputWriter  callback that consumes one output character code
      */
     public CPU(Cache cache, MachineState state, IntSupplier inputReader, IntConsumer outputWriter) {
-        this.cache = cache;
+        this(cache, cache, state, inputReader, outputWriter);
+    }
+
+    /**
+     * Construct a CPU with split (Harvard-style) instruction and data caches.
+     * Passing the same cache twice gives the unified configuration.
+     *
+     * The I-cache is made a peer of the D-cache, so code written by stores
+     * is fetched correctly even when the D-cache is write-back.
+     *
+     * @param icache        cache for instruction fetches
+     * @param dcache        cache for operand reads, indirect pointers and stores
+     * @param state         machine register state
+     * @param inputReader   callback that returns one input character code, or -1 if none
+     * @param outputWriter  callback that consumes one output character code
+     * @throws IllegalArgumentException if the caches use different memories
+     */
+    public CPU(Cache icache, Cache dcache, MachineState state, IntSupplier inputReader, IntConsumer outputWriter) {
+        this.icache = icache;
+        this.dcache = dcache;
         this.s = state;
         this.inputReader = inputReader;
         this.outputWriter = outputWriter;
+
+        if (icache != dcache) {
+            icache.addPeer(dcache);
+        }
+        // drop predecoded entries whenever their memory word changes; the
+        // D-cache reports its own write-back stores and all memory writes
+        dcache.addWriteListener(decodeCache);
+    }
+
+    /**
+     * Stop listening for memory writes. Call before discarding a CPU whose
+     * caches or memory stay in use (e.g. when switching cache configuration).
+     */
+    public void detach() {
+        dcache.removeWriteListener(decodeCache);
+    }
+
+    /**
+     * Record the address of every memory access from now on.
+     *
+     * @param recorder  open trace recorder, or null to stop recording
+     */
+    public void setTraceRecorder(TraceRecorder recorder) {
+        this.trace = recorder;
+    }
+
+    public TraceRecorder getTraceRecorder() {
+        return trace;
+    }
+
+    public Cache getInstructionCache() {
+        return icache;
+    }
+
+    public Cache getDataCache() {
+        return dcache;
+    }
+
+    public boolean isSplitCache() {
+        return icache != dcache;
     }
 
     public boolean isHalted() {
@@ -62,629 +157,893 @@ public final class CPU {
 
     public void reset() {
         halted = false;
+        lastFault = null;
     }
 
     public void halt() {
         halted = true;
     }
 
+    /**
+     * Number of instructions that have completed since construction.
+     * IN instructions that are still waiting for input are not counted.
+     *
+     * @return retired instruction count
+     */
+    public long getInstructionCount() {
+        return instructionCount;
+    }
+
     /**
      * Execute one full instruction step:
      *  1) FETCH (MAR<-PC, MBR<-MEM[MAR], IR<-MBR, PC++)
      *  2) DECODE/EXECUTE based on opcode
      *
-     * @return a short log line describing what happened
-     * @throws IllegalArgumentException if an invalid memory access or unsupported opcode is encountered
+     * This is the single-step path used by the GUI. The result is filled from
+     * the details recorded by execute(), so run() never pays for it.
+     *
+     * The returned object is reused by the next step(); call format() on it
+     * for the "[STEP] ..." log line.
+     *
+     * @return what this step did
      */
-    public String step() {
+    public StepResult step() {
         if (halted) {
-            return "[STEP] CPU is halted; ignoring step.\n";
+            return stepResult.ignored();
         }
 
+        long hits = cacheHits();
+        long misses = cacheMisses();
+        stepResult.captureBefore(s);
+
+        int status = execute();
+
+        stepResult.record(status, lastPC, last, lastEA, lastValue, lastAux, lastFlag, lastFault,
+                cacheHits() - hits, cacheMisses() - misses, s);
+        return stepResult;
+    }
+
+    /**
+     * Headless run loop: execute up to maxInstructions without building any
+     * log text. Stops early on HLT, a fault, or an IN with no input ready.
+     *
+     * @param maxInstructions   instruction budget for this call
+     * @return                  why the loop stopped
+     */
+    public RunStatus run(long maxInstructions) {
+        if (halted) {
+            return RunStatus.HALTED;
+        }
+
+        for (long n = 0; n < maxInstructions; n++) {
+            int status = execute();
+            if (status != EXEC_OK) {
+                return toRunStatus(status);
+            }
+        }
+        return RunStatus.BUDGET_EXHAUSTED;
+    }
+
+    /**
+     * Headless run loop with no instruction budget.
+     *
+     * @return HALTED, FAULT or WAITING_FOR_INPUT
+     */
+    public RunStatus runUntilHalt() {
+        return run(Long.MAX_VALUE);
+    }
+
+    /**
+     * Fetch, decode and execute exactly one instruction.
+     *
+     * Decoding comes from the DecodeCache, so a word that has been fetched
+     * before goes straight to its compiled Op. Nothing here allocates on the
+     * normal path: the Op leaves its details in the last* fields and only
+     * step() copies them into its StepResult.
+     *
+     * @return EXEC_OK, EXEC_HALT, EXEC_WAIT or EXEC_FAULT
+     */
+    private int execute() {
         // =====================
         // 1) FETCH
         // =====================
         int pc0 = s.getPC();
         s.setMAR(pc0);
+        lastPC = pc0;
 
         int instr;
         try {
-            instr = cache.read(pc0);
+            instr = icache.read(pc0);
         } catch (IllegalArgumentException ex) {
-            halted = true;
-            return "[FAULT] Fetch address out of range: " + pc0 + "\n";
+            last = null;
+            return fault("Fetch address out of range: " + pc0);
+        }
+        if (trace != null) {
+            trace.record(TraceRecorder.FETCH, pc0);
         }
 
         s.setMBR(instr);
         s.setIR(instr);
         s.setPC(pc0 + 1);
 
+        return dispatch(pc0, instr);
+    }
+
+    /**
+     * Decode (via the DecodeCache) and execute an instruction that has
+     * already been fetched into IR.
+     *
+     * @param pc0   address the instruction was fetched from
+     * @param instr fetched instruction word
+     * @return      EXEC_* result code
+     */
+    private int dispatch(int pc0, int instr) {
         // =====================
-        // 2) DECODE
+        // 2) DECODE (predecoded per address)
         // =====================
-        int ir = s.getIR();
-        int opcode = (ir >>> 10) & 0x3F;
-        int r = (ir >>> 8) & 0x03;
-        int ix = (ir >>> 6) & 0x03;
-        int ind = (ir >>> 5) & 0x01;
-        int addr = ir & 0x1F;
+        DecodedInstruction d = decodeCache.lookup(pc0, instr);
+        last = d;
 
         // =====================
         // 3) EXECUTE
         // =====================
         try {
-            switch (opcode) {
-
-                // HLT (octal 000 => decimal 0)
-                case 0 -> {
-                    halted = true;
-                    return "[STEP] FETCH @" + Memory.toOct6(pc0) +
-                            " IR=" + Memory.toOct6(ir) + " (HLT)\n";
-                }
-
-                // LDR (octal 001 => decimal 1): R[r] <- MEM[EA]
-                case 1 -> {
-                    int ea = computeEA(ix, ind, addr);
-                    int val = cache.read(ea);
-                    s.setGPR(r, val);
-                    return "[STEP] LDR R" + r + " <- MEM[" + Memory.toOct6(ea) + "] = " +
-                            Memory.toOct6(val) + "\n";
-                }
-
-                // STR (octal 002 => decimal 2): MEM[EA] <- R[r]
-                case 2 -> {
-                    int ea = computeEA(ix, ind, addr);
-                    int val = s.getGPR(r);
-                    cache.write(ea, val);
-                    return "[STEP] STR MEM[" + Memory.toOct6(ea) + "] <- R" + r
-                            + " = " + Memory.toOct6(val) + "\n";
-                }
-
-                // LDA (octal 003 => decimal 3): R[r] <- EA
-                case 3 -> {
-                    int ea = computeEA(ix, ind, addr);
-                    s.setGPR(r, ea);
-                    return "[STEP] LDA R" + r + " <- EA " + Memory.toOct6(ea) + "\n";
-                }
-
-                // -------------------------------------------------
-                // Arithmetic and Logical Instructions
-                // -------------------------------------------------
-
-                // AMR (octal 004 => decimal 4)
-                // R[r] <- R[r] + MEM[EA]
-                case 4 -> {
-                    int ea = computeEA(ix, ind, addr);
-
-                    int regVal = toSigned16(s.getGPR(r));
-                    int memVal = toSigned16(cache.read(ea));
-                    int wideResult = regVal + memVal;
-
-                    updateArithmeticCC(wideResult);
-
-                    int finalVal = wideResult & 0xFFFF;
-                    s.setGPR(r, finalVal);
-
-                    return "[STEP] AMR R" + r + " <- "
-                            + Memory.toOct6(finalVal)
-                            + " using MEM[" + Memory.toOct6(ea) + "] = "
-                            + Memory.toOct6(memVal & 0xFFFF) + "\n";
-                }
-
-                // SMR (octal 005 => decimal 5)
-                // R[r] <- R[r] - MEM[EA]
-                case 5 -> {
-                    int ea = computeEA(ix, ind, addr);
-
-                    int regVal = toSigned16(s.getGPR(r));
-                    int memVal = toSigned16(cache.read(ea));
-                    int wideResult = regVal - memVal;
-
-                    updateArithmeticCC(wideResult);
-
-                    int finalVal = wideResult & 0xFFFF;
-                    s.setGPR(r, finalVal);
-
-                    return "[STEP] SMR R" + r + " <- "
-                            + Memory.toOct6(finalVal)
-                            + " using MEM[" + Memory.toOct6(ea) + "] = "
-                            + Memory.toOct6(memVal & 0xFFFF) + "\n";
-                }
-
-                // AIR (octal 006 => decimal 6)
-                // R[r] <- R[r] + immed
-                // IX and I are ignored
-                case 6 -> {
-                    int immed = addr & 0x1F;
-
-                    // If immed is 0, the ISA says do nothing.
-                    if (immed == 0) {
-                        clearArithmeticCC();
-                        return "[STEP] AIR no-op (immed = 0)\n";
-                    }
-
-                    int regVal = toSigned16(s.getGPR(r));
-                    int wideResult = regVal + immed;
-
-                    updateArithmeticCC(wideResult);
-
-                    int finalVal = wideResult & 0xFFFF;
-                    s.setGPR(r, finalVal);
-
-                    return "[STEP] AIR R" + r + " <- "
-                            + Memory.toOct6(finalVal)
-                            + " using immed " + Memory.toOct6(immed) + "\n";
-                }
-
-                // SIR (octal 007 => decimal 7)
-                // R[r] <- R[r] - immed
-                // IX and I are ignored
-                case 7 -> {
-                    int immed = addr & 0x1F;
-
-                    // If immed is 0, the ISA says do nothing.
-                    if (immed == 0) {
-                        clearArithmeticCC();
-                        return "[STEP] SIR no-op (immed = 0)\n";
-                    }
-
-                    int regVal = toSigned16(s.getGPR(r));
-                    int wideResult = regVal - immed;
-
-                    updateArithmeticCC(wideResult);
-
-                    int finalVal = wideResult & 0xFFFF;
-                    s.setGPR(r, finalVal);
-
-                    return "[STEP] SIR R" + r + " <- "
-                            + Memory.toOct6(finalVal)
-                            + " using immed " + Memory.toOct6(immed) + "\n";
-                }
-
-                // -------------------------------------------------
-                // Transfer Instructions
-                // -------------------------------------------------
-
-                // JZ (octal 010 => decimal 8): if R[r]==0 then PC <- EA
-                case 8 -> {
-                    int ea = computeEA(ix, ind, addr);
-                    if ((s.getGPR(r) & 0xFFFF) == 0) {
-                        s.setPC(ea);
-                        return "[STEP] JZ taken -> PC <- " + Memory.toOct6(ea) + "\n";
-                    } else {
-                        return "[STEP] JZ not taken (R" + r + " != 0)\n";
-                    }
-                }
-                
-                // JNE (octal 011 => decimal 9)
-                // If R[r] != 0 then PC <- EA
-                case 9 -> {
-                    int ea = computeEA(ix, ind, addr);
-
-                    if ((s.getGPR(r) & 0xFFFF) != 0) {
-                        s.setPC(ea);
-                        return "[STEP] JNE taken -> PC <- "
-                                + Memory.toOct6(ea) + "\n";
-                    } else {
-                        return "[STEP] JNE not taken (R" + r + " == 0)\n";
-                    }
-                }
-
-                // JCC (octal 012 => decimal 10)
-                // If selected CC bit is set, then PC <- EA
-                // Here, the r field is interpreted as the CC bit index:
-                // r = 0..3 selects CC[0]..CC[3]
-                case 10 -> {
-                    int ccIndex = r;
-                    int ea = computeEA(ix, ind, addr);
-
-                    if (isCCBitSet(ccIndex)) {
-                        s.setPC(ea);
-                        return "[STEP] JCC taken on CC[" + ccIndex + "] -> PC <- "
-                                + Memory.toOct6(ea) + "\n";
-                    } else {
-                        return "[STEP] JCC not taken on CC[" + ccIndex + "]\n";
-                    }
-                }
-
-                // JMA (octal 013 => decimal 11)
-                // Unconditional jump: PC <- EA
-                // The r field is ignored for this instruction.
-                case 11 -> {
-                    int ea = computeEA(ix, ind, addr);
-                    s.setPC(ea);
-
-                    return "[STEP] JMA -> PC <- "
-                            + Memory.toOct6(ea) + "\n";
-                }
-
-                // JSR (octal 014 => decimal 12)
-                // R3 <- return address
-                // PC <- EA
-                // Since PC was already incremented during fetch,
-                // the current PC already points to the return address.
-                case 12 -> {
-                    int ea = computeEA(ix, ind, addr);
-                    int returnAddress = s.getPC();
-
-                    s.setGPR(3, returnAddress);
-                    s.setPC(ea);
-
-                    return "[STEP] JSR R3 <- " + Memory.toOct6(returnAddress)
-                            + ", PC <- " + Memory.toOct6(ea) + "\n";
-                }
-
-                // RFS (octal 015 => decimal 13)
-                // R0 <- immed
-                // PC <- R3
-                // The immediate comes from the low 5-bit address field.
-                // IX and I are ignored here.
-                case 13 -> {
-                    int immed = addr & 0x1F;
-                    int returnAddress = s.getGPR(3) & 0xFFF;
-
-                    s.setGPR(0, immed);
-                    s.setPC(returnAddress);
-
-                    return "[STEP] RFS R0 <- " + Memory.toOct6(immed)
-                            + ", PC <- R3 = " + Memory.toOct6(returnAddress) + "\n";
-                }
-
-                // SOB (octal 016 => decimal 14)
-                // R[r] <- R[r] - 1
-                // If R[r] > 0 then PC <- EA
-                case 14 -> {
-                    int ea = computeEA(ix, ind, addr);
-
-                    // Decrement first, then test the new value
-                    int newVal = (s.getGPR(r) - 1) & 0xFFFF;
-                    s.setGPR(r, newVal);
-
-                    if (toSigned16(newVal) > 0) {
-                        s.setPC(ea);
-                        return "[STEP] SOB taken: R" + r + " <- "
-                                + Memory.toOct6(newVal)
-                                + ", PC <- " + Memory.toOct6(ea) + "\n";
-                    } else {
-                        return "[STEP] SOB not taken: R" + r + " <- "
-                                + Memory.toOct6(newVal) + "\n";
-                    }
-                }
-
-                
-                // JGE (octal 017 => decimal 15)
-                // If R[r] >= 0 then PC <- EA
-                // Register values are interpreted as signed 16-bit values.
-                case 15 -> {
-                    int ea = computeEA(ix, ind, addr);
-
-                    if (toSigned16(s.getGPR(r)) >= 0) {
-                        s.setPC(ea);
-                        return "[STEP] JGE taken -> PC <- "
-                                + Memory.toOct6(ea) + "\n";
-                    } else {
-                        return "[STEP] JGE not taken (R" + r + " < 0)\n";
-                    }
-                }
-
-                // -------------------------------------------------
-                // Shift / Rotate INsstructions
-                // -------------------------------------------------
-
-                // SRC (octal 031 => decimal 25)
-                // Shift Register by Count
-                // - r     = target register
-                // - addr  = count
-                // - ind   = L/R bit (1 = left, 0 = right)
-                // - low bit of ix = A/L bit (1 = logical, 0 = arithmetic)
-                case 25 -> {
-                    int count = addr & 0x1F;
-                    int lr = ind & 0x1;          // 1 = left, 0 = right
-                    int al = ix & 0x1;           // 1 = logical, 0 = arithmetic
-                    int value = s.getGPR(r) & 0xFFFF;
-
-                    // 0 means no shift
-                    if (count == 0) {
-                        return "[STEP] SRC no-op (count = 0)\n";
-                    }
-
-                    // count as 0..15
-                    // masking with 0x0F keeps the operation inside that range
-                    count &= 0x0F;
-
-                    int result;
-
-                    if (lr == 1) {
-                        // Left shift: arithmetic and logical discard
-                        // shifted-out bits and fill low bits with zeros.
-                        result = (value << count) & 0xFFFF;
-                    } else {
-                        // Right shift:
-                        // logical  -> zero-fill using >>>
-                        // arithmetic -> sign-extend using signed >>
-                        if (al == 1) {
-                            result = (value >>> count) & 0xFFFF;
-                        } else {
-                            result = (toSigned16(value) >> count) & 0xFFFF;
-                        }
-                    }
-
-                    s.setGPR(r, result);
-
-                    return "[STEP] SRC R" + r + " -> " + Memory.toOct6(result) + "\n";
-                }
-
-                // RRC (octal 032 => decimal 26)
-                // Rotate Register by count
-                // - r     = target register
-                // - addr  = count
-                // - ind   = L/R bit (1 = left, 0 = right)
-                // - A/L is ignored for rotate in this implementation
-                case 26 -> {
-                    int count = addr & 0x1F;
-                    int lr = ind & 0x1;          // 1 = left, 0 = right
-                    int value = s.getGPR(r) & 0xFFFF;
-
-                    // 0 means no rotate
-                    if (count == 0) {
-                        return "[STEP] RRC no-op (count = 0)\n";
-                    }
-
-                    // rotating by 16 is equivalent to rotating by 0 on a 16 bit register
-                    count &= 0x0F;
-
-                    int result;
-                    if (count == 0) {
-                        result = value;
-                    } else if (lr == 1) {
-                        // rotate left on 16 bits
-                        result = ((value << count) | (value >>> (16 - count))) & 0xFFFF;
-                    } else {
-                        // rotate right on 16 bits
-                        result = ((value >>> count) | (value << (16 - count))) & 0xFFFF;
-                    }
-
-                    s.setGPR(r, result);
-
-                    return "[STEP] RRC R" + r + " -> " + Memory.toOct6(result) + "\n";
-                }
-
-                // -------------------------------------------------
-                // Index Register Load / Store INstructions
-                // -------------------------------------------------
-
-                // LDX (octal 041 => decimal 33): X[ix] <- MEM[EA_no_index]
-                // NOTE: For LDX, the ix field indicates which index register to load.
-                case 33 -> {
-                    int x = ix; // 1..3 expected
-                    if (x == 0) {
-                        halted = true;
-                        return "[FAULT] LDX with X=0 is invalid.\n";
-                    }
-
-                    int ea = computeEA_noIndex(ind, addr);
-                    int val = cache.read(ea);
-                    s.setIXR(x, val);
-
-                    return "[STEP] LDX X" + x + " <- MEM[" + Memory.toOct6(ea) + "] = " +
-                            Memory.toOct6(val) + "\n";
-                }
-
-                // STX (octal 042 => decimal 34): MEM[EA] <- X[ix]
-                // NOTE: For STX, the ix field indicates which index register is the source.
-                case 34 -> {
-                    int x = ix; // 1..3 expected
-                    if (x == 0) {
-                        halted = true;
-                        return "[FAULT] STX with X=0 is invalid.\n";
-                    }
-                    int ea = computeEA_noIndex(ind, addr);
-                    int val = s.getIXR(x);
-                    cache.write(ea, val);
-                    return "[STEP] STX MEM[" + Memory.toOct6(ea) + "] <- X" + x
-                            + " = " + Memory.toOct6(val) + "\n";
-                }
-
-                // -------------------------------------------------
-                // I/O Instructions
-                // -------------------------------------------------
-
-                // IN (octal 061 => decimal 49)
-                // Input one character from device into register r
-                case 49 -> {
-                    int devid = addr & 0x1F;
-
-                    // IN with keyboard (0) and card reader (2)
-                    if (devid != 0 && devid != 2) {
-                        halted = true;
-                        return "[FAULT] IN only supports device 0 (keyboard) or 2 (card reader).\n";
-                    }
-
-                    int ch = inputReader.getAsInt();
-
-                    // no input, restore PC
-                    if (ch < 0) {
-                        s.setPC(pc0);
-                        return "[STEP] IN waiting/no input available on device " + devid + "\n";
-                    }
-
-                    // store the character code in the target register
-                    s.setGPR(r, ch & 0xFFFF);
-
-                    return "[STEP] IN R" + r + " <- " + Memory.toOct6(ch & 0xFFFF)
-                            + " from device " + devid + "\n";
-                }
-
-                // OUT (octal 062 => decimal 50)
-                // Output one character from register r to device
-                case 50 -> {
-                    int devid = addr & 0x1F;
-
-                    //  OUT with printer (1)
-                    if (devid != 1) {
-                        halted = true;
-                        return "[FAULT] OUT only supports device 1 (console printer).\n";
-                    }
-
-                    int value = s.getGPR(r) & 0xFF;
-
-                    // send the low 8 bits as one character to the output device
-                    outputWriter.accept(value);
-
-                    return "[STEP] OUT device 1 <- R" + r
-                            + " = " + Memory.toOct6(value) + "\n";
-                }
-
-                // -------------------------------------------------
-                // Register to Register / Mult-Div / Logical Instructions
-                // -------------------------------------------------
-
-                // MLT (octal 070 => decimal 56)
-                // rx, rx+1 <- c(rx) * c(ry)
-                // rx must be 0 or 2
-                // ry must be 0 or 2
-                case 56 -> {
-                    int rx = r;
-                    int ry = ix;
-
-                    if (!isValidRxRyPair(rx, ry)) {
-                        halted = true;
-                        return "[FAULT] MLT requires rx and ry to be 0 or 2.\n";
-                    }
-
-                    long left = toSigned16(s.getGPR(rx));
-                    long right = toSigned16(s.getGPR(ry));
-                    long product = left * right;
-
-                    // clear arithmetic overflow/underflow bits before updating
-                    clearArithmeticCC();
-
-                    // set overflow if the signed product does not fit in 16 bits
-                    if (product > Short.MAX_VALUE || product < Short.MIN_VALUE) {
-                        setCCBit(0, true);
-                    }
-
-                    // Store full 32-bit product across rx (high) and rx+1 (low).
-                    int high = (int) ((product >>> 16) & 0xFFFF);
-                    int low = (int) (product & 0xFFFF);
-
-                    s.setGPR(rx, high);
-                    s.setGPR(rx + 1, low);
-
-                    return "[STEP] MLT R" + rx + ",R" + ry
-                            + " -> high=" + Memory.toOct6(high)
-                            + " low=" + Memory.toOct6(low) + "\n";
-                }
-
-                // DVD (octal 071 => decimal 57)
-                // rx <- quotient
-                // rx+1 <- remainder
-                // rx must be 0 or 2
-                // ry must be 0 or 2
-                // if c(ry) = 0, set DIVZERO flag
-                case 57 -> {
-                    int rx = r;
-                    int ry = ix;
-
-                    if (!isValidRxRyPair(rx, ry)) {
-                        halted = true;
-                        return "[FAULT] DVD requires rx and ry to be 0 or 2.\n";
-                    }
-
-                    int divisor = toSigned16(s.getGPR(ry));
-
-                    setCCBit(2, false);
-
-                    if (divisor == 0) {
-                        setCCBit(2, true);
-                        return "[STEP] DVD divide by zero flag set.\n";
-                    }
-
-                    int dividend = toSigned16(s.getGPR(rx));
-                    int quotient = dividend / divisor;
-                    int remainder = dividend % divisor;
-
-                    s.setGPR(rx, quotient & 0xFFFF);
-                    s.setGPR(rx + 1, remainder & 0xFFFF);
-
-                    return "[STEP] DVD R" + rx + ",R" + ry
-                            + " -> quotient=" + Memory.toOct6(quotient & 0xFFFF)
-                            + " remainder=" + Memory.toOct6(remainder & 0xFFFF) + "\n";
-                }
-
-                // TRR (octal 072 => decimal 58)
-                // If c(rx) = c(ry), set EQUAL flag, else clear it
-                case 58 -> {
-                    int rx = r;
-                    int ry = ix;
-
-                    boolean equal = (s.getGPR(rx) & 0xFFFF) == (s.getGPR(ry) & 0xFFFF);
-                    setCCBit(3, equal);
-
-                    return "[STEP] TRR R" + rx + ",R" + ry
-                            + (equal ? " -> equal\n" : " -> not equal\n");
-                }
-
-                // AND (octal 073 => decimal 59)
-                // c(rx) <- c(rx) AND c(ry)
-                case 59 -> {
-                    int rx = r;
-                    int ry = ix;
-
-                    int result = (s.getGPR(rx) & s.getGPR(ry)) & 0xFFFF;
-                    s.setGPR(rx, result);
-
-                    return "[STEP] AND R" + rx + ",R" + ry
-                            + " -> " + Memory.toOct6(result) + "\n";
-                }
-
-                // ORR (octal 074 => decimal 60)
-                // c(rx) <- c(rx) OR c(ry)
-                case 60 -> {
-                    int rx = r;
-                    int ry = ix;
-
-                    int result = (s.getGPR(rx) | s.getGPR(ry)) & 0xFFFF;
-                    s.setGPR(rx, result);
-
-                    return "[STEP] ORR R" + rx + ",R" + ry
-                            + " -> " + Memory.toOct6(result) + "\n";
-                }
-
-                // NOT (octal 075 => decimal 61)
-                // c(rx) <- NOT c(rx)
-                case 61 -> {
-                    int rx = r;
-
-                    int result = (~s.getGPR(rx)) & 0xFFFF;
-                    s.setGPR(rx, result);
-
-                    return "[STEP] NOT R" + rx + " -> "
-                            + Memory.toOct6(result) + "\n";
-                }
-
-                // -------------------------------------------------
-                // Unsupported Opcode
-                // -------------------------------------------------
-                default -> {
-                    halted = true;
-                    return "[FAULT] Unsupported opcode=" + opcode + " IR=" + Memory.toOct6(ir) + "\n";
-                }
-            }
+            return retire(d.op.exec(this));
         } catch (IllegalArgumentException ex) {
             // Convert helper/memory exceptions into a simulator fault instead
             // of crashing the whole program.
-            halted = true;
-            return "[FAULT] " + ex.getMessage() + "\n";
+            return fault(ex.getMessage());
+        }
+    }
+
+    /* ==========================
+     * Entry points for BlockEngine / translated code
+     * ========================== */
+
+    /**
+     * Run one instruction through the interpreter.
+     *
+     * @return EXEC_* result code
+     */
+    int executeOne() {
+        return execute();
+    }
+
+    /**
+     * Fetch step for translated code.
+     *
+     * Performs exactly the interpreter's fetch (MAR, cache read, MBR, IR, PC++).
+     * If the fetched word is no longer the one the block was translated from,
+     * the new word is executed by the interpreter and EXEC_BAIL (or its
+     * non-OK status) tells the block to stop.
+     *
+     * @param pc0           address of the instruction
+     * @param expectedWord  word the block was translated from
+     * @return              EXEC_OK to run the translated operation, otherwise an exit code
+     */
+    int blockFetch(int pc0, int expectedWord) {
+        s.setMAR(pc0);
+        lastPC = pc0;
+
+        int instr;
+        try {
+            instr = icache.read(pc0);
+        } catch (IllegalArgumentException ex) {
+            last = null;
+            return fault("Fetch address out of range: " + pc0);
+        }
+        if (trace != null) {
+            trace.record(TraceRecorder.FETCH, pc0);
+        }
+
+        s.setMBR(instr);
+        s.setIR(instr);
+        s.setPC(pc0 + 1);
+
+        if (instr == expectedWord) {
+            return EXEC_OK;
+        }
+        int status = dispatch(pc0, instr);
+        return status == EXEC_OK ? EXEC_BAIL : status;
+    }
+
+    /**
+     * Count an instruction as retired when it completed (OK or HLT).
+     *
+     * @param status    EXEC_* code returned by an op method
+     * @return          the same status
+     */
+    int retire(int status) {
+        if (status == EXEC_OK || status == EXEC_HALT) {
+            instructionCount++;
+        }
+        return status;
+    }
+
+    /**
+     * Turn an exception escaping translated code into the same fault the
+     * interpreter would report.
+     */
+    int faultFrom(IllegalArgumentException ex) {
+        return fault(ex.getMessage());
+    }
+
+    MachineState state() {
+        return s;
+    }
+
+    /** @return hits in all of this CPU's caches */
+    private long cacheHits() {
+        return icache == dcache ? icache.getHitCount() : icache.getHitCount() + dcache.getHitCount();
+    }
+
+    /** @return misses in all of this CPU's caches */
+    private long cacheMisses() {
+        return icache == dcache ? icache.getMissCount() : icache.getMissCount() + dcache.getMissCount();
+    }
+
+    /**
+     * Mnemonic per implemented opcode, null for unsupported opcodes.
+     * Every non-null entry has a matching op&lt;MNEMONIC&gt;(r, ix, ind, addr)
+     * method, which is what the block translator calls from generated code.
+     *
+     * @return 64-entry mnemonic table
+     */
+    private static String[] buildMnemonics() {
+        String[] m = new String[64];
+        m[0] = "HLT";   m[1] = "LDR";   m[2] = "STR";   m[3] = "LDA";
+        m[4] = "AMR";   m[5] = "SMR";   m[6] = "AIR";   m[7] = "SIR";
+        m[8] = "JZ";    m[9] = "JNE";   m[10] = "JCC";  m[11] = "JMA";
+        m[12] = "JSR";  m[13] = "RFS";  m[14] = "SOB";  m[15] = "JGE";
+        m[25] = "SRC";  m[26] = "RRC";
+        m[33] = "LDX";  m[34] = "STX";
+        m[49] = "IN";   m[50] = "OUT";
+        m[56] = "MLT";  m[57] = "DVD";  m[58] = "TRR";
+        m[59] = "AND";  m[60] = "ORR";  m[61] = "NOT";
+        return m;
+    }
+
+    /* ==========================
+     * Instruction handlers
+     * ========================== */
+
+    // HLT (octal 000 => decimal 0)
+    int opHLT(int r, int ix, int ind, int addr) {
+        halted = true;
+        return EXEC_HALT;
+    }
+
+    // LDR (octal 001 => decimal 1): R[r] <- MEM[EA]
+    int opLDR(int r, int ix, int ind, int addr) {
+        return opLDR(r, computeEA(ix, ind, addr));
+    }
+
+    int opLDR(int r, int ea) {
+        int val = readData(ea, lastPC);
+        s.setGPR(r, val);
+        lastEA = ea;
+        lastValue = val;
+        return EXEC_OK;
+    }
+
+    // STR (octal 002 => decimal 2): MEM[EA] <- R[r]
+    int opSTR(int r, int ix, int ind, int addr) {
+        return opSTR(r, computeEA(ix, ind, addr));
+    }
+
+    int opSTR(int r, int ea) {
+        int val = s.getGPR(r);
+        writeData(ea, val);
+        lastEA = ea;
+        lastValue = val;
+        return EXEC_OK;
+    }
+
+    // LDA (octal 003 => decimal 3): R[r] <- EA
+    int opLDA(int r, int ix, int ind, int addr) {
+        return opLDA(r, computeEA(ix, ind, addr));
+    }
+
+    int opLDA(int r, int ea) {
+        s.setGPR(r, ea);
+        lastEA = ea;
+        return EXEC_OK;
+    }
+
+    // -------------------------------------------------
+    // Arithmetic and Logical Instructions
+    // -------------------------------------------------
+
+    // AMR (octal 004 => decimal 4)
+    // R[r] <- R[r] + MEM[EA]
+    int opAMR(int r, int ix, int ind, int addr) {
+        return opAMR(r, computeEA(ix, ind, addr));
+    }
+
+    int opAMR(int r, int ea) {
+        int regVal = toSigned16(s.getGPR(r));
+        int memVal = toSigned16(readData(ea, lastPC));
+        int wideResult = regVal + memVal;
+
+        s.setArithmeticCC(wideResult);
+
+        int finalVal = wideResult & 0xFFFF;
+        s.setGPR(r, finalVal);
+
+        lastEA = ea;
+        lastValue = finalVal;
+        lastAux = memVal & 0xFFFF;
+        return EXEC_OK;
+    }
+
+    // SMR (octal 005 => decimal 5)
+    // R[r] <- R[r] - MEM[EA]
+    int opSMR(int r, int ix, int ind, int addr) {
+        return opSMR(r, computeEA(ix, ind, addr));
+    }
+
+    int opSMR(int r, int ea) {
+        int regVal = toSigned16(s.getGPR(r));
+        int memVal = toSigned16(readData(ea, lastPC));
+        int wideResult = regVal - memVal;
+
+        s.setArithmeticCC(wideResult);
+
+        int finalVal = wideResult & 0xFFFF;
+        s.setGPR(r, finalVal);
+
+        lastEA = ea;
+        lastValue = finalVal;
+        lastAux = memVal & 0xFFFF;
+        return EXEC_OK;
+    }
+
+    // AIR (octal 006 => decimal 6)
+    // R[r] <- R[r] + immed
+    // IX and I are ignored
+    int opAIR(int r, int ix, int ind, int addr) {
+        int immed = addr & 0x1F;
+
+        // If immed is 0, the ISA says do nothing.
+        if (immed == 0) {
+            s.setArithmeticCC(0);
+            return EXEC_OK;
+        }
+
+        int regVal = toSigned16(s.getGPR(r));
+        int wideResult = regVal + immed;
+
+        s.setArithmeticCC(wideResult);
+
+        int finalVal = wideResult & 0xFFFF;
+        s.setGPR(r, finalVal);
+        lastValue = finalVal;
+        return EXEC_OK;
+    }
+
+    // SIR (octal 007 => decimal 7)
+    // R[r] <- R[r] - immed
+    // IX and I are ignored
+    int opSIR(int r, int ix, int ind, int addr) {
+        int immed = addr & 0x1F;
+
+        // If immed is 0, the ISA says do nothing.
+        if (immed == 0) {
+            s.setArithmeticCC(0);
+            return EXEC_OK;
+        }
+
+        int regVal = toSigned16(s.getGPR(r));
+        int wideResult = regVal - immed;
+
+        s.setArithmeticCC(wideResult);
+
+        int finalVal = wideResult & 0xFFFF;
+        s.setGPR(r, finalVal);
+        lastValue = finalVal;
+        return EXEC_OK;
+    }
+
+    // -------------------------------------------------
+    // Transfer Instructions
+    // -------------------------------------------------
+
+    // JZ (octal 010 => decimal 8): if R[r]==0 then PC <- EA
+    int opJZ(int r, int ix, int ind, int addr) {
+        return opJZ(r, computeEA(ix, ind, addr));
+    }
+
+    int opJZ(int r, int ea) {
+        lastEA = ea;
+        lastFlag = (s.getGPR(r) & 0xFFFF) == 0;
+        if (lastFlag) {
+            s.setPC(ea);
+        }
+        return EXEC_OK;
+    }
+
+    // JNE (octal 011 => decimal 9)
+    // If R[r] != 0 then PC <- EA
+    int opJNE(int r, int ix, int ind, int addr) {
+        return opJNE(r, computeEA(ix, ind, addr));
+    }
+
+    int opJNE(int r, int ea) {
+        lastEA = ea;
+        lastFlag = (s.getGPR(r) & 0xFFFF) != 0;
+        if (lastFlag) {
+            s.setPC(ea);
+        }
+        return EXEC_OK;
+    }
+
+    // JCC (octal 012 => decimal 10)
+    // If selected CC bit is set, then PC <- EA
+    // Here, the r field is interpreted as the CC bit index:
+    // r = 0..3 selects CC[0]..CC[3]
+    int opJCC(int r, int ix, int ind, int addr) {
+        return opJCC(r, computeEA(ix, ind, addr));
+    }
+
+    int opJCC(int r, int ea) {
+        int ccIndex = r;
+        lastEA = ea;
+        lastFlag = isCCBitSet(ccIndex);
+        if (lastFlag) {
+            s.setPC(ea);
+        }
+        return EXEC_OK;
+    }
+
+    // JMA (octal 013 => decimal 11)
+    // Unconditional jump: PC <- EA
+    // The r field is ignored for this instruction.
+    int opJMA(int r, int ix, int ind, int addr) {
+        return opJMA(r, computeEA(ix, ind, addr));
+    }
+
+    int opJMA(int r, int ea) {
+        s.setPC(ea);
+        lastEA = ea;
+        return EXEC_OK;
+    }
+
+    // JSR (octal 014 => decimal 12)
+    // R3 <- return address
+    // PC <- EA
+    // Since PC was already incremented during fetch,
+    // the current PC already points to the return address.
+    int opJSR(int r, int ix, int ind, int addr) {
+        return opJSR(r, computeEA(ix, ind, addr));
+    }
+
+    int opJSR(int r, int ea) {
+        int returnAddress = s.getPC();
+
+        s.setGPR(3, returnAddress);
+        s.setPC(ea);
+
+        lastEA = ea;
+        lastAux = returnAddress;
+        return EXEC_OK;
+    }
+
+    // RFS (octal 015 => decimal 13)
+    // R0 <- immed
+    // PC <- R3
+    // The immediate comes from the low 5-bit address field.
+    // IX and I are ignored here.
+    int opRFS(int r, int ix, int ind, int addr) {
+        int immed = addr & 0x1F;
+        int returnAddress = s.getGPR(3) & 0xFFF;
+
+        s.setGPR(0, immed);
+        s.setPC(returnAddress);
+
+        lastValue = immed;
+        lastAux = returnAddress;
+        return EXEC_OK;
+    }
+
+    // SOB (octal 016 => decimal 14)
+    // R[r] <- R[r] - 1
+    // If R[r] > 0 then PC <- EA
+    int opSOB(int r, int ix, int ind, int addr) {
+        return opSOB(r, computeEA(ix, ind, addr));
+    }
+
+    int opSOB(int r, int ea) {
+        // Decrement first, then test the new value
+        int newVal = (s.getGPR(r) - 1) & 0xFFFF;
+        s.setGPR(r, newVal);
+
+        lastEA = ea;
+        lastValue = newVal;
+        lastFlag = toSigned16(newVal) > 0;
+        if (lastFlag) {
+            s.setPC(ea);
         }
-        
-        
+        return EXEC_OK;
+    }
+
+    // JGE (octal 017 => decimal 15)
+    // If R[r] >= 0 then PC <- EA
+    // Register values are interpreted as signed 16-bit values.
+    int opJGE(int r, int ix, int ind, int addr) {
+        return opJGE(r, computeEA(ix, ind, addr));
+    }
+
+    int opJGE(int r, int ea) {
+        lastEA = ea;
+        lastFlag = toSigned16(s.getGPR(r)) >= 0;
+        if (lastFlag) {
+            s.setPC(ea);
+        }
+        return EXEC_OK;
+    }
+
+    // -------------------------------------------------
+    // Shift / Rotate INsstructions
+    // -------------------------------------------------
+
+    // SRC (octal 031 => decimal 25)
+    // Shift Register by Count
+    // - r     = target register
+    // - addr  = count
+    // - ind   = L/R bit (1 = left, 0 = right)
+    // - low bit of ix = A/L bit (1 = logical, 0 = arithmetic)
+    int opSRC(int r, int ix, int ind, int addr) {
+        int count = addr & 0x1F;
+        int lr = ind & 0x1;          // 1 = left, 0 = right
+        int al = ix & 0x1;           // 1 = logical, 0 = arithmetic
+        int value = s.getGPR(r) & 0xFFFF;
+
+        // 0 means no shift
+        if (count == 0) {
+            return EXEC_OK;
+        }
+
+        // count as 0..15
+        // masking with 0x0F keeps the operation inside that range
+        count &= 0x0F;
+
+        int result;
+
+        if (lr == 1) {
+            // Left shift: arithmetic and logical discard
+            // shifted-out bits and fill low bits with zeros.
+            result = (value << count) & 0xFFFF;
+        } else {
+            // Right shift:
+            // logical  -> zero-fill using >>>
+            // arithmetic -> sign-extend using signed >>
+            if (al == 1) {
+                result = (value >>> count) & 0xFFFF;
+            } else {
+                result = (toSigned16(value) >> count) & 0xFFFF;
+            }
+        }
+
+        s.setGPR(r, result);
+        lastValue = result;
+        return EXEC_OK;
+    }
+
+    // RRC (octal 032 => decimal 26)
+    // Rotate Register by count
+    // - r     = target register
+    // - addr  = count
+    // - ind   = L/R bit (1 = left, 0 = right)
+    // - A/L is ignored for rotate in this implementation
+    int opRRC(int r, int ix, int ind, int addr) {
+        int count = addr & 0x1F;
+        int lr = ind & 0x1;          // 1 = left, 0 = right
+        int value = s.getGPR(r) & 0xFFFF;
+
+        // 0 means no rotate
+        if (count == 0) {
+            return EXEC_OK;
+        }
+
+        // rotating by 16 is equivalent to rotating by 0 on a 16 bit register
+        count &= 0x0F;
+
+        int result;
+        if (count == 0) {
+            result = value;
+        } else if (lr == 1) {
+            // rotate left on 16 bits
+            result = ((value << count) | (value >>> (16 - count))) & 0xFFFF;
+        } else {
+            // rotate right on 16 bits
+            result = ((value >>> count) | (value << (16 - count))) & 0xFFFF;
+        }
+
+        s.setGPR(r, result);
+        lastValue = result;
+        return EXEC_OK;
+    }
+
+    // -------------------------------------------------
+    // Index Register Load / Store INstructions
+    // -------------------------------------------------
+
+    // LDX (octal 041 => decimal 33): X[ix] <- MEM[EA_no_index]
+    // NOTE: For LDX, the ix field indicates which index register to load.
+    int opLDX(int r, int ix, int ind, int addr) {
+        int x = ix; // 1..3 expected
+        if (x == 0) {
+            return fault("LDX with X=0 is invalid.");
+        }
+
+        return opLDX(x, computeEA_noIndex(ind, addr));
+    }
+
+    // LDX once EA is known; x is 1..3
+    int opLDX(int x, int ea) {
+        int val = readData(ea, lastPC);
+        s.setIXR(x, val);
+
+        lastEA = ea;
+        lastValue = val;
+        return EXEC_OK;
+    }
+
+    // STX (octal 042 => decimal 34): MEM[EA] <- X[ix]
+    // NOTE: For STX, the ix field indicates which index register is the source.
+    int opSTX(int r, int ix, int ind, int addr) {
+        int x = ix; // 1..3 expected
+        if (x == 0) {
+            return fault("STX with X=0 is invalid.");
+        }
+        return opSTX(x, computeEA_noIndex(ind, addr));
+    }
+
+    // STX once EA is known; x is 1..3
+    int opSTX(int x, int ea) {
+        int val = s.getIXR(x);
+        writeData(ea, val);
+
+        lastEA = ea;
+        lastValue = val;
+        return EXEC_OK;
+    }
+
+    // -------------------------------------------------
+    // I/O Instructions
+    // -------------------------------------------------
+
+    // IN (octal 061 => decimal 49)
+    // Input one character from device into register r
+    int opIN(int r, int ix, int ind, int addr) {
+        int devid = addr & 0x1F;
+
+        // IN with keyboard (0) and card reader (2)
+        if (devid != 0 && devid != 2) {
+            return fault("IN only supports device 0 (keyboard) or 2 (card reader).");
+        }
+
+        int ch = inputReader.getAsInt();
+
+        // no input, restore PC
+        if (ch < 0) {
+            s.setPC(lastPC);
+            return EXEC_WAIT;
+        }
+
+        // store the character code in the target register
+        s.setGPR(r, ch & 0xFFFF);
+        lastValue = ch & 0xFFFF;
+        return EXEC_OK;
+    }
+
+    // OUT (octal 062 => decimal 50)
+    // Output one character from register r to device
+    int opOUT(int r, int ix, int ind, int addr) {
+        int devid = addr & 0x1F;
+
+        //  OUT with printer (1)
+        if (devid != 1) {
+            return fault("OUT only supports device 1 (console printer).");
+        }
+
+        int value = s.getGPR(r) & 0xFF;
+
+        // send the low 8 bits as one character to the output device
+        outputWriter.accept(value);
+        lastValue = value;
+        return EXEC_OK;
+    }
+
+    // -------------------------------------------------
+    // Register to Register / Mult-Div / Logical Instructions
+    // -------------------------------------------------
+
+    // MLT (octal 070 => decimal 56)
+    // rx, rx+1 <- c(rx) * c(ry)
+    // rx must be 0 or 2
+    // ry must be 0 or 2
+    int opMLT(int r, int ix, int ind, int addr) {
+        int rx = r;
+        int ry = ix;
+
+        if (!isValidRxRyPair(rx, ry)) {
+            return fault("MLT requires rx and ry to be 0 or 2.");
+        }
+
+        long left = toSigned16(s.getGPR(rx));
+        long right = toSigned16(s.getGPR(ry));
+        long product = left * right;
+
+        // overflow if the signed product does not fit in 16 bits
+        // (|product| <= 2^30, so it fits in an int)
+        s.setMultiplyCC((int) product);
+
+        // Store full 32-bit product across rx (high) and rx+1 (low).
+        int high = (int) ((product >>> 16) & 0xFFFF);
+        int low = (int) (product & 0xFFFF);
+
+        s.setGPR(rx, high);
+        s.setGPR(rx + 1, low);
+
+        lastValue = high;
+        lastAux = low;
+        return EXEC_OK;
+    }
+
+    // DVD (octal 071 => decimal 57)
+    // rx <- quotient
+    // rx+1 <- remainder
+    // rx must be 0 or 2
+    // ry must be 0 or 2
+    // if c(ry) = 0, set DIVZERO flag
+    int opDVD(int r, int ix, int ind, int addr) {
+        int rx = r;
+        int ry = ix;
+
+        if (!isValidRxRyPair(rx, ry)) {
+            return fault("DVD requires rx and ry to be 0 or 2.");
+        }
+
+        int divisor = toSigned16(s.getGPR(ry));
+
+        // lastFlag records the divide-by-zero case for the log
+        lastFlag = divisor == 0;
+        s.setDivZeroCC(lastFlag);
+        if (lastFlag) {
+            return EXEC_OK;
+        }
+
+        int dividend = toSigned16(s.getGPR(rx));
+        int quotient = dividend / divisor;
+        int remainder = dividend % divisor;
+
+        s.setGPR(rx, quotient & 0xFFFF);
+        s.setGPR(rx + 1, remainder & 0xFFFF);
+
+        lastValue = quotient & 0xFFFF;
+        lastAux = remainder & 0xFFFF;
+        return EXEC_OK;
+    }
+
+    // TRR (octal 072 => decimal 58)
+    // If c(rx) = c(ry), set EQUAL flag, else clear it
+    int opTRR(int r, int ix, int ind, int addr) {
+        int rx = r;
+        int ry = ix;
+
+        boolean equal = (s.getGPR(rx) & 0xFFFF) == (s.getGPR(ry) & 0xFFFF);
+        s.setEqualCC(equal);
+        lastFlag = equal;
+        return EXEC_OK;
+    }
+
+    // AND (octal 073 => decimal 59)
+    // c(rx) <- c(rx) AND c(ry)
+    int opAND(int r, int ix, int ind, int addr) {
+        int rx = r;
+        int ry = ix;
+
+        int result = (s.getGPR(rx) & s.getGPR(ry)) & 0xFFFF;
+        s.setGPR(rx, result);
+        lastValue = result;
+        return EXEC_OK;
+    }
+
+    // ORR (octal 074 => decimal 60)
+    // c(rx) <- c(rx) OR c(ry)
+    int opORR(int r, int ix, int ind, int addr) {
+        int rx = r;
+        int ry = ix;
+
+        int result = (s.getGPR(rx) | s.getGPR(ry)) & 0xFFFF;
+        s.setGPR(rx, result);
+        lastValue = result;
+        return EXEC_OK;
+    }
+
+    // NOT (octal 075 => decimal 61)
+    // c(rx) <- NOT c(rx)
+    int opNOT(int r, int ix, int ind, int addr) {
+        int rx = r;
+
+        int result = (~s.getGPR(rx)) & 0xFFFF;
+        s.setGPR(rx, result);
+        lastValue = result;
+        return EXEC_OK;
+    }
+
+    // -------------------------------------------------
+    // Unsupported Opcode
+    // -------------------------------------------------
+    int opUnsupported(int opcode, int word) {
+        return fault("Unsupported opcode=" + opcode + " IR=" + Memory.toOct6(word));
+    }
+
+    /**
+     * Halt the CPU and remember why, for step()/getLastFault().
+     *
+     * @param message   fault description without the "[FAULT]" prefix
+     * @return          EXEC_FAULT
+     */
+    private int fault(String message) {
+        halted = true;
+        lastFault = message;
+        return EXEC_FAULT;
+    }
+
+    /**
+     * Description of the most recent fault, or null if the CPU has not faulted.
+     *
+     * @return last fault message
+     */
+    public String getLastFault() {
+        return lastFault;
+    }
+
+    /**
+     * Map an execute() result code onto the public run status.
+     */
+    static RunStatus toRunStatus(int status) {
+        return switch (status) {
+            case EXEC_HALT -> RunStatus.HALTED;
+            case EXEC_WAIT -> RunStatus.WAITING_FOR_INPUT;
+            default -> RunStatus.FAULT;
+        };
     }
 
     /* ==========================
      * Helpers
      * ========================== */
 
+    /**
+     * Data-side read through the D-cache, recorded when tracing.
+     *
+     * @param ea    address
+     * @param pc    instruction address for the prefetcher, or -1 (pointer reads)
+     * @return      word read
+     */
+    private int readData(int ea, int pc) {
+        int val = dcache.read(ea, pc);
+        if (trace != null) {
+            trace.record(TraceRecorder.READ, ea);
+        }
+        return val;
+    }
+
+    /**
+     * Store through the D-cache, recorded when tracing.
+     *
+     * @param ea    address
+     * @param val   word to store
+     */
+    private void writeData(int ea, int val) {
+        dcache.write(ea, val, lastPC);
+        if (trace != null) {
+            trace.record(TraceRecorder.WRITE, ea);
+        }
+    }
+
     /**
      * Compute Effective Address for BASIC format instructions that support indexing.
      *
@@ -712,9 +1071,9 @@ public final class CPU {
             ea = ea & 0xFFF;
         }
 
-        // Indirect
+        // Indirect (pointer reads are left out of the instruction's stride history)
         if (ind == 1) {
-            int ptr = cache.read(ea);
+            int ptr = readData(ea, -1);
             ea = ptr & 0xFFF;
         }
 
@@ -741,7 +1100,7 @@ public final class CPU {
         int ea = addr5 & 0xFFF;
 
         if (ind == 1) {
-            int ptr = cache.read(ea);
+            int ptr = readData(ea, -1);
             ea = ptr & 0xFFF;
         }
 
@@ -779,62 +1138,6 @@ public final class CPU {
         return ((s.getCC() >>> ccIndex) & 0x1) == 1;
     }
 
-    /**
-     * Set or clear one condition-code bit.
-     *
-     * CC bit convention:
-     * 0 = overflow
-     * 1 = underflow
-     * 2 = division by zero
-     * 3 = equal-or-not
-     *
-     * @param bitIndex CC bit to modify
-     * @param value true to set the bit, false to clear it
-     */
-    private void setCCBit(int bitIndex, boolean value) {
-        int cc = s.getCC();
-
-        if (value) {
-            cc |= (1 << bitIndex);
-        } else {
-            cc &= ~(1 << bitIndex);
-        }
-
-        s.setCC(cc);
-    }
-
-    /**
-     * Clear only the arithmetic CC bits before an arithmetic operation.
-     *
-     * We leave:
-     * - DIVZERO (bit 2)
-     * - EQUALORNOT (bit 3)
-     *
-     * unchanged here because those belong to other instructions.
-     */
-    private void clearArithmeticCC() {
-        setCCBit(0, false); // overflow
-        setCCBit(1, false); // underflow
-    }
-
-    /**
-     * Update arithmetic CC flags from a full-width signed result.
-     *
-     * If the signed result is larger than 16-bit signed max, set overflow.
-     * If the signed result is smaller than 16-bit signed min, set underflow.
-     *
-     * @param wideResult signed arithmetic result before 16-bit truncation
-     */
-    private void updateArithmeticCC(int wideResult) {
-        clearArithmeticCC();
-
-        if (wideResult > Short.MAX_VALUE) {
-            setCCBit(0, true); // overflow
-        } else if (wideResult < Short.MIN_VALUE) {
-            setCCBit(1, true); // underflow
-        }
-    }
-
     /**
      * MLT and DVD require rx and ry to be register pair starts.
      * Valid values are 0 or 2 only.
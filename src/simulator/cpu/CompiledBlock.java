@@ -0,0 +1,19 @@
+package simulator.cpu;
+
+/**
+ * A basic block translated to JVM bytecode by BlockTranslator.
+ *
+ * Implementations are generated hidden classes; run() performs the fetch and
+ * operation of every instruction in the block, in order, against the CPU.
+ */
+interface CompiledBlock {
+
+    /**
+     * Execute the block.
+     *
+     * @param cpu   CPU whose state, cache and devices the block operates on
+     * @return      EXEC_OK if the whole block ran, otherwise the exit code of
+     *              the instruction that stopped it
+     */
+    int run(CPU cpu);
+}
@@ -0,0 +1,51 @@
+package simulator.cpu;
+
+import java.util.Arrays;
+import simulator.machine.Memory;
+import simulator.machine.MemoryWriteListener;
+
+/**
+ * Threaded-code table: one predecoded, compiled instruction per memory address.
+ *
+ * - Filled lazily the first time an address is fetched.
+ * - Registered as a MemoryWriteListener, so any write to an address drops
+ *   its entry and self-modifying code is recompiled on the next fetch.
+ * - An entry is only used if its word matches the fetched word, so a write
+ *   that was not reported cannot run a stale instruction.
+ */
+final class DecodeCache implements MemoryWriteListener {
+
+    private final DecodedInstruction[] entries = new DecodedInstruction[Memory.SIZE];
+
+    /**
+     * Return the compiled entry for a fetched word, compiling it on first use
+     * or when the cached entry was built from a different word.
+     *
+     * @param address   fetch address (already validated by the fetch)
+     * @param word      instruction word read at that address
+     * @return          predecoded instruction
+     */
+    DecodedInstruction lookup(int address, int word) {
+        DecodedInstruction d = entries[address];
+        if (d == null || d.word != (word & 0xFFFF)) {
+            d = new DecodedInstruction(word);
+            entries[address] = d;
+        }
+        return d;
+    }
+
+    @Override
+    public void wordWritten(int address) {
+        entries[address] = null;
+    }
+
+    @Override
+    public void rangeWritten(int first, int last) {
+        Arrays.fill(entries, first, last + 1, null);
+    }
+
+    @Override
+    public void memoryCleared() {
+        Arrays.fill(entries, null);
+    }
+}
@@ -0,0 +1,32 @@
+package simulator.cpu;
+
+/**
+ * One predecoded instruction word.
+ *
+ * Basic format: opcode(6) r(2) ix(2) I(1) addr(5)
+ *
+ * Besides the raw fields (kept for StepResult), each entry carries its
+ * compiled Op. Entries are immutable; when the word in memory changes, the
+ * entry is dropped from the DecodeCache and recompiled on the next fetch.
+ * The DecodeCache also compares word with the fetched word before reuse.
+ */
+final class DecodedInstruction {
+
+    final int word;
+    final int opcode;
+    final int r;
+    final int ix;
+    final int ind;
+    final int addr;
+    final Op op;
+
+    DecodedInstruction(int word) {
+        this.word = word & 0xFFFF;
+        this.opcode = (this.word >>> 10) & 0x3F;
+        this.r = (this.word >>> 8) & 0x03;
+        this.ix = (this.word >>> 6) & 0x03;
+        this.ind = (this.word >>> 5) & 0x01;
+        this.addr = this.word & 0x1F;
+        this.op = OpCompiler.compile(this.word);
+    }
+}
@@ -0,0 +1,17 @@
+package simulator.cpu;
+
+/**
+ * One instruction word compiled to threaded code.
+ *
+ * Built once per memory word by OpCompiler with its register, index and
+ * address fields already bound, so executing it is a single call with no
+ * field extraction or opcode switch.
+ */
+interface Op {
+
+    /**
+     * @param cpu   CPU executing the instruction (already fetched into IR)
+     * @return      one of the CPU EXEC_* result codes
+     */
+    int exec(CPU cpu);
+}
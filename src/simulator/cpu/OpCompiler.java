@@ -0,0 +1,70 @@
+package simulator.cpu;
+
+/**
+ * Compiles one instruction word into an Op with its operands bound.
+ *
+ * Specialisations:
+ *  - Memory-reference and transfer instructions with IX = 0 and I = 0 have a
+ *    constant EA (the address field), so their Op skips computeEA entirely.
+ *  - LDX/STX with I = 0 likewise get a constant EA.
+ *  - Everything else binds its fields and calls the CPU's op method.
+ *
+ * Unsupported opcodes compile to an Op that faults, so the interpreter never
+ * needs a fallback path.
+ */
+final class OpCompiler {
+
+    private OpCompiler() {}
+
+    /**
+     * @param word  16-bit instruction word
+     * @return      threaded-code entry for that word
+     */
+    static Op compile(int word) {
+        int opcode = (word >>> 10) & 0x3F;
+        int r = (word >>> 8) & 0x03;
+        int ix = (word >>> 6) & 0x03;
+        int ind = (word >>> 5) & 0x01;
+        int addr = word & 0x1F;
+
+        // no indexing and no indirection: EA is the address field itself
+        boolean direct = ix == 0 && ind == 0;
+
+        return switch (opcode) {
+            case 0 -> cpu -> cpu.opHLT(r, ix, ind, addr);
+            case 1 -> direct ? cpu -> cpu.opLDR(r, addr) : cpu -> cpu.opLDR(r, ix, ind, addr);
+            case 2 -> direct ? cpu -> cpu.opSTR(r, addr) : cpu -> cpu.opSTR(r, ix, ind, addr);
+            case 3 -> direct ? cpu -> cpu.opLDA(r, addr) : cpu -> cpu.opLDA(r, ix, ind, addr);
+            case 4 -> direct ? cpu -> cpu.opAMR(r, addr) : cpu -> cpu.opAMR(r, ix, ind, addr);
+            case 5 -> direct ? cpu -> cpu.opSMR(r, addr) : cpu -> cpu.opSMR(r, ix, ind, addr);
+            case 6 -> cpu -> cpu.opAIR(r, ix, ind, addr);
+            case 7 -> cpu -> cpu.opSIR(r, ix, ind, addr);
+            case 8 -> direct ? cpu -> cpu.opJZ(r, addr) : cpu -> cpu.opJZ(r, ix, ind, addr);
+            case 9 -> direct ? cpu -> cpu.opJNE(r, addr) : cpu -> cpu.opJNE(r, ix, ind, addr);
+            case 10 -> direct ? cpu -> cpu.opJCC(r, addr) : cpu -> cpu.opJCC(r, ix, ind, addr);
+            case 11 -> direct ? cpu -> cpu.opJMA(r, addr) : cpu -> cpu.opJMA(r, ix, ind, addr);
+            case 12 -> direct ? cpu -> cpu.opJSR(r, addr) : cpu -> cpu.opJSR(r, ix, ind, addr);
+            case 13 -> cpu -> cpu.opRFS(r, ix, ind, addr);
+            case 14 -> direct ? cpu -> cpu.opSOB(r, addr) : cpu -> cpu.opSOB(r, ix, ind, addr);
+            case 15 -> direct ? cpu -> cpu.opJGE(r, addr) : cpu -> cpu.opJGE(r, ix, ind, addr);
+            case 25 -> cpu -> cpu.opSRC(r, ix, ind, addr);
+            case 26 -> cpu -> cpu.opRRC(r, ix, ind, addr);
+            // ix selects the index register here, so only I decides whether EA is constant
+            case 33 -> ix != 0 && ind == 0
+                    ? cpu -> cpu.opLDX(ix, addr)
+                    : cpu -> cpu.opLDX(r, ix, ind, addr);
+            case 34 -> ix != 0 && ind == 0
+                    ? cpu -> cpu.opSTX(ix, addr)
+                    : cpu -> cpu.opSTX(r, ix, ind, addr);
+            case 49 -> cpu -> cpu.opIN(r, ix, ind, addr);
+            case 50 -> cpu -> cpu.opOUT(r, ix, ind, addr);
+            case 56 -> cpu -> cpu.opMLT(r, ix, ind, addr);
+            case 57 -> cpu -> cpu.opDVD(r, ix, ind, addr);
+            case 58 -> cpu -> cpu.opTRR(r, ix, ind, addr);
+            case 59 -> cpu -> cpu.opAND(r, ix, ind, addr);
+            case 60 -> cpu -> cpu.opORR(r, ix, ind, addr);
+            case 61 -> cpu -> cpu.opNOT(r, ix, ind, addr);
+            default -> cpu -> cpu.opUnsupported(opcode, word);
+        };
+    }
+}
@@ -0,0 +1,16 @@
+package simulator.cpu;
+
+/**
+ * Compact result code returned by the headless run loop in CPU.
+ *
+ * - HALTED:            HLT executed (or the CPU was already halted)
+ * - WAITING_FOR_INPUT: IN found no character; PC still points at the IN
+ * - FAULT:             an invalid access/opcode stopped the CPU
+ * - BUDGET_EXHAUSTED:  the instruction budget ran out before any of the above
+ */
+public enum RunStatus {
+    HALTED,
+    WAITING_FOR_INPUT,
+    FAULT,
+    BUDGET_EXHAUSTED
+}
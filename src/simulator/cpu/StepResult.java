@@ -0,0 +1,295 @@
+package simulator.cpu;
+
+import simulator.machine.MachineState;
+import simulator.machine.Memory;
+
+/**
+ * What one CPU.step() did, as plain fields instead of a log line.
+ *
+ * Notes:
+ *  - A CPU owns exactly one StepResult and refills it on every step(), so a
+ *    caller that wants to keep a result must copy the values it needs.
+ *  - format() (and toString()) produce the "[STEP] ..." text the GUI log has
+ *    always shown; callers that do not display it never pay for it.
+ *  - For MLT/DVD the written register is rx; rx+1 also changes.
+ */
+public final class StepResult {
+
+    /**
+     * How the step ended.
+     */
+    public enum Outcome {
+        /** instruction completed, CPU keeps running */
+        COMPLETED,
+        /** HLT executed */
+        HALTED,
+        /** IN found no input; PC still points at the IN */
+        WAITING_FOR_INPUT,
+        /** instruction faulted; CPU is halted */
+        FAULT,
+        /** CPU was already halted, nothing executed */
+        IGNORED
+    }
+
+    private Outcome outcome = Outcome.IGNORED;
+    private int pc;
+    private int word;
+    private int opcode = -1;
+    private int r;
+    private int ix;
+    private int addr;
+    private int ea = -1;
+    private int value;
+    private int aux;
+    private boolean flag;
+    private String fault;
+
+    private int writtenRegister = -1;   // 0..3 = R0..R3, 4..6 = X1..X3
+    private int oldValue;
+    private int newValue;
+    private long cacheHits;
+    private long cacheMisses;
+
+    // register values before the step, indexed like writtenRegister
+    private final int[] before = new int[7];
+
+    StepResult() {}
+
+    public Outcome getOutcome() { return outcome; }
+
+    public boolean isWaitingForInput() { return outcome == Outcome.WAITING_FOR_INPUT; }
+
+    /** @return address the instruction was fetched from */
+    public int getPC() { return pc; }
+
+    /** @return fetched instruction word */
+    public int getWord() { return word; }
+
+    /** @return opcode, or -1 if nothing was decoded (ignored step or fetch fault) */
+    public int getOpcode() { return opcode; }
+
+    /** @return mnemonic, or null for an unsupported/undecoded opcode */
+    public String getMnemonic() {
+        return opcode < 0 ? null : CPU.MNEMONICS[opcode];
+    }
+
+    /** @return effective address, or -1 if the instruction has none */
+    public int getEA() { return ea; }
+
+    /** @return true if a JZ/JNE/JCC/SOB/JGE branch was taken */
+    public boolean isBranchTaken() {
+        return outcome == Outcome.COMPLETED && isConditionalBranch(opcode) && flag;
+    }
+
+    /** @return written register name ("R0".."R3", "X1".."X3"), or null if none */
+    public String getWrittenRegister() {
+        if (writtenRegister < 0) {
+            return null;
+        }
+        return writtenRegister < 4 ? "R" + writtenRegister : "X" + (writtenRegister - 3);
+    }
+
+    public int getOldValue() { return oldValue; }
+
+    public int getNewValue() { return newValue; }
+
+    /** @return cache hits during this step (fetch + operands) */
+    public long getCacheHits() { return cacheHits; }
+
+    /** @return cache misses during this step (fetch + operands) */
+    public long getCacheMisses() { return cacheMisses; }
+
+    /** @return fault message without the "[FAULT]" prefix, or null */
+    public String getFault() {
+        return outcome == Outcome.FAULT ? fault : null;
+    }
+
+    /**
+     * Build the verbose log line for this step.
+     * The text matches what step() used to return as a String.
+     *
+     * @return log line for the GUI debugger
+     */
+    public String format() {
+        if (outcome == Outcome.IGNORED) {
+            return "[STEP] CPU is halted; ignoring step.\n";
+        }
+        if (outcome == Outcome.FAULT) {
+            return "[FAULT] " + fault + "\n";
+        }
+
+        String ea = Memory.toOct6(this.ea);
+        String value = Memory.toOct6(this.value);
+
+        return switch (opcode) {
+            case 0 -> "[STEP] FETCH @" + Memory.toOct6(pc) +
+                    " IR=" + Memory.toOct6(word) + " (HLT)\n";
+            case 1 -> "[STEP] LDR R" + r + " <- MEM[" + ea + "] = " + value + "\n";
+            case 2 -> "[STEP] STR MEM[" + ea + "] <- R" + r + " = " + value + "\n";
+            case 3 -> "[STEP] LDA R" + r + " <- EA " + ea + "\n";
+            case 4 -> "[STEP] AMR R" + r + " <- " + value
+                    + " using MEM[" + ea + "] = " + Memory.toOct6(aux) + "\n";
+            case 5 -> "[STEP] SMR R" + r + " <- " + value
+                    + " using MEM[" + ea + "] = " + Memory.toOct6(aux) + "\n";
+            case 6 -> addr == 0
+                    ? "[STEP] AIR no-op (immed = 0)\n"
+                    : "[STEP] AIR R" + r + " <- " + value
+                            + " using immed " + Memory.toOct6(addr) + "\n";
+            case 7 -> addr == 0
+                    ? "[STEP] SIR no-op (immed = 0)\n"
+                    : "[STEP] SIR R" + r + " <- " + value
+                            + " using immed " + Memory.toOct6(addr) + "\n";
+            case 8 -> flag
+                    ? "[STEP] JZ taken -> PC <- " + ea + "\n"
+                    : "[STEP] JZ not taken (R" + r + " != 0)\n";
+            case 9 -> flag
+                    ? "[STEP] JNE taken -> PC <- " + ea + "\n"
+                    : "[STEP] JNE not taken (R" + r + " == 0)\n";
+            case 10 -> flag
+                    ? "[STEP] JCC taken on CC[" + r + "] -> PC <- " + ea + "\n"
+                    : "[STEP] JCC not taken on CC[" + r + "]\n";
+            case 11 -> "[STEP] JMA -> PC <- " + ea + "\n";
+            case 12 -> "[STEP] JSR R3 <- " + Memory.toOct6(aux) + ", PC <- " + ea + "\n";
+            case 13 -> "[STEP] RFS R0 <- " + value
+                    + ", PC <- R3 = " + Memory.toOct6(aux) + "\n";
+            case 14 -> flag
+                    ? "[STEP] SOB taken: R" + r + " <- " + value + ", PC <- " + ea + "\n"
+                    : "[STEP] SOB not taken: R" + r + " <- " + value + "\n";
+            case 15 -> flag
+                    ? "[STEP] JGE taken -> PC <- " + ea + "\n"
+                    : "[STEP] JGE not taken (R" + r + " < 0)\n";
+            case 25 -> addr == 0
+                    ? "[STEP] SRC no-op (count = 0)\n"
+                    : "[STEP] SRC R" + r + " -> " + value + "\n";
+            case 26 -> addr == 0
+                    ? "[STEP] RRC no-op (count = 0)\n"
+                    : "[STEP] RRC R" + r + " -> " + value + "\n";
+            case 33 -> "[STEP] LDX X" + ix + " <- MEM[" + ea + "] = " + value + "\n";
+            case 34 -> "[STEP] STX MEM[" + ea + "] <- X" + ix + " = " + value + "\n";
+            case 49 -> outcome == Outcome.WAITING_FOR_INPUT
+                    ? "[STEP] IN waiting/no input available on device " + addr + "\n"
+                    : "[STEP] IN R" + r + " <- " + value + " from device " + addr + "\n";
+            case 50 -> "[STEP] OUT device 1 <- R" + r + " = " + value + "\n";
+            case 56 -> "[STEP] MLT R" + r + ",R" + ix
+                    + " -> high=" + value + " low=" + Memory.toOct6(aux) + "\n";
+            case 57 -> flag
+                    ? "[STEP] DVD divide by zero flag set.\n"
+                    : "[STEP] DVD R" + r + ",R" + ix
+                            + " -> quotient=" + value
+                            + " remainder=" + Memory.toOct6(aux) + "\n";
+            case 58 -> "[STEP] TRR R" + r + ",R" + ix
+                    + (flag ? " -> equal\n" : " -> not equal\n");
+            case 59 -> "[STEP] AND R" + r + ",R" + ix + " -> " + value + "\n";
+            case 60 -> "[STEP] ORR R" + r + ",R" + ix + " -> " + value + "\n";
+            case 61 -> "[STEP] NOT R" + r + " -> " + value + "\n";
+            default -> "[STEP] opcode=" + opcode + "\n";
+        };
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+
+    /* ==========================
+     * Filled in by CPU.step()
+     * ========================== */
+
+    /**
+     * Mark this result as "CPU already halted".
+     */
+    StepResult ignored() {
+        outcome = Outcome.IGNORED;
+        opcode = -1;
+        ea = -1;
+        writtenRegister = -1;
+        cacheHits = 0;
+        cacheMisses = 0;
+        return this;
+    }
+
+    /**
+     * Remember register values before the instruction runs, so the written
+     * register's old value can be reported afterwards.
+     */
+    void captureBefore(MachineState s) {
+        for (int i = 0; i < 4; i++) {
+            before[i] = s.getGPR(i);
+        }
+        for (int x = 1; x < 4; x++) {
+            before[3 + x] = s.getIXR(x);
+        }
+    }
+
+    /**
+     * Fill in the result of an executed instruction.
+     *
+     * @param status    EXEC_* code from the CPU
+     * @param d         decoded instruction, or null if the fetch itself faulted
+     */
+    void record(int status, int pc, DecodedInstruction d, int ea, int value, int aux,
+                boolean flag, String fault, long cacheHits, long cacheMisses, MachineState s) {
+        this.outcome = switch (status) {
+            case CPU.EXEC_OK -> Outcome.COMPLETED;
+            case CPU.EXEC_HALT -> Outcome.HALTED;
+            case CPU.EXEC_WAIT -> Outcome.WAITING_FOR_INPUT;
+            default -> Outcome.FAULT;
+        };
+        this.pc = pc;
+        this.value = value;
+        this.aux = aux;
+        this.flag = flag;
+        this.fault = fault;
+        this.cacheHits = cacheHits;
+        this.cacheMisses = cacheMisses;
+
+        if (d == null) {
+            this.opcode = -1;
+            this.ea = -1;
+            this.writtenRegister = -1;
+            return;
+        }
+
+        this.word = d.word;
+        this.opcode = d.opcode;
+        this.r = d.r;
+        this.ix = d.ix;
+        this.addr = d.addr;
+        this.ea = hasEA(d.opcode) && outcome == Outcome.COMPLETED ? ea : -1;
+
+        this.writtenRegister = outcome == Outcome.COMPLETED ? destination() : -1;
+        if (writtenRegister >= 0) {
+            oldValue = before[writtenRegister];
+            newValue = writtenRegister < 4 ? s.getGPR(writtenRegister) : s.getIXR(writtenRegister - 3);
+        }
+    }
+
+    /* ==========================
+     * Helpers
+     * ========================== */
+
+    /**
+     * Register written by the current instruction, indexed like
+     * writtenRegister, or -1 for instructions (or no-op forms) that write none.
+     */
+    private int destination() {
+        return switch (opcode) {
+            case 1, 3, 4, 5, 14, 49, 56, 59, 60, 61 -> r;
+            case 6, 7, 25, 26 -> addr == 0 ? -1 : r;
+            case 57 -> flag ? -1 : r;
+            case 12 -> 3;
+            case 13 -> 0;
+            case 33 -> 3 + ix;
+            default -> -1;
+        };
+    }
+
+    private static boolean hasEA(int opcode) {
+        return (opcode >= 1 && opcode <= 5) || (opcode >= 8 && opcode <= 12)
+                || opcode == 14 || opcode == 15 || opcode == 33 || opcode == 34;
+    }
+
+    private static boolean isConditionalBranch(int opcode) {
+        return (opcode >= 8 && opcode <= 10) || opcode == 14 || opcode == 15;
+    }
+}
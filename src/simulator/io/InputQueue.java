@@ -0,0 +1,142 @@
+package simulator.io;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded character queue backing the keyboard / card-reader input devices.
+ *
+ * Responsibilities:
+ *  - The operator side offers whole strings at once (O(n) per submission).
+ *  - The CPU side takes one character per IN, either without waiting
+ *    (poll, returns -1 when empty) or by parking until input arrives (take).
+ *
+ * Notes:
+ *  - Characters are kept in a char ring buffer, so nothing is boxed.
+ *  - offer() never blocks; characters that do not fit are dropped and the
+ *    caller is told how many were accepted.
+ */
+public final class InputQueue {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final char[] buffer;
+    private int head = 0;   // next character to take
+    private int count = 0;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    /**
+     * Build a queue with DEFAULT_CAPACITY.
+     */
+    public InputQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity maximum number of queued characters
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public InputQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Input queue capacity must be positive.");
+        }
+        this.buffer = new char[capacity];
+    }
+
+    /**
+     * Append as many characters of text as fit and wake a waiting reader.
+     *
+     * @param text  characters to queue
+     * @return      number of characters accepted
+     */
+    public int offer(CharSequence text) {
+        lock.lock();
+        try {
+            int accepted = Math.min(text.length(), buffer.length - count);
+            int tail = (head + count) % buffer.length;
+            for (int i = 0; i < accepted; i++) {
+                buffer[tail] = text.charAt(i);
+                tail = tail + 1 == buffer.length ? 0 : tail + 1;
+            }
+            count += accepted;
+            if (accepted > 0) {
+                notEmpty.signalAll();
+            }
+            return accepted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Take the next character without waiting.
+     *
+     * @return character code, or -1 if the queue is empty
+     */
+    public int poll() {
+        lock.lock();
+        try {
+            return count == 0 ? -1 : removeFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Take the next character, parking the calling thread until one arrives.
+     *
+     * @return character code
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public int take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            return removeFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop every queued character.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            head = 0;
+            count = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    /* ==========================
+     * Helpers
+     * ========================== */
+
+    // caller holds the lock and has checked count > 0
+    private int removeFirst() {
+        char ch = buffer[head];
+        head = head + 1 == buffer.length ? 0 : head + 1;
+        count--;
+        return ch;
+    }
+}
@@ -0,0 +1,243 @@
+package simulator.io;
+
+import java.nio.ByteBuffer;
+import simulator.machine.Memory;
+
+/**
+ * Single-pass scanner for the text load file format (see ProgramLoader),
+ * working directly on the file's bytes.
+ *
+ * Per line:
+ *  - leading blanks are skipped; blank lines and lines starting with
+ *    #, // or ; are ignored
+ *  - START followed by a number is the entry record (at most one); the
+ *    assembler writes it as the first line
+ *  - otherwise two numbers (address, word) separated by blanks; anything
+ *    after the second number is ignored. The address must be in memory
+ *    (0..2047)
+ *  - a number is 0x/0X followed by hex digits, or digits that are octal
+ *    when they are all 0-7 and decimal otherwise (a leading sign also
+ *    makes it decimal)
+ *
+ * Numbers are accumulated digit by digit; no Strings are created. Errors
+ * are IllegalArgumentExceptions that name the line and column (1-based,
+ * counted in bytes).
+ */
+final class LoadFileScanner {
+
+    private final ByteBuffer text;
+    private final int limit;
+    private int pos;
+    private int line = 1;
+    private int lineStart;      // position of the first byte of the current line
+    private int entry = -1;     // START record, -1 if none yet
+
+    private LoadFileScanner(ByteBuffer text) {
+        this.text = text;
+        this.pos = text.position();
+        this.limit = text.limit();
+        this.lineStart = pos;
+    }
+
+    /**
+     * Scan every record, in file order, into a sink.
+     *
+     * @param text  load file contents (position to limit)
+     * @param sink  receives each (address, word) record
+     * @return      entry address from the START record, -1 if none
+     * @throws IllegalArgumentException if a non-comment line is malformed;
+     *                                  records before it have been passed on
+     */
+    static int scan(ByteBuffer text, ProgramLoader.RecordSink sink) {
+        LoadFileScanner scanner = new LoadFileScanner(text);
+        scanner.run(sink);
+        return scanner.entry;
+    }
+
+    private void run(ProgramLoader.RecordSink sink) {
+        while (pos < limit) {
+            skipBlanks();
+            if (atLineEnd()) {
+                nextLine();
+                continue;
+            }
+            int c = text.get(pos);
+            if (c == '#' || c == ';' || (c == '/' && peek(1) == '/')) {
+                skipToLineEnd();
+                nextLine();
+                continue;
+            }
+            if (c == 'S' || c == 's') {
+                entryRecord();
+                continue;
+            }
+
+            int column = pos;
+            int address = number();
+            if (address < 0 || address >= Memory.SIZE) {
+                pos = column;
+                throw error("address out of range: " + address);
+            }
+            skipBlanks();
+            if (atLineEnd()) {
+                throw error("missing word after address");
+            }
+            int word = number();
+            skipToLineEnd();
+            nextLine();
+
+            sink.accept(address, word);
+        }
+    }
+
+    /* ==========================
+     * Helpers
+     * ========================== */
+
+    /**
+     * Read a "START address" line.
+     */
+    private void entryRecord() {
+        for (int i = 0; i < 5; i++) {
+            if (pos >= limit || Character.toUpperCase(text.get(pos)) != "START".charAt(i)) {
+                throw error("expected START or a number");
+            }
+            pos++;
+        }
+        if (atLineEnd()) {
+            throw error("missing address after START");
+        }
+        if (!isBlank(text.get(pos))) {
+            throw error("expected START or a number");
+        }
+        skipBlanks();
+        if (entry >= 0) {
+            throw error("duplicate START record");
+        }
+        int column = pos;
+        int address = number();
+        if (address < 0 || address >= Memory.SIZE) {
+            pos = column;
+            throw error("START address out of range: " + address);
+        }
+        entry = address;
+        skipToLineEnd();
+        nextLine();
+    }
+
+    /**
+     * Read one number token, which must end at a blank or the end of the line.
+     */
+    private int number() {
+        int c = text.get(pos);
+        if (c == '0' && (peek(1) == 'x' || peek(1) == 'X')) {
+            pos += 2;
+            return hex();
+        }
+
+        boolean negative = c == '-';
+        boolean signed = negative || c == '+';
+        if (signed) {
+            pos++;
+        }
+        long octal = 0;
+        long decimal = 0;
+        boolean allOctal = !signed;
+        int digits = 0;
+        while (!atTokenEnd()) {
+            int d = text.get(pos) - '0';
+            if (d < 0 || d > 9) {
+                throw error("unexpected character '" + (char) text.get(pos) + "' in number");
+            }
+            allOctal &= d < 8;
+            octal = octal * 8 + d;
+            decimal = decimal * 10 + d;
+            // octal <= decimal, so once octal overflows so does the value used
+            if (octal > Integer.MAX_VALUE || (!allOctal && decimal > 1L + Integer.MAX_VALUE)) {
+                throw error("number too large");
+            }
+            digits++;
+            pos++;
+        }
+        if (digits == 0) {
+            throw error("expected digits");
+        }
+        if (allOctal) {
+            return (int) octal;
+        }
+        if (negative) {
+            return (int) -decimal;
+        }
+        if (decimal > Integer.MAX_VALUE) {
+            throw error("number too large");
+        }
+        return (int) decimal;
+    }
+
+    private int hex() {
+        long value = 0;
+        int digits = 0;
+        while (!atTokenEnd()) {
+            int d = Character.digit(text.get(pos), 16);
+            if (d < 0) {
+                throw error("unexpected character '" + (char) text.get(pos) + "' in hex number");
+            }
+            value = value * 16 + d;
+            if (value > Integer.MAX_VALUE) {
+                throw error("number too large");
+            }
+            digits++;
+            pos++;
+        }
+        if (digits == 0) {
+            throw error("expected hex digits");
+        }
+        return (int) value;
+    }
+
+    private int peek(int ahead) {
+        return pos + ahead < limit ? text.get(pos + ahead) : -1;
+    }
+
+    private static boolean isBlank(int c) {
+        return c == ' ' || c == '\t' || c == '\f' || c == 0x0B;
+    }
+
+    private boolean atLineEnd() {
+        return pos >= limit || text.get(pos) == '\n' || text.get(pos) == '\r';
+    }
+
+    private boolean atTokenEnd() {
+        return atLineEnd() || isBlank(text.get(pos));
+    }
+
+    private void skipBlanks() {
+        while (pos < limit && isBlank(text.get(pos))) {
+            pos++;
+        }
+    }
+
+    private void skipToLineEnd() {
+        while (!atLineEnd()) {
+            pos++;
+        }
+    }
+
+    /**
+     * Step over the line break at pos (\n, \r or \r\n), if any.
+     */
+    private void nextLine() {
+        if (pos < limit && text.get(pos) == '\r') {
+            pos++;
+        }
+        if (pos < limit && text.get(pos) == '\n') {
+            pos++;
+        }
+        line++;
+        lineStart = pos;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Line " + line + ", column " + (pos - lineStart + 1) + ": " + message);
+    }
+}
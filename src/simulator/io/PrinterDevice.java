@@ -0,0 +1,164 @@
+package simulator.io;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.function.Consumer;
+
+/**
+ * Buffered console printer (OUT device 1).
+ *
+ * Responsibilities:
+ *  - Collect OUT characters in a char buffer instead of pushing each one to
+ *    the GUI.
+ *  - Hand the buffered text to the sink in chunks: on newline (if enabled),
+ *    when the buffer is full, or when the owner calls flush() (frame tick,
+ *    end of a step, halt).
+ *  - Optionally copy everything printed to a Writer (e.g. a log file).
+ *
+ * Notes:
+ *  - All methods are synchronized, so the CPU may print on a worker thread
+ *    while the GUI side flushes or drains.
+ *  - The sink is called on whichever thread flushes; the owner decides how
+ *    to get the text onto the EDT.
+ */
+public final class PrinterDevice {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    private final Consumer<String> sink;
+    private final char[] buffer;
+    private int length = 0;
+    private boolean flushOnNewline = true;
+
+    private Writer tee;
+    private IOException teeError;
+
+    /**
+     * @param sink receives each flushed chunk of text
+     */
+    public PrinterDevice(Consumer<String> sink) {
+        this(sink, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param sink          receives each flushed chunk of text
+     * @param bufferSize    characters buffered before a forced flush
+     * @throws IllegalArgumentException if bufferSize is not positive
+     */
+    public PrinterDevice(Consumer<String> sink, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Printer buffer size must be positive.");
+        }
+        this.sink = sink;
+        this.buffer = new char[bufferSize];
+    }
+
+    /**
+     * Print one character (low 8 bits of the value).
+     *
+     * @param value character code from OUT
+     */
+    public synchronized void write(int value) {
+        char ch = (char) (value & 0xFF);
+        buffer[length++] = ch;
+
+        if (length == buffer.length || (flushOnNewline && ch == '\n')) {
+            flush();
+        }
+    }
+
+    /**
+     * Send everything buffered to the sink (and the tee).
+     */
+    public synchronized void flush() {
+        String chunk = drain();
+        if (!chunk.isEmpty()) {
+            sink.accept(chunk);
+        }
+    }
+
+    /**
+     * Take everything buffered without calling the sink. The tee still gets
+     * a copy. Used when the caller delivers the text itself (turbo frames).
+     *
+     * @return buffered text, possibly empty
+     */
+    public synchronized String drain() {
+        if (length == 0) {
+            return "";
+        }
+        String chunk = new String(buffer, 0, length);
+        length = 0;
+        writeTee(chunk);
+        return chunk;
+    }
+
+    /**
+     * Throw away anything buffered (Reset).
+     */
+    public synchronized void discard() {
+        length = 0;
+    }
+
+    /**
+     * @param enabled true to flush on every newline; false to wait for an
+     *                explicit flush (used while the turbo worker runs)
+     */
+    public synchronized void setFlushOnNewline(boolean enabled) {
+        flushOnNewline = enabled;
+    }
+
+    /**
+     * Start copying printed text to a Writer, replacing any previous tee.
+     * The previous tee is flushed and closed.
+     *
+     * @param writer destination, or null to stop teeing
+     */
+    public synchronized void setTee(Writer writer) {
+        closeTee();
+        tee = writer;
+        teeError = null;
+    }
+
+    /**
+     * Error that stopped the tee, if any. Cleared when read.
+     *
+     * @return last tee write failure, or null
+     */
+    public synchronized IOException takeTeeError() {
+        IOException ex = teeError;
+        teeError = null;
+        return ex;
+    }
+
+    /* ==========================
+     * Helpers
+     * ========================== */
+
+    private void writeTee(String chunk) {
+        if (tee == null) {
+            return;
+        }
+        try {
+            tee.write(chunk);
+            tee.flush();
+        } catch (IOException ex) {
+            teeError = ex;
+            closeTee();
+        }
+    }
+
+    private void closeTee() {
+        if (tee == null) {
+            return;
+        }
+        try {
+            tee.close();
+        } catch (IOException ex) {
+            if (teeError == null) {
+                teeError = ex;
+            }
+        }
+        tee = null;
+    }
+}
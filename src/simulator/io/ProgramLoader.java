@@ -1,8 +1,14 @@
 package simulator.io;
 
-import java.io.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.CRC32;
+import simulator.machine.Memory;
 
 /**
  * ProgramLoader parses an assembler "load file" into (address, word) records.
@@ -15,6 +21,22 @@ import java.util.List;
  *      * hex numbers with 0x prefix (e.g., 0x0A 0xFF)
  *  - Ignores blank lines and comment lines starting with:
  *      #, //, ;
+ *  - An optional entry record "START <address>" (written first by the
+ *    assembler) gives the start address, reported in LoadFile
+ *
+ * Binary load images (written by the assembler's ImageWriter, recognised
+ * by their magic number) are also accepted. The file is memory-mapped and
+ * checked as a whole (size, segment bounds, CRC-32) before any word is
+ * passed on, and the image's entry point is reported in LoadFile.
+ *
+ * Ways to use it:
+ *  - parse(): returns every record, e.g. for display or tests
+ *  - load(): streams the records straight into Memory without keeping
+ *    them, batching consecutive addresses into Memory.loadRange runs
+ *  - scan(): passes each record to a RecordSink callback
+ *
+ * Either kind of file is memory-mapped; text is scanned byte by byte by
+ * LoadFileScanner, and malformed lines are reported with line and column.
  */
 public final class ProgramLoader {
 
@@ -38,86 +60,220 @@ public final class ProgramLoader {
         public final List<Record> records;
         public final int recordsLoaded;
         public final int firstAddress;
+        public final int entryAddress;  // start address recorded in the file, -1 if none
 
         public LoadFile(List<Record> records, int firstAddress) {
+            this(records, firstAddress, -1);
+        }
+
+        public LoadFile(List<Record> records, int firstAddress, int entryAddress) {
             this.records = records;
             this.recordsLoaded = records.size();
             this.firstAddress = firstAddress;
+            this.entryAddress = entryAddress;
+        }
+
+        /**
+         * Summary of a streamed load (see load()): no records are kept.
+         *
+         * @param recordsLoaded number of words written
+         * @param firstAddress  address of the first record, or -1 if none
+         * @param entryAddress  start address recorded in the file, or -1 if none
+         */
+        public LoadFile(int recordsLoaded, int firstAddress, int entryAddress) {
+            this.records = List.of();
+            this.recordsLoaded = recordsLoaded;
+            this.firstAddress = firstAddress;
+            this.entryAddress = entryAddress;
         }
     }
 
+    /**
+     * Receives each (address, word) record as it is read.
+     */
+    @FunctionalInterface
+    public interface RecordSink {
+        void accept(int address, int word);
+    }
+
+    // words buffered per Memory.loadRange call by load()
+    private static final int RUN_WORDS = 256;
+
+    // binary load image layout (see part0_assembler.assembler.ImageWriter)
+    private static final int IMAGE_MAGIC = 0x43364C49;     // "C6LI"
+    private static final int IMAGE_VERSION = 1;
+    private static final int IMAGE_NO_ENTRY = 0xFFFF;
+    private static final int IMAGE_HEADER_BYTES = 14;
+
     /**
      * Parse a load file into records.
      *
      * @param file program/load file
      * @return parsed LoadFile with records
      * @throws IOException if file can't be read
-     * @throws IllegalArgumentException if a non-comment line is malformed
+     * @throws IllegalArgumentException if a non-comment line is malformed,
+     *                                  or the file is a damaged load image
      */
     public LoadFile parse(File file) throws IOException {
         List<Record> out = new ArrayList<>();
-        int firstAddr = -1;
+        int entry = scan(file, (address, word) -> out.add(new Record(address, word)));
+        return new LoadFile(out, out.isEmpty() ? -1 : out.get(0).address, entry);
+    }
 
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            int lineNo = 0;
+    /**
+     * Read a load file straight into memory. Consecutive addresses are
+     * collected into runs and stored with Memory.loadRange, so a typical
+     * image costs one range check and one listener notification per run
+     * and no per-record objects.
+     *
+     * @param file      program/load file
+     * @param memory    memory to load into
+     * @return          summary (record count and first address; no records)
+     * @throws IOException if file can't be read
+     * @throws IllegalArgumentException if a non-comment line is malformed
+     *                                  or has an address outside memory (the
+     *                                  message gives line and column), or the
+     *                                  file is a damaged load image. A load
+     *                                  image stores nothing; a text file may
+     *                                  leave some of the earlier words stored
+     *                                  (runs already written) and others not,
+     *                                  so callers should clear memory.
+     */
+    public LoadFile load(File file, Memory memory) throws IOException {
+        RunWriter run = new RunWriter(memory);
+        int entry = scan(file, run);
+        run.flush();
+        return new LoadFile(run.count, run.firstAddress, entry);
+    }
 
-            while ((line = br.readLine()) != null) {
-                lineNo++;
-                String trimmed = line.trim();
+    /**
+     * Read every record of a load file or load image, in file order, into
+     * a sink.
+     *
+     * @param file      program/load file or load image
+     * @param sink      receives each (address, word) record
+     * @return          entry address recorded in the file, -1 if none
+     * @throws IOException if file can't be read
+     * @throws IllegalArgumentException if a non-comment line is malformed
+     *                                  (records before it have been passed
+     *                                  on), or the file is a damaged load
+     *                                  image (nothing has been passed on)
+     */
+    public int scan(File file, RecordSink sink) throws IOException {
+        ByteBuffer bytes = map(file);
+        if (bytes.limit() >= 4 && bytes.getInt(0) == IMAGE_MAGIC) {
+            return scanImage(bytes, sink);
+        }
+        return LoadFileScanner.scan(bytes, sink);
+    }
 
-                // skip blanks
-                if (trimmed.isEmpty()) continue;
+    /* ==========================
+     * Helpers
+     * ========================== */
 
-                // skip comments
-                if (trimmed.startsWith("#") || trimmed.startsWith("//") || trimmed.startsWith(";")) {
-                    continue;
-                }
+    /**
+     * Collects records with consecutive addresses and stores each run with
+     * one Memory.loadRange call.
+     */
+    private static final class RunWriter implements RecordSink {
 
-                // split by whitespace (address and word)
-                String[] parts = trimmed.split("\\s+");
-                if (parts.length < 2) {
-                    throw new IllegalArgumentException("Line " + lineNo + " missing fields: " + trimmed);
-                }
+        private final Memory memory;
+        private final int[] words = new int[RUN_WORDS];
+        private int base = 0;
+        private int length = 0;
+        int count = 0;
+        int firstAddress = -1;
 
-                int addr = parseNumber(parts[0]);
-                int word = parseNumber(parts[1]);
+        RunWriter(Memory memory) {
+            this.memory = memory;
+        }
 
-                if (firstAddr < 0) firstAddr = addr;
-                out.add(new Record(addr, word));
+        @Override
+        public void accept(int address, int word) {
+            if (count++ == 0) {
+                firstAddress = address;
+            }
+            if (length == RUN_WORDS || (length > 0 && address != base + length)) {
+                flush();
+            }
+            if (length == 0) {
+                base = address;
             }
+            words[length++] = word;
         }
 
-        return new LoadFile(out, firstAddr);
+        void flush() {
+            memory.loadRange(base, words, 0, length);
+            length = 0;
+        }
     }
 
     /**
-     * Parse numbers from the LOAD FILE.
-     *
-     * IMPORTANT:
-     *  - Load file columns (LOC and WORD) are in octal.
-     *  - i.e. tokens like "102207" must be interpreted as octal,
-     *    even though they do not start with '0'.
+     * Map a file into memory.
      *
-     * Supported:
-     *  - 0x... hex
-     *  - [0-7]+ octal
-     *  - decimal fallback
+     * @return the file's bytes (read-only)
      */
-    private int parseNumber(String token) {
-        String t = token.trim();
+    private static ByteBuffer map(File file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+    }
 
-        // hex support
-        if (t.startsWith("0x") || t.startsWith("0X")) {
-            return Integer.parseInt(t.substring(2), 16);
+    /**
+     * Check a mapped load image as a whole, then pass its words to a sink.
+     *
+     * @return entry address from the header, -1 if none
+     * @throws IllegalArgumentException if the image is truncated, has a bad
+     *                                  version, segment or entry address,
+     *                                  or fails its checksum
+     */
+    private static int scanImage(ByteBuffer buf, RecordSink sink) {
+        int size = buf.limit();
+        if (size < IMAGE_HEADER_BYTES) {
+            throw new IllegalArgumentException("Load image header truncated.");
+        }
+        int version = buf.getShort(4) & 0xFFFF;
+        if (version != IMAGE_VERSION) {
+            throw new IllegalArgumentException("Unsupported load image version: " + version);
         }
+        int entry = buf.getShort(6) & 0xFFFF;
+        int segments = buf.getShort(8) & 0xFFFF;
+        long checksum = buf.getInt(10) & 0xFFFFFFFFL;
 
-        // octal default for load file
-        if (t.matches("[0-7]+")) {
-            return Integer.parseInt(t, 8);
+        int data = IMAGE_HEADER_BYTES + segments * 4;
+        if (data > size) {
+            throw new IllegalArgumentException("Load image segment table truncated.");
+        }
+        long words = 0;
+        for (int i = 0; i < segments; i++) {
+            int base = buf.getShort(IMAGE_HEADER_BYTES + i * 4) & 0xFFFF;
+            int length = buf.getShort(IMAGE_HEADER_BYTES + i * 4 + 2) & 0xFFFF;
+            if (base + length > Memory.SIZE) {
+                throw new IllegalArgumentException("Load image segment " + i + " out of range: "
+                        + Memory.toOct6(base) + " + " + length + " words");
+            }
+            words += length;
+        }
+        if (data + words * 2 != size) {
+            throw new IllegalArgumentException("Load image size does not match its segment table.");
+        }
+        if (entry != IMAGE_NO_ENTRY && entry >= Memory.SIZE) {
+            throw new IllegalArgumentException("Load image entry point out of range: " + Memory.toOct6(entry));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buf.duplicate().position(IMAGE_HEADER_BYTES));
+        if (crc.getValue() != checksum) {
+            throw new IllegalArgumentException("Load image checksum mismatch.");
         }
 
-        // fallback -> decimal 
-        return Integer.parseInt(t, 10);
+        int pos = data;
+        for (int i = 0; i < segments; i++) {
+            int base = buf.getShort(IMAGE_HEADER_BYTES + i * 4) & 0xFFFF;
+            int length = buf.getShort(IMAGE_HEADER_BYTES + i * 4 + 2) & 0xFFFF;
+            for (int offset = 0; offset < length; offset++, pos += 2) {
+                sink.accept(base + offset, buf.getShort(pos) & 0xFFFF);
+            }
+        }
+        return entry == IMAGE_NO_ENTRY ? -1 : entry;
     }
-}
\ No newline at end of file
+}
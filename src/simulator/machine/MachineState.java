@@ -12,6 +12,9 @@ package simulator.machine;
  *
  * Notes:
  *  - We store values as int but mask to required bit widths.
+ *  - CC is evaluated lazily: arithmetic instructions only record their
+ *    result, and the overflow/underflow bits are worked out when getCC()
+ *    is called (JCC, GUI refresh, snapshots).
  *  - This class contains NO GUI logic.
  */
 public final class MachineState {
@@ -28,10 +31,20 @@ public final class MachineState {
     private int mbr;  // 16-bit
     private int ir;   // 16-bit
 
-    // condition + Machine Fault registers
-    private int cc;   // 4-bit
+    // condition code, kept as independent parts (see getCC)
+    private int ccArithOp;      // CC_* kind of the last overflow/underflow producer
+    private int ccArithValue;   // its full-width result, or the explicit bits
+    private boolean ccDivZero;  // CC bit 2
+    private boolean ccEqual;    // CC bit 3
+
+    // Machine Fault register
     private int mfr;  // 4-bit
 
+    // how ccArithValue turns into CC bits 0 (overflow) and 1 (underflow)
+    private static final int CC_BITS = 0;   // value already holds the two bits
+    private static final int CC_ADD = 1;    // signed add/subtract result
+    private static final int CC_MUL = 2;    // signed product (overflow only)
+
     /** 
      * Reset registers to 0. (Memory is reset separately.) 
      */
@@ -39,7 +52,29 @@ public final class MachineState {
         for (int i = 0; i < 4; i++) gpr[i] = 0;
         for (int i = 0; i < 4; i++) ixr[i] = 0;
         pc = mar = mbr = ir = 0;
-        cc = mfr = 0;
+        setCC(0);
+        mfr = 0;
+    }
+
+    /**
+     * Copy every register (including the CC parts) from another state.
+     * Used to take a consistent snapshot for display while the CPU keeps
+     * running on another thread.
+     *
+     * @param other state to copy from
+     */
+    public void copyFrom(MachineState other) {
+        System.arraycopy(other.gpr, 0, gpr, 0, gpr.length);
+        System.arraycopy(other.ixr, 0, ixr, 0, ixr.length);
+        pc = other.pc;
+        mar = other.mar;
+        mbr = other.mbr;
+        ir = other.ir;
+        ccArithOp = other.ccArithOp;
+        ccArithValue = other.ccArithValue;
+        ccDivZero = other.ccDivZero;
+        ccEqual = other.ccEqual;
+        mfr = other.mfr;
     }
 
     /* =========================
@@ -86,12 +121,67 @@ public final class MachineState {
     public int getIR() { return ir & 0xFFFF; }
     public void setIR(int value) { ir = value & 0xFFFF; }
 
-    public int getCC() { return cc & 0xF; }
-    public void setCC(int value) { cc = value & 0xF; }
-
     public int getMFR() { return mfr & 0xF; }
     public void setMFR(int value) { mfr = value & 0xF; }
 
+    /* =========================
+     * Condition code
+     * ========================= */
+
+    /**
+     * Build the 4-bit CC from its parts.
+     *
+     * CC bit convention:
+     * 0 = overflow
+     * 1 = underflow
+     * 2 = division by zero
+     * 3 = equal-or-not
+     *
+     * @return current CC value
+     */
+    public int getCC() {
+        int arith = switch (ccArithOp) {
+            case CC_ADD -> ccArithValue > Short.MAX_VALUE ? 0b01
+                    : ccArithValue < Short.MIN_VALUE ? 0b10 : 0;
+            case CC_MUL -> ccArithValue > Short.MAX_VALUE || ccArithValue < Short.MIN_VALUE ? 0b01 : 0;
+            default -> ccArithValue;
+        };
+        return arith | (ccDivZero ? 0b0100 : 0) | (ccEqual ? 0b1000 : 0);
+    }
+
+    public void setCC(int value) {
+        ccArithOp = CC_BITS;
+        ccArithValue = value & 0b11;
+        ccDivZero = (value & 0b0100) != 0;
+        ccEqual = (value & 0b1000) != 0;
+    }
+
+    /**
+     * Record the full-width signed result of an add/subtract. Overflow and
+     * underflow are only derived from it when the CC is read.
+     *
+     * @param wideResult signed result before 16-bit truncation
+     */
+    public void setArithmeticCC(int wideResult) {
+        ccArithOp = CC_ADD;
+        ccArithValue = wideResult;
+    }
+
+    /**
+     * Record a signed 16x16 product. Overflow is set when it does not fit in
+     * 16 bits; underflow is always cleared.
+     *
+     * @param product full signed product
+     */
+    public void setMultiplyCC(int product) {
+        ccArithOp = CC_MUL;
+        ccArithValue = product;
+    }
+
+    public void setDivZeroCC(boolean value) { ccDivZero = value; }
+
+    public void setEqualCC(boolean value) { ccEqual = value; }
+
     /* =========================
      * Helpers
      * ========================= */
@@ -13,11 +13,52 @@ import java.util.Arrays;
  * Notes:
  *  - We store words in an int[] but always mask to 16 bits (0..65535).
  *  - Address bounds are enforced; invalid access throws IllegalArgumentException.
+ *  - Registered MemoryWriteListeners are told about every write and clear.
+ *  - Program loading uses the bulk operations (load, loadRange): the
+ *    addresses are checked before anything is stored, and a contiguous run
+ *    is checked and announced once instead of word by word.
+ *  - As the bottom MemoryLevel of the cache hierarchy, each block or word
+ *    transfer costs a fixed latency (the miss penalty) in simulated cycles.
  */
-public final class Memory {
+public final class Memory implements MemoryLevel {
 
     public static final int SIZE = 2048; // memory size in words
+    public static final int DEFAULT_LATENCY = 100; // cycles per transfer
     private final int[] mem = new int[SIZE]; // backing storage. Each entry represents one 16-bit word
+    private MemoryWriteListener[] listeners = new MemoryWriteListener[0];
+    private int latency = DEFAULT_LATENCY;
+
+    /**
+     * Register a listener that is notified after every write/clear.
+     *
+     * @param listener listener to add
+     */
+    @Override
+    public void addWriteListener(MemoryWriteListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Write listener cannot be null.");
+        }
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    /**
+     * Remove a previously registered listener. Unknown listeners are ignored.
+     *
+     * @param listener listener to remove
+     */
+    @Override
+    public void removeWriteListener(MemoryWriteListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                MemoryWriteListener[] next = new MemoryWriteListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, next, 0, i);
+                System.arraycopy(listeners, i + 1, next, i, listeners.length - i - 1);
+                listeners = next;
+                return;
+            }
+        }
+    }
 
     /**
      * Clears all memory words to 0.
@@ -25,6 +66,9 @@ public final class Memory {
      */
     public void clear() {
         Arrays.fill(mem, 0);
+        for (MemoryWriteListener l : listeners) {
+            l.memoryCleared();
+        }
     }
 
     /**
@@ -38,6 +82,67 @@ public final class Memory {
         return mem[address] & 0xFFFF;
     }
 
+    /**
+     * Copy a run of consecutive words into an array in one transfer
+     * (cache block fills).
+     *
+     * @param address       first memory address
+     * @param dest          destination array
+     * @param destOffset    first index written in dest
+     * @param length        number of words to copy
+     * @return              transfer latency in simulated cycles
+     * @throws IllegalArgumentException if any address in the run is out of range
+     */
+    @Override
+    public int readBlock(int address, int[] dest, int destOffset, int length) {
+        if (length <= 0) {
+            return 0;
+        }
+        checkAddress(address);
+        checkAddress(address + length - 1);
+        System.arraycopy(mem, address, dest, destOffset, length);
+        return latency;
+    }
+
+    /**
+     * Write a word on behalf of a cache (write-through store or write-back).
+     *
+     * @param address   memory address (0..2047)
+     * @param word      value to write (only low 16 bits are stored)
+     * @return          transfer latency in simulated cycles
+     */
+    @Override
+    public int writeWord(int address, int word) {
+        write(address, word);
+        return latency;
+    }
+
+    /**
+     * Same as read(); memory reads have no side effects.
+     */
+    @Override
+    public int peek(int address) {
+        return read(address);
+    }
+
+    /**
+     * @return cycles charged per cache transfer (the miss penalty)
+     */
+    public int getLatency() {
+        return latency;
+    }
+
+    /**
+     * @param cycles                    cycles charged per cache transfer
+     * @throws IllegalArgumentException if cycles is negative
+     */
+    public void setLatency(int cycles) {
+        if (cycles < 0) {
+            throw new IllegalArgumentException("Memory latency cannot be negative: " + cycles);
+        }
+        latency = cycles;
+    }
+
     /**
      * Write a 16-bit word into memory.
      *
@@ -47,6 +152,80 @@ public final class Memory {
     public void write(int address, int word) {
         checkAddress(address);
         mem[address] = word & 0xFFFF;
+        for (MemoryWriteListener l : listeners) {
+            l.wordWritten(address);
+        }
+    }
+
+    /**
+     * Store scattered words, e.g. the records of a load file.
+     *
+     * @param addresses memory addresses (0..2047)
+     * @param words     values to store (only low 16 bits are kept), same length
+     * @throws IllegalArgumentException if the lengths differ or any address
+     *                                  is out of range (nothing is stored)
+     */
+    public void load(int[] addresses, int[] words) {
+        if (addresses.length != words.length) {
+            throw new IllegalArgumentException("Address and word counts differ: "
+                    + addresses.length + " vs " + words.length);
+        }
+        load(addresses, words, addresses.length);
+    }
+
+    /**
+     * Store the first count entries of two parallel arrays.
+     *
+     * @param addresses memory addresses (0..2047)
+     * @param words     values to store (only low 16 bits are kept)
+     * @param count     number of entries to store
+     * @throws IllegalArgumentException if count exceeds either array or any
+     *                                  address is out of range (nothing is stored)
+     */
+    public void load(int[] addresses, int[] words, int count) {
+        if (count < 0 || count > addresses.length || count > words.length) {
+            throw new IllegalArgumentException("Load count out of range: " + count);
+        }
+        for (int i = 0; i < count; i++) {
+            checkAddress(addresses[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            mem[addresses[i]] = words[i] & 0xFFFF;
+        }
+        for (MemoryWriteListener l : listeners) {
+            for (int i = 0; i < count; i++) {
+                l.wordWritten(addresses[i]);
+            }
+        }
+    }
+
+    /**
+     * Store a run of words at consecutive addresses with one range check,
+     * and announce it to listeners as one range.
+     *
+     * @param base      first memory address
+     * @param words     source array
+     * @param offset    index of the first word in words
+     * @param length    number of words
+     * @throws IllegalArgumentException if the run does not fit in memory or
+     *                                  in the source array (nothing is stored)
+     */
+    public void loadRange(int base, int[] words, int offset, int length) {
+        if (length <= 0) {
+            return;
+        }
+        if (offset < 0 || offset + length > words.length) {
+            throw new IllegalArgumentException("Load run outside source array: offset "
+                    + offset + ", length " + length);
+        }
+        checkAddress(base);
+        checkAddress(base + length - 1);
+        for (int i = 0; i < length; i++) {
+            mem[base + i] = words[offset + i] & 0xFFFF;
+        }
+        for (MemoryWriteListener l : listeners) {
+            l.rangeWritten(base, base + length - 1);
+        }
     }
 
     /**
@@ -61,8 +240,11 @@ public final class Memory {
 
     /**
      * Enforces the legal address range for the machine.
+     *
+     * @param address                   memory address
+     * @throws IllegalArgumentException if the address is outside 0..SIZE-1
      */
-    private void checkAddress(int address) {
+    public static void checkAddress(int address) {
         if (address < 0 || address >= SIZE) {
             throw new IllegalArgumentException(
                     "Memory address out of range: " + address + " (valid 0.." + (SIZE - 1) + ")"
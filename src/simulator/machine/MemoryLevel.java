@@ -0,0 +1,55 @@
+package simulator.machine;
+
+/**
+ * One level of the memory hierarchy as seen by the cache above it: main
+ * Memory, or another Cache (e.g. a shared L2 behind the L1 caches).
+ *
+ * Transfers return the simulated cycles they took, including any time
+ * spent in the levels further down, so each cache can add up the cost of
+ * its misses and write-backs.
+ */
+public interface MemoryLevel {
+
+    /**
+     * Copy consecutive words into an array (a cache block fill).
+     *
+     * @param address       first address
+     * @param dest          destination array
+     * @param destOffset    first index written in dest
+     * @param length        number of words
+     * @return              simulated cycles taken
+     * @throws IllegalArgumentException if any address is out of range
+     */
+    int readBlock(int address, int[] dest, int destOffset, int length);
+
+    /**
+     * Store one word (a write-through store or a write-back).
+     *
+     * @param address   address to write
+     * @param word      16-bit value
+     * @return          simulated cycles taken
+     * @throws IllegalArgumentException if the address is out of range
+     */
+    int writeWord(int address, int word);
+
+    /**
+     * Current value of a word, without statistics, cycles or side effects.
+     *
+     * @param address   address to read
+     * @return          16-bit value
+     */
+    int peek(int address);
+
+    /**
+     * Register a listener for every change to a word at this level or
+     * below (see Cache.addWriteListener).
+     *
+     * @param listener listener to add
+     */
+    void addWriteListener(MemoryWriteListener listener);
+
+    /**
+     * @param listener listener to remove; unknown listeners are ignored
+     */
+    void removeWriteListener(MemoryWriteListener listener);
+}
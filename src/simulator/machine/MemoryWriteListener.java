@@ -0,0 +1,35 @@
+package simulator.machine;
+
+/**
+ * Callback for components that keep derived copies of memory contents
+ * (for example the CPU's predecoded instruction table) and must drop them
+ * when the underlying words change.
+ */
+public interface MemoryWriteListener {
+
+    /**
+     * Called after one word has been written.
+     *
+     * @param address memory address that changed
+     */
+    void wordWritten(int address);
+
+    /**
+     * Called after a bulk load wrote every word in first..last
+     * (Memory.loadRange). By default each address is passed to
+     * wordWritten; listeners that can drop a whole range at once override it.
+     *
+     * @param first first address written
+     * @param last  last address written (inclusive)
+     */
+    default void rangeWritten(int first, int last) {
+        for (int address = first; address <= last; address++) {
+            wordWritten(address);
+        }
+    }
+
+    /**
+     * Called after every word has been reset (Memory.clear()).
+     */
+    void memoryCleared();
+}
@@ -0,0 +1,241 @@
+package simulator.multicore;
+
+import java.util.Arrays;
+import java.util.Locale;
+import simulator.cache.Cache;
+import simulator.cache.CacheConfig;
+import simulator.cache.CoherenceBus;
+import simulator.cache.WritePolicy;
+import simulator.cpu.CPU;
+import simulator.cpu.RunStatus;
+import simulator.machine.MachineState;
+import simulator.machine.Memory;
+
+/**
+ * N cores sharing one Memory. Each core is a CPU with its own registers and
+ * its own private (unified) cache; the caches are kept coherent by a MESI
+ * snooping bus (see CoherenceBus).
+ *
+ * Execution:
+ *  - runInterleaved: all cores on the calling thread, round-robin, each
+ *    running a fixed quantum of instructions per turn. The interleaving
+ *    (and so every result and counter) is the same on every run.
+ *  - runThreaded: one Java thread per core, all running at once. Only the
+ *    coherence work is serialised: an access that can issue a bus
+ *    transaction or write memory (a miss, a store to a SHARED line, a
+ *    write-back) holds the bus while it runs, and every snoop it causes
+ *    completes before the bus is released. Hits on lines a core already
+ *    holds only lock that core's cache, so cores run in parallel between
+ *    misses. The order of transactions is left to the JVM.
+ *
+ * Notes:
+ *  - Cores have no console input (IN waits forever, so a core stops with
+ *    WAITING_FOR_INPUT); each core's OUT characters are kept separately.
+ *  - The host gives each core its identity by setting its registers
+ *    (getState) before running, e.g. a different index register base.
+ */
+public final class MultiCore {
+
+    /** Default per-core cache: 16 lines, 2-way, 4-word blocks, write-back. */
+    public static final CacheConfig DEFAULT_CACHE = CacheConfig.setAssociative(16, 2)
+            .withBlockSize(4).withWritePolicy(WritePolicy.WRITE_BACK);
+
+    private final Memory memory = new Memory();
+    private final CoherenceBus bus = new CoherenceBus();
+    private final CPU[] cores;
+    private final MachineState[] states;
+    private final Cache[] caches;
+    private final StringBuilder[] output;
+
+    /**
+     * @param coreCount                 number of cores
+     * @param config                    organisation of each core's private cache
+     * @throws IllegalArgumentException if coreCount is not positive or config is null
+     */
+    public MultiCore(int coreCount, CacheConfig config) {
+        if (coreCount <= 0) {
+            throw new IllegalArgumentException("Core count must be positive: " + coreCount);
+        }
+        if (config == null) {
+            throw new IllegalArgumentException("Cache config cannot be null.");
+        }
+        cores = new CPU[coreCount];
+        states = new MachineState[coreCount];
+        caches = new Cache[coreCount];
+        output = new StringBuilder[coreCount];
+        for (int i = 0; i < coreCount; i++) {
+            StringBuilder out = new StringBuilder();
+            output[i] = out;
+            states[i] = new MachineState();
+            caches[i] = new Cache(memory, config);
+            bus.attach(caches[i]);
+            cores[i] = new CPU(caches[i], states[i], () -> -1, c -> out.append((char) c));
+        }
+    }
+
+    public int getCoreCount() {
+        return cores.length;
+    }
+
+    public Memory getMemory() {
+        return memory;
+    }
+
+    public CoherenceBus getBus() {
+        return bus;
+    }
+
+    public CPU getCore(int core) {
+        return cores[core];
+    }
+
+    public MachineState getState(int core) {
+        return states[core];
+    }
+
+    public Cache getCache(int core) {
+        return caches[core];
+    }
+
+    /**
+     * @param core  core index
+     * @return      characters the core has printed with OUT
+     */
+    public String getOutput(int core) {
+        return output[core].toString();
+    }
+
+    /**
+     * Run every core round-robin on the calling thread until each one has
+     * halted, faulted, waited for input or used its budget.
+     *
+     * @param quantum           instructions per core per turn
+     * @param maxPerCore        instruction budget for each core
+     * @return                  why each core stopped
+     * @throws IllegalArgumentException if quantum or maxPerCore is not positive
+     */
+    public RunStatus[] runInterleaved(int quantum, long maxPerCore) {
+        checkBudget(quantum, maxPerCore);
+        RunStatus[] status = new RunStatus[cores.length];
+        long[] budget = new long[cores.length];
+        Arrays.fill(budget, maxPerCore);
+        int running = cores.length;
+        while (running > 0) {
+            for (int i = 0; i < cores.length; i++) {
+                if (status[i] != null) {
+                    continue;
+                }
+                long before = cores[i].getInstructionCount();
+                RunStatus s = cores[i].run(Math.min(quantum, budget[i]));
+                budget[i] -= cores[i].getInstructionCount() - before;
+                if (s != RunStatus.BUDGET_EXHAUSTED || budget[i] <= 0) {
+                    status[i] = s;
+                    running--;
+                }
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Run each core on its own thread until each one has halted, faulted,
+     * waited for input or used its budget. Results depend on how the
+     * threads are scheduled; use runInterleaved for repeatable runs.
+     *
+     * @param quantum           instructions a core runs before it yields
+     * @param maxPerCore        instruction budget for each core
+     * @return                  why each core stopped
+     * @throws IllegalArgumentException if quantum or maxPerCore is not positive
+     * @throws InterruptedException     if interrupted while waiting for the cores
+     */
+    public RunStatus[] runThreaded(int quantum, long maxPerCore) throws InterruptedException {
+        checkBudget(quantum, maxPerCore);
+        RunStatus[] status = new RunStatus[cores.length];
+        RuntimeException[] failure = new RuntimeException[cores.length];
+        Thread[] threads = new Thread[cores.length];
+        for (int i = 0; i < cores.length; i++) {
+            int core = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    status[core] = runCore(core, quantum, maxPerCore);
+                } catch (RuntimeException ex) {
+                    failure[core] = ex;
+                }
+            }, "cpu-core-" + i);
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        for (RuntimeException ex : failure) {
+            if (ex != null) {
+                throw ex;
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Write every core's dirty words back to memory, so Memory shows the
+     * final values.
+     */
+    public void flushCaches() {
+        synchronized (bus) {
+            for (Cache c : caches) {
+                c.flush();
+            }
+        }
+    }
+
+    /**
+     * One line per core: instructions, accesses, misses (coherence misses
+     * among them) and bus traffic.
+     *
+     * @return multi-line report
+     */
+    public String coherenceReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("core   instr  accesses  misses  coher   BusRd  BusRdX  BusUpgr  flushes  invalidated\n");
+        for (int i = 0; i < cores.length; i++) {
+            Cache c = caches[i];
+            sb.append(String.format(Locale.ROOT, "%4d %7d %9d %7d %6d %7d %7d %8d %8d %12d%n",
+                    i, cores[i].getInstructionCount(), c.getAccessCount(), c.getMissCount(),
+                    c.getCoherenceMisses(), c.getBusReads(), c.getBusReadExclusives(),
+                    c.getBusUpgrades(), c.getSnoopFlushes(), c.getSnoopInvalidations()));
+        }
+        return sb.toString();
+    }
+
+    /* ==========================
+     * Helpers
+     * ========================== */
+
+    /**
+     * Thread body for runThreaded: one quantum at a time. The caches take
+     * the bus for each transaction (see Cache.read and Cache.write).
+     */
+    private RunStatus runCore(int core, int quantum, long maxPerCore) {
+        CPU cpu = cores[core];
+        long budget = maxPerCore;
+        while (true) {
+            long before = cpu.getInstructionCount();
+            RunStatus s = cpu.run(Math.min(quantum, budget));
+            budget -= cpu.getInstructionCount() - before;
+            if (s != RunStatus.BUDGET_EXHAUSTED || budget <= 0) {
+                return s;
+            }
+            Thread.yield();
+        }
+    }
+
+    private static void checkBudget(int quantum, long maxPerCore) {
+        if (quantum <= 0) {
+            throw new IllegalArgumentException("Quantum must be positive: " + quantum);
+        }
+        if (maxPerCore <= 0) {
+            throw new IllegalArgumentException("Instruction budget must be positive: " + maxPerCore);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package simulator.multicore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import simulator.cpu.RunStatus;
+import simulator.io.ProgramLoader;
+import simulator.machine.MachineState;
+import simulator.machine.Memory;
+
+/**
+ * Parallel version of the Program1 search: the 20 numbers are split into
+ * one slice per core, every core runs the ParallelSearch kernel on its own
+ * slice (src/programs/multicore/ParallelSearch.asm, assembled to
+ * txt/ParallelSearch_load.txt), and the host combines the per-core
+ * results. Prints the answer and each core's coherence traffic.
+ *
+ * Usage:
+ *   java -cp out simulator.multicore.ParallelSearch [cores [query n1 .. nN]]
+ *
+ * Each layout is run twice, interleaved one instruction at a time (the
+ * repeatable run) and on threads:
+ *  - packed: WORK blocks 6 words apart, so neighbouring cores' blocks share
+ *    cache blocks and their stores invalidate each other (false sharing)
+ *  - padded: WORK blocks 8 words apart, one core per cache block
+ */
+public final class ParallelSearch {
+
+    public static final String KERNEL_FILE = "txt/ParallelSearch_load.txt";
+    public static final int START = 64;         // kernel entry, also the X3 code base
+    public static final int QUERY = 26;
+    public static final int NUMBERS = 480;
+    public static final int WORK = 512;
+    public static final int PACKED_STRIDE = 6;
+    public static final int PADDED_STRIDE = 8;
+
+    // WORK block fields
+    private static final int COUNT = 0;
+    private static final int PTR = 1;
+    private static final int BESTVAL = 2;
+    private static final int BESTDIFF = 3;
+
+    private static final long MAX_INSTRUCTIONS = 100_000L;
+
+    /** Program1 sample input: 20 numbers, then the query. */
+    private static final int[] SAMPLE = {
+        12, -5, 300, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23
+    };
+    private static final int SAMPLE_QUERY = 290;
+
+    private ParallelSearch() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int cores = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int query = SAMPLE_QUERY;
+        int[] numbers = SAMPLE;
+        if (args.length > 1) {
+            query = Integer.parseInt(args[1]);
+            numbers = new int[args.length - 2];
+            for (int i = 0; i < numbers.length; i++) {
+                numbers[i] = Integer.parseInt(args[i + 2]);
+            }
+        }
+        ProgramLoader.LoadFile kernel = new ProgramLoader().parse(new File(KERNEL_FILE));
+
+        System.out.println("Query " + query + ", " + numbers.length + " numbers, " + cores
+                + " cores; sequential answer " + closest(numbers, query));
+        for (int stride : new int[] {PACKED_STRIDE, PADDED_STRIDE}) {
+            String layout = stride == PACKED_STRIDE ? "packed" : "padded";
+
+            MultiCore mc = new MultiCore(cores, MultiCore.DEFAULT_CACHE);
+            setUp(mc, kernel, numbers, query, stride);
+            RunStatus[] status = mc.runInterleaved(1, MAX_INSTRUCTIONS);
+            System.out.println();
+            System.out.println("[" + layout + ", interleaved] answer " + result(mc, stride)
+                    + " " + Arrays.toString(status));
+            System.out.print(mc.coherenceReport());
+
+            MultiCore threaded = new MultiCore(cores, MultiCore.DEFAULT_CACHE);
+            setUp(threaded, kernel, numbers, query, stride);
+            threaded.runThreaded(1, MAX_INSTRUCTIONS);
+            System.out.println("[" + layout + ", threaded] answer " + result(threaded, stride));
+            System.out.print(threaded.coherenceReport());
+        }
+    }
+
+    /**
+     * Load the kernel and the data, and give every core its slice: PC and X3
+     * at START, X2 at its WORK block, WORK[COUNT] and WORK[PTR] set.
+     *
+     * @param mc        machine to set up (memory and core registers)
+     * @param kernel    parsed txt/ParallelSearch_load.txt
+     * @param numbers   values to search
+     * @param query     value to find the closest number to
+     * @param stride    words between consecutive cores' WORK blocks (at least 6)
+     * @throws IllegalArgumentException if the data does not fit in memory
+     */
+    public static void setUp(MultiCore mc, ProgramLoader.LoadFile kernel, int[] numbers, int query, int stride) {
+        int cores = mc.getCoreCount();
+        if (stride < PACKED_STRIDE || WORK + cores * stride > Memory.SIZE || NUMBERS + numbers.length > WORK) {
+            throw new IllegalArgumentException("Search data does not fit in memory.");
+        }
+        Memory memory = mc.getMemory();
+        for (ProgramLoader.Record r : kernel.records) {
+            memory.write(r.address, r.word);
+        }
+        memory.write(QUERY, query);
+        for (int i = 0; i < numbers.length; i++) {
+            memory.write(NUMBERS + i, numbers[i]);
+        }
+
+        int first = 0;
+        for (int core = 0; core < cores; core++) {
+            int count = numbers.length / cores + (core < numbers.length % cores ? 1 : 0);
+            int work = WORK + core * stride;
+            memory.write(work + COUNT, count);
+            memory.write(work + PTR, NUMBERS + first);
+            first += count;
+
+            MachineState s = mc.getState(core);
+            s.setPC(START);
+            s.setIXR(2, work);
+            s.setIXR(3, START);
+        }
+    }
+
+    /**
+     * Combine the per-core results after a run: the smallest BESTDIFF wins,
+     * and a tie goes to the lower core (the earlier slice), as in Program1.
+     *
+     * @param mc        machine after the run
+     * @param stride    WORK block stride used by setUp
+     * @return          closest value
+     */
+    public static int result(MultiCore mc, int stride) {
+        mc.flushCaches();
+        Memory memory = mc.getMemory();
+        int best = 0;
+        int bestDiff = Integer.MAX_VALUE;
+        for (int core = 0; core < mc.getCoreCount(); core++) {
+            int work = WORK + core * stride;
+            int diff = memory.read(work + BESTDIFF);
+            if (diff < bestDiff) {
+                bestDiff = diff;
+                best = (short) memory.read(work + BESTVAL);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Reference answer computed directly.
+     *
+     * @param numbers   values to search
+     * @param query     value to find the closest number to
+     * @return          first value with the smallest absolute difference
+     */
+    public static int closest(int[] numbers, int query) {
+        int best = numbers[0];
+        for (int n : numbers) {
+            if (Math.abs(n - query) < Math.abs(best - query)) {
+                best = n;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,278 @@
+package simulator.tests;
+
+import part0_assembler.Encoder;
+import simulator.cache.Cache;
+import simulator.cpu.BlockEngine;
+import simulator.cpu.CPU;
+import simulator.cpu.RunStatus;
+import simulator.machine.MachineState;
+import simulator.machine.Memory;
+
+/**
+ * Tests for the basic-block translation engine (BlockEngine).
+ * - compiled blocks must produce exactly the interpreter's results
+ *   (registers, memory, CC, cache hit/miss counts, instruction count)
+ * - self-modifying code inside a compiled block must still work
+ * - run(n) budget and input waits behave like CPU.run(n)
+ */
+public final class BlockEngineTests {
+
+    private static final Encoder ENCODER = new Encoder();
+
+    private static int passed = 0;
+    private static int failed = 0;
+
+    private BlockEngineTests() {}
+
+    /**
+     * Run all block engine tests.
+     *
+     * @param args ignored
+     */
+    public static void main(String[] args) {
+        System.out.println("=====================================================");
+        System.out.println("Block Engine Tests");
+        System.out.println("=====================================================");
+
+        testLoopMatchesInterpreter();
+        testSelfModifyingBlock();
+        testBudgetExhausted();
+        testWaitingForInput();
+        testDetach();
+
+        System.out.println();
+        System.out.println("=====================================================");
+        System.out.println("Block Engine Test Summary");
+        System.out.println("=====================================================");
+        System.out.println("Passed: " + passed);
+        System.out.println("Failed: " + failed);
+    }
+
+    /**
+     * SOB loop adding MEM[20] ten times, run once by the interpreter and once
+     * by the engine with a low hot threshold so the loop body is compiled.
+     *
+     *  0: LDA R2,0,10
+     *  1: AMR R1,0,20
+     *  2: SOB R2,0,1
+     *  3: STR R1,0,21
+     *  4: HLT
+     */
+    private static void testLoopMatchesInterpreter() {
+        int[] program = {
+                ENCODER.encodeBasic("LDA", 2, 0, 10),
+                ENCODER.encodeBasic("AMR", 1, 0, 20),
+                ENCODER.encodeBasic("SOB", 2, 0, 1),
+                ENCODER.encodeBasic("STR", 1, 0, 21),
+                0
+        };
+
+        Machine interp = new Machine(program);
+        interp.mem.write(20, 3);
+        RunStatus expected = interp.cpu.runUntilHalt();
+
+        Machine jit = new Machine(program);
+        jit.mem.write(20, 3);
+        BlockEngine engine = new BlockEngine(jit.cpu, 2);
+        RunStatus actual = engine.runUntilHalt();
+
+        check(
+                "loop result",
+                actual == RunStatus.HALTED && jit.mem.read(21) == 30,
+                "Engine should compute 10 * 3 and halt."
+        );
+
+        check(
+                "loop matches interpreter",
+                expected == actual && interp.sameAs(jit),
+                "Registers, memory, cache counters and instruction count should match the interpreter."
+        );
+
+        check(
+                "loop was compiled",
+                engine.getTranslatedBlockCount() > 0 && engine.getCompiledInstructionCount() > 0,
+                "Hot loop body should have been translated and executed as a block."
+        );
+    }
+
+    /**
+     * The loop body rewrites its own first instruction on every pass:
+     *
+     *  0: LDA R2,0,6
+     *  1: AIR R1,1      <- replaced by AIR R1,2 after the first pass
+     *  2: STR R0,0,1
+     *  3: SOB R2,0,1
+     *  4: HLT
+     */
+    private static void testSelfModifyingBlock() {
+        int[] program = {
+                ENCODER.encodeBasic("LDA", 2, 0, 6),
+                ENCODER.encodeImmediate("AIR", 1, 1),
+                ENCODER.encodeBasic("STR", 0, 0, 1),
+                ENCODER.encodeBasic("SOB", 2, 0, 1),
+                0
+        };
+        int replacement = ENCODER.encodeImmediate("AIR", 1, 2);
+
+        Machine interp = new Machine(program);
+        interp.state.setGPR(0, replacement);
+        interp.cpu.runUntilHalt();
+
+        Machine jit = new Machine(program);
+        jit.state.setGPR(0, replacement);
+        new BlockEngine(jit.cpu, 1).runUntilHalt();
+
+        check(
+                "self-modifying block",
+                jit.state.getGPR(1) == 11 && interp.sameAs(jit),
+                "Rewritten code must be re-translated and match the interpreter (R1 = 1 + 5 * 2)."
+        );
+    }
+
+    /**
+     * A detached engine no longer hears memory writes, so a discarded
+     * engine does not keep dropping blocks (or stay reachable) through the
+     * CPU's D-cache.
+     */
+    private static void testDetach() {
+        int[] program = {
+                ENCODER.encodeBasic("LDA", 2, 0, 10),
+                ENCODER.encodeBasic("AMR", 1, 0, 20),
+                ENCODER.encodeBasic("SOB", 2, 0, 1),
+                0
+        };
+        Machine first = new Machine(program);
+        BlockEngine detached = new BlockEngine(first.cpu, 2);
+        detached.runUntilHalt();
+        Machine second = new Machine(program);
+        BlockEngine attached = new BlockEngine(second.cpu, 2);
+        attached.runUntilHalt();
+
+        detached.detach();
+        first.mem.write(1, program[1]);
+        second.mem.write(1, program[1]);
+
+        check(
+                "detach",
+                detached.getTranslatedBlockCount() > 0 && detached.getInvalidatedBlockCount() == 0
+                        && attached.getInvalidatedBlockCount() > 0,
+                "A write into a compiled block should drop it only while the engine is attached."
+        );
+    }
+
+    /**
+     * run(n) on an endless loop must stop after exactly n instructions,
+     * even when whole blocks are being executed.
+     */
+    private static void testBudgetExhausted() {
+        int[] program = {
+                ENCODER.encodeImmediate("AIR", 0, 1),
+                ENCODER.encodeImmediate("AIR", 1, 2),
+                ENCODER.encodeXAddress("JMA", 0, 0)
+        };
+
+        Machine jit = new Machine(program);
+        BlockEngine engine = new BlockEngine(jit.cpu, 1);
+        RunStatus status = engine.run(1000);
+
+        check(
+                "budget exhausted",
+                status == RunStatus.BUDGET_EXHAUSTED && jit.cpu.getInstructionCount() == 1000,
+                "Engine should stop after the instruction budget."
+        );
+    }
+
+    /**
+     * IN with an empty input device inside a compiled block reports
+     * WAITING_FOR_INPUT with PC left on the IN.
+     */
+    private static void testWaitingForInput() {
+        int[] program = {
+                ENCODER.encodeImmediate("AIR", 0, 1),
+                ENCODER.encodeIO("IN", 1, 0),
+                ENCODER.encodeXAddress("JMA", 0, 0)
+        };
+
+        Memory mem = new Memory();
+        MachineState s = new MachineState();
+        for (int i = 0; i < program.length; i++) {
+            mem.write(i, program[i]);
+        }
+        int[] remaining = { 3 };
+        CPU cpu = new CPU(new Cache(mem), s, () -> remaining[0]-- > 0 ? 'A' : -1, value -> {});
+        s.setPC(0);
+
+        RunStatus status = new BlockEngine(cpu, 1).run(100);
+
+        check(
+                "waiting for input",
+                status == RunStatus.WAITING_FOR_INPUT && s.getPC() == 1 && s.getGPR(0) == 4,
+                "Engine should stop at IN once input runs out."
+        );
+    }
+
+    /* ==========================
+     * Helpers
+     * ========================== */
+
+    /**
+     * One isolated machine: memory, cache, state and CPU with a program at 0.
+     */
+    private static final class Machine {
+        final Memory mem = new Memory();
+        final MachineState state = new MachineState();
+        final Cache cache = new Cache(mem);
+        final CPU cpu = new CPU(cache, state);
+
+        Machine(int[] program) {
+            for (int i = 0; i < program.length; i++) {
+                mem.write(i, program[i]);
+            }
+            state.setPC(0);
+        }
+
+        boolean sameAs(Machine other) {
+            for (int i = 0; i < Memory.SIZE; i++) {
+                if (mem.read(i) != other.mem.read(i)) {
+                    return false;
+                }
+            }
+            for (int r = 0; r < 4; r++) {
+                if (state.getGPR(r) != other.state.getGPR(r)) {
+                    return false;
+                }
+            }
+            for (int x = 1; x < 4; x++) {
+                if (state.getIXR(x) != other.state.getIXR(x)) {
+                    return false;
+                }
+            }
+            return state.getPC() == other.state.getPC()
+                    && state.getIR() == other.state.getIR()
+                    && state.getMAR() == other.state.getMAR()
+                    && state.getMBR() == other.state.getMBR()
+                    && state.getCC() == other.state.getCC()
+                    && cache.getHitCount() == other.cache.getHitCount()
+                    && cache.getMissCount() == other.cache.getMissCount()
+                    && cpu.getInstructionCount() == other.cpu.getInstructionCount();
+        }
+    }
+
+    /**
+     * Record one test result.
+     *
+     * @param name              test name
+     * @param condition         true if passing
+     * @param failureMessage    explanation shown on failure
+     */
+    private static void check(String name, boolean condition, String failureMessage) {
+        if (condition) {
+            passed++;
+            System.out.println("[PASS] " + name);
+        } else {
+            failed++;
+            System.out.println("[FAIL] " + name);
+            System.out.println("       " + failureMessage);
+        }
+    }
+}
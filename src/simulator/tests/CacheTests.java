@@ -1,7 +1,27 @@
 package simulator.tests;
 
+import simulator.cache.AccessHistory;
 import simulator.cache.Cache;
+import simulator.cache.CacheConfig;
+import simulator.cache.CacheLine;
+import simulator.cache.CoherenceBus;
+import simulator.cache.MesiState;
+import simulator.cache.Prefetcher;
+import simulator.cache.ReplacementPolicy;
+import simulator.cache.WritePolicy;
+import simulator.cpu.CPU;
+import simulator.machine.MachineState;
 import simulator.machine.Memory;
+import simulator.multicore.MultiCore;
+import simulator.trace.CacheSweep;
+import simulator.trace.TraceFile;
+import simulator.trace.TraceRecorder;
+import part0_assembler.Encoder;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Cache tests for Cache.java and CacheLine.java.
@@ -10,6 +30,12 @@ import simulator.machine.Memory;
  * - check write-through behavior
  * - check write-allocate behavior
  * - check FIFO replacement
+ * - check direct-mapped and set-associative organisations
+ * - check multi-word block fills
+ * - check the replacement policies
+ * - check write-back and write-no-allocate modes
+ * - check trace recording (also on an interrupted thread) and the offline configuration sweep
+ * - check MESI coherence between cores' caches, interleaved and on threads
  */
 public final class CacheTests {
 
@@ -32,6 +58,27 @@ public final class CacheTests {
         testWriteHitUpdatesBackingMemory();
         testWriteMissAllocatesLine();
         testFifoReplacement();
+        testDirectMappedConflict();
+        testTwoWaySetFifo();
+        testBlockFillSequentialHits();
+        testReplacementVictims();
+        testArcResistsScans();
+        testWriteBackDefersMemory();
+        testWriteNoAllocate();
+        testLatencyAndAmat();
+        testTwoLevelHierarchy();
+        testNextLinePrefetch();
+        testStridePrefetch();
+        testPrefetchingL2();
+        testMissClassification();
+        testVictimBuffer();
+        testVictimBufferBelowSplitCache();
+        testAccessHistory();
+        testTraceSweep();
+        testTraceAfterInterrupt();
+        testMesiCoherence();
+        testMultiCoreInterleaving();
+        testMultiCoreThreaded();
 
         System.out.println();
         System.out.println("=====================================================");
@@ -207,11 +254,796 @@ public final class CacheTests {
         );
     }
 
+    /**
+     * Verify direct-mapped placement:
+     * - addresses 5 and 5 + lineCount share one line and evict each other
+     * - address 6 sits in another line and is not disturbed
+     */
+    private static void testDirectMappedConflict() {
+        Memory memory = new Memory();
+        Cache cache = new Cache(memory, CacheConfig.directMapped(8));
+
+        memory.write(5, 000005);
+        memory.write(13, 000013);
+        memory.write(6, 000006);
+
+        cache.read(5);
+        cache.read(6);
+        cache.read(13);     // same line as 5
+
+        long missesBefore = cache.getMissCount();
+        int reread6 = cache.read(6);
+        int reread5 = cache.read(5);
+        long newMisses = cache.getMissCount() - missesBefore;
+
+        check(
+                "direct-mapped conflict eviction",
+                reread6 == 000006 && reread5 == 000005 && newMisses == 1,
+                "Expected 6 to still hit and 5 to miss after 13 took its line."
+        );
+
+        check(
+                "direct-mapped line placement",
+                cache.getLine(5).getAddressTag() == 5 && cache.getLine(6).getAddressTag() == 6,
+                "Expected address n to live in line n % 8."
+        );
+    }
+
+    /**
+     * Verify 2-way set associativity with FIFO inside the set:
+     * - three addresses mapping to set 1 of 4 evict the oldest of the three
+     * - a fourth address in another set does not count against set 1
+     */
+    private static void testTwoWaySetFifo() {
+        Memory memory = new Memory();
+        Cache cache = new Cache(memory, CacheConfig.setAssociative(8, 2));
+
+        // sets = 4: 1, 5 and 9 all map to set 1
+        cache.read(1);
+        cache.read(5);
+        cache.read(2);      // set 2, unrelated
+        cache.read(9);      // evicts 1, the oldest in set 1
+
+        long missesBefore = cache.getMissCount();
+        long hitsBefore = cache.getHitCount();
+        cache.read(5);
+        cache.read(9);
+        cache.read(2);
+        long hits = cache.getHitCount() - hitsBefore;
+        cache.read(1);
+        long misses = cache.getMissCount() - missesBefore;
+
+        check(
+                "2-way set fifo",
+                hits == 3 && misses == 1,
+                "Expected 5, 9 and 2 to hit and 1 to have been evicted from set 1."
+        );
+
+        check(
+                "2-way config",
+                cache.getConfig().getSetCount() == 4 && cache.getLineCount() == 8,
+                "Expected 8 lines in 4 sets."
+        );
+    }
+    /**
+     * Verify 4-word blocks:
+     * - a sequential scan of 8 words misses once per block
+     * - a write hit updates its word inside the block
+     * - dump() shows the block's address range and words
+     * - direct-mapped blocks 0 and 4 (addresses 0 and 16) share a line
+     */
+    private static void testBlockFillSequentialHits() {
+        Memory memory = new Memory();
+        Cache cache = new Cache(memory, CacheConfig.fullyAssociative(4).withBlockSize(4));
+
+        for (int i = 0; i < 8; i++) {
+            memory.write(8 + i, 000100 + i);
+        }
+
+        boolean valuesOk = true;
+        for (int i = 0; i < 8; i++) {
+            valuesOk &= cache.read(8 + i) == 000100 + i;
+        }
+
+        check(
+                "block fill sequential scan",
+                valuesOk && cache.getMissCount() == 2 && cache.getHitCount() == 6,
+                "Expected one miss per 4-word block and hits for the other words."
+        );
+
+        cache.write(10, 000777);
+        check(
+                "block write hit",
+                cache.getMissCount() == 2 && cache.read(10) == 000777 && memory.read(10) == 000777,
+                "Expected the write to hit inside the cached block and reach memory."
+        );
+
+        check(
+                "block dump contents",
+                cache.dump().contains("addr=000010..000013 fifo=1 words=000100 000101 000777 000103"),
+                "Expected dump to list the block range and its four words."
+        );
+
+        Cache direct = new Cache(memory, CacheConfig.directMapped(4).withBlockSize(4));
+        direct.read(1);
+        direct.read(17);    // block 4 -> line 0, evicts block 0
+        long missesBefore = direct.getMissCount();
+        direct.read(2);
+        check(
+                "direct-mapped block conflict",
+                direct.getMissCount() - missesBefore == 1 && direct.getLine(0).getAddressTag() == 0,
+                "Expected block 0 to be reloaded into line 0 after block 4 evicted it."
+        );
+    }
+    /**
+     * Verify which address each policy evicts from a full 4-line cache after
+     * reading 0, 1, 2, 3, then 0 and 1 again (0 once more for LFU):
+     * - FIFO evicts 0 (oldest fill)
+     * - LRU evicts 2 (least recently used)
+     * - Tree PLRU evicts 2 (the tree points away from 0/1, then away from 3)
+     * - LFU evicts 2 (fewest uses, older than 3)
+     * - RANDOM is repeatable for the same seed
+     */
+    private static void testReplacementVictims() {
+        check(
+                "FIFO victim",
+                evictedAfterPattern(ReplacementPolicy.Kind.FIFO) == 0,
+                "Expected FIFO to evict address 0."
+        );
+        check(
+                "LRU victim",
+                evictedAfterPattern(ReplacementPolicy.Kind.LRU) == 2,
+                "Expected LRU to evict address 2."
+        );
+        check(
+                "tree PLRU victim",
+                evictedAfterPattern(ReplacementPolicy.Kind.PLRU) == 2,
+                "Expected tree PLRU to evict address 2."
+        );
+        check(
+                "LFU victim",
+                evictedAfterPattern(ReplacementPolicy.Kind.LFU) == 2,
+                "Expected LFU to evict address 2."
+        );
+
+        StringBuilder first = new StringBuilder();
+        StringBuilder second = new StringBuilder();
+        for (StringBuilder out : new StringBuilder[]{first, second}) {
+            Cache cache = new Cache(new Memory(),
+                    CacheConfig.fullyAssociative(4).withReplacement(ReplacementPolicy.Kind.RANDOM).withRandomSeed(42L));
+            for (int i = 0; i < 40; i++) {
+                cache.read((i * 7) % 11);
+                out.append(cache.getLastAccessSummary()).append('\n');
+            }
+        }
+        check(
+                "random replacement is seeded",
+                first.toString().equals(second.toString()),
+                "Expected two caches with the same seed to make the same choices."
+        );
+
+        Cache cache = new Cache(new Memory());
+        cache.read(5);
+        cache.setReplacement(ReplacementPolicy.Kind.LRU);
+        check(
+                "setReplacement clears the cache",
+                cache.getAccessCount() == 0 && !cache.getLine(0).isValid()
+                        && cache.getConfig().getReplacement() == ReplacementPolicy.Kind.LRU,
+                "Expected an empty LRU cache after switching policy."
+        );
+    }
+
+    /**
+     * Verify ARC keeps a hot working set through a one-time scan that
+     * flushes an LRU cache of the same size.
+     */
+    private static void testArcResistsScans() {
+        double lru = hitRateHotSetWithScans(ReplacementPolicy.Kind.LRU);
+        double arc = hitRateHotSetWithScans(ReplacementPolicy.Kind.ARC);
+
+        check(
+                "ARC scan resistance",
+                arc > lru + 0.1,
+                "Expected ARC to beat LRU on a hot set mixed with scans (ARC=" + arc + " LRU=" + lru + ")."
+        );
+    }
+    /**
+     * Verify write-back:
+     * - a store stays in the cache (dirty) until its line is evicted
+     * - flush() writes the remaining dirty lines and counts them
+     * - a direct Memory.write (console Store, IPL) replaces the cached copy
+     */
+    private static void testWriteBackDefersMemory() {
+        Memory memory = new Memory();
+        Cache cache = new Cache(memory, CacheConfig.directMapped(4).withWritePolicy(WritePolicy.WRITE_BACK));
+
+        cache.write(1, 000111);
+        check(
+                "write-back store stays in cache",
+                memory.read(1) == 0 && cache.read(1) == 000111 && cache.getLine(1).isDirty(),
+                "Expected memory untouched and the line dirty after a write-back store."
+        );
+
+        cache.read(5);      // same line as 1: evicts it
+        check(
+                "write-back on eviction",
+                memory.read(1) == 000111 && cache.getWritebackCount() == 1,
+                "Expected the dirty word to reach memory when its line was evicted."
+        );
+
+        cache.write(2, 000222);
+        cache.write(3, 000333);
+        int flushed = cache.flush();
+        check(
+                "write-back flush",
+                flushed == 2 && memory.read(2) == 000222 && memory.read(3) == 000333
+                        && !cache.getLine(2).isDirty() && cache.getWritebackCount() == 3,
+                "Expected flush to write both dirty lines and leave them clean."
+        );
+
+        cache.write(2, 000444);
+        memory.write(2, 000555);
+        cache.flush();
+        check(
+                "direct memory write replaces cached word",
+                cache.read(2) == 000555 && memory.read(2) == 000555,
+                "Expected a direct Memory.write to win over the older dirty cached word."
+        );
+    }
+
+    /**
+     * Verify write-no-allocate: a write miss updates memory only, while a
+     * write hit still updates the cached line.
+     */
+    private static void testWriteNoAllocate() {
+        Memory memory = new Memory();
+        Cache cache = new Cache(memory, CacheConfig.fullyAssociative(4).withWritePolicy(WritePolicy.WRITE_NO_ALLOCATE));
+
+        cache.write(7, 000777);
+        long missesBefore = cache.getMissCount();
+        int first = cache.read(7);
+        cache.write(7, 000666);
+        int second = cache.read(7);
+
+        check(
+                "write-no-allocate",
+                first == 000777 && cache.getMissCount() - missesBefore == 1
+                        && second == 000666 && memory.read(7) == 000666,
+                "Expected the write miss not to allocate and the later write hit to update line and memory."
+        );
+    }
+
+    /**
+     * Verify cycle accounting: a miss costs the hit latency plus the memory
+     * latency, a hit only the hit latency.
+     */
+    private static void testLatencyAndAmat() {
+        Memory memory = new Memory();
+        Cache cache = new Cache(memory);
+
+        cache.read(5);
+        long afterMiss = cache.getCycleCount();
+        cache.read(5);
+
+        check(
+                "latency and AMAT",
+                afterMiss == CacheConfig.DEFAULT_HIT_LATENCY + Memory.DEFAULT_LATENCY
+                        && cache.getCycleCount() == afterMiss + CacheConfig.DEFAULT_HIT_LATENCY
+                        && cache.getAverageAccessTime() == cache.getCycleCount() / 2.0,
+                "Expected 101 cycles for the miss, 1 for the hit, and AMAT = cycles / accesses."
+        );
+    }
+
+    /**
+     * Verify an L1 over a write-back L2: L2 hits are cheaper than memory,
+     * and an L1 write-back stops in the L2 until the L2 is flushed.
+     */
+    private static void testTwoLevelHierarchy() {
+        Memory memory = new Memory();
+        Cache l2 = new Cache(memory, CacheConfig.setAssociative(8, 2).withBlockSize(4)
+                .withHitLatency(10).withWritePolicy(WritePolicy.WRITE_BACK));
+        Cache l1 = new Cache(l2, CacheConfig.directMapped(2).withWritePolicy(WritePolicy.WRITE_BACK));
+
+        l1.read(0);                     // L1 miss, L2 miss: 1 + 10 + 100
+        long afterFirst = l1.getCycleCount();
+        l1.read(1);                     // L1 miss, L2 hit (same 4-word block): 1 + 10
+        long secondCost = l1.getCycleCount() - afterFirst;
+
+        l1.write(0, 000777);            // dirty in L1 only
+        boolean heldInL1 = l2.peek(0) == 0 && memory.read(0) == 0 && l1.peek(0) == 000777;
+        l1.read(2);                     // evicts address 0 into the L2
+        boolean heldInL2 = l2.peek(0) == 000777 && memory.read(0) == 0;
+        l2.flush();
+
+        check(
+                "two-level hierarchy",
+                afterFirst == 111 && secondCost == 11
+                        && l2.getAccessCount() == 4 && l2.getMissCount() == 1
+                        && heldInL1 && heldInL2 && memory.read(0) == 000777,
+                "Expected L2 hits at 11 cycles and the dirty word to move L1 -> L2 -> memory."
+        );
+    }
+
+    /**
+     * Verify next-line prefetch on a sequential walk: only the first read
+     * misses, every later read uses a prefetch that is still in flight, and
+     * a prefetched block evicted unused is counted.
+     */
+    private static void testNextLinePrefetch() {
+        Memory memory = new Memory();
+        Cache cache = new Cache(memory, CacheConfig.fullyAssociative(16).withPrefetcher(Prefetcher.Kind.NEXT_LINE));
+        for (int address = 0; address < 8; address++) {
+            cache.read(address);
+        }
+        boolean walk = cache.getMissCount() == 1 && cache.getPrefetchIssued() == 8
+                && cache.getPrefetchUseful() == 7 && cache.getPrefetchLate() == 7;
+
+        Cache small = new Cache(memory, CacheConfig.directMapped(2).withPrefetcher(Prefetcher.Kind.NEXT_LINE));
+        small.read(0);      // prefetches 1 into line 1
+        small.read(2);      // prefetches 3 into line 1, evicting 1 unused
+
+        check(
+                "next-line prefetch",
+                walk && small.getPrefetchIssued() == 2 && small.getPrefetchUnused() == 1,
+                "Expected 1 miss and 7 late useful prefetches, and 1 unused prefetch evicted."
+        );
+    }
+
+    /**
+     * Verify stride prefetch: once one instruction repeats a stride, the
+     * next element is loaded ahead, even with another instruction's
+     * accesses in between.
+     */
+    private static void testStridePrefetch() {
+        Memory memory = new Memory();
+        Cache cache = new Cache(memory, CacheConfig.fullyAssociative(16).withPrefetcher(Prefetcher.Kind.STRIDE));
+
+        cache.read(10, 100);
+        cache.read(500, 200);
+        cache.read(13, 100);
+        cache.read(501, 200);
+        cache.read(16, 100);    // stride 3 seen twice: prefetch 19
+        long missesBefore = cache.getMissCount();
+        cache.read(19, 100);
+
+        check(
+                "stride prefetch",
+                cache.getMissCount() == missesBefore && cache.getPrefetchUseful() == 1
+                        && cache.getPrefetchIssued() == 2,
+                "Expected 19 to be prefetched after the second stride of 3 (and 22 after it)."
+        );
+    }
+
+    /**
+     * Verify an L2 whose prefetch may evict the block it just filled for
+     * the L1 (one line, or Random replacement): the L1 still gets the
+     * whole block.
+     */
+    private static void testPrefetchingL2() {
+        Memory memory = new Memory();
+        for (int address = 0; address < 16; address++) {
+            memory.write(address, 0100 + address);
+        }
+        boolean ok = true;
+        CacheConfig[] l2Configs = {
+            CacheConfig.fullyAssociative(1).withBlockSize(4).withPrefetcher(Prefetcher.Kind.NEXT_LINE),
+            CacheConfig.fullyAssociative(2).withBlockSize(4).withPrefetcher(Prefetcher.Kind.NEXT_LINE)
+                    .withReplacement(ReplacementPolicy.Kind.RANDOM)
+        };
+        for (CacheConfig l2Config : l2Configs) {
+            Cache l2 = new Cache(memory, l2Config);
+            Cache l1 = new Cache(l2, CacheConfig.fullyAssociative(2).withBlockSize(4));
+            for (int address = 0; address < 16; address++) {
+                ok &= l1.read(address) == 0100 + address;
+            }
+            ok &= l2.getPrefetchIssued() > 0;
+        }
+
+        check(
+                "prefetching L2",
+                ok,
+                "Expected every word through a prefetching L2 (1 line, and Random), with prefetches issued."
+        );
+    }
+
+    /**
+     * Verify 3C classification: first touches are compulsory, ping-pong in
+     * one direct-mapped line is conflict, and a loop one block larger than
+     * the cache is capacity.
+     */
+    private static void testMissClassification() {
+        Memory memory = new Memory();
+        Cache direct = new Cache(memory, CacheConfig.directMapped(4));
+        direct.read(0);
+        direct.read(4);
+        direct.read(0);
+        direct.read(4);
+
+        Cache small = new Cache(memory, CacheConfig.fullyAssociative(2));
+        small.read(0);
+        small.read(1);
+        small.read(2);
+        small.read(0);
+
+        check(
+                "3C miss classification",
+                direct.getCompulsoryMisses() == 2 && direct.getConflictMisses() == 2
+                        && direct.getCapacityMisses() == 0
+                        && small.getCompulsoryMisses() == 3 && small.getCapacityMisses() == 1
+                        && small.getConflictMisses() == 0,
+                "Expected 2 compulsory + 2 conflict (direct-mapped) and 3 compulsory + 1 capacity (2 lines)."
+        );
+    }
+
+    /**
+     * Verify the victim buffer: evicted lines come back without a memory
+     * transfer, and a dirty line is only written back when it leaves the
+     * buffer (or on flush).
+     */
+    private static void testVictimBuffer() {
+        Memory memory = new Memory();
+        Cache cache = new Cache(memory, CacheConfig.directMapped(4).withVictimBuffer(2));
+        cache.read(0);
+        cache.read(4);
+        long cyclesBefore = cache.getCycleCount();
+        cache.read(0);
+        cache.read(4);
+        boolean swapped = cache.getMissCount() == 4 && cache.getVictimHitCount() == 2
+                && cache.getCycleCount() - cyclesBefore == 4;
+
+        Cache writeBack = new Cache(memory, CacheConfig.directMapped(1)
+                .withWritePolicy(WritePolicy.WRITE_BACK).withVictimBuffer(1));
+        writeBack.write(0, 000777);
+        writeBack.read(1);                          // 0 moves to the buffer, still dirty
+        boolean buffered = memory.read(0) == 0 && writeBack.peek(0) == 000777;
+        int back = writeBack.read(0);               // swapped back in
+        writeBack.flush();
+
+        check(
+                "victim buffer",
+                swapped && buffered && back == 000777 && memory.read(0) == 000777,
+                "Expected 2 victim hits at 2 cycles each and the dirty word kept until flush."
+        );
+    }
+
+    /**
+     * Verify that a write-through store missing a lower level reaches the
+     * copy in that level's victim buffer before memory changes, so a split
+     * L1 above sees the new word.
+     */
+    private static void testVictimBufferBelowSplitCache() {
+        Memory memory = new Memory();
+        Cache l2 = new Cache(memory, CacheConfig.fullyAssociative(1)
+                .withWritePolicy(WritePolicy.WRITE_NO_ALLOCATE).withVictimBuffer(1));
+        CacheConfig l1Config = CacheConfig.setAssociative(4, 2).withBlockSize(4);
+        Cache icache = new Cache(l2, l1Config);
+        Cache dcache = new Cache(l2, l1Config);
+        icache.addPeer(dcache);
+        dcache.addPeer(icache);
+
+        icache.read(12);
+        dcache.write(14, 394);
+        int fetched = icache.read(14);
+
+        Cache allocating = new Cache(memory, CacheConfig.directMapped(1).withBlockSize(4).withVictimBuffer(1));
+        Cache above = new Cache(allocating, l1Config);
+        above.read(20);
+        allocating.read(24);                        // 20..23 moves to the buffer
+        allocating.write(21, 0123);                 // swapped back in by the store
+
+        check(
+                "victim buffer below split cache",
+                fetched == 394 && above.read(21) == 0123 && memory.read(21) == 0123,
+                "Expected the split L1 to see 394 and the cache above to see 000123; got "
+                        + fetched + " and " + Memory.toOct6(above.read(21)) + "."
+        );
+    }
+
+    /**
+     * Verify the last-access summary text (built on request) and the ring
+     * buffer of recent accesses, which keeps only the newest entries.
+     */
+    private static void testAccessHistory() {
+        Memory memory = new Memory();
+        memory.write(10, 012345);
+        Cache cache = new Cache(memory);
+        cache.setHistorySize(3);
+
+        cache.read(10);
+        String summary = cache.getLastAccessSummary();
+        cache.read(10);
+        cache.write(11, 7);
+        cache.read(12);
+        cache.read(11);
+        AccessHistory history = cache.getHistory();
+
+        check(
+                "access history",
+                summary.equals("[CACHE] READ miss addr=000012 word=012345 line=0")
+                        && history.size() == 3
+                        && history.getAddress(0) == 11 && history.isWrite(0) && !history.isHit(0)
+                        && history.getAddress(2) == 11 && history.isHit(2) && history.getWord(2) == 7,
+                "Expected the summary text and the last 3 of 5 accesses, oldest first."
+        );
+    }
+
+    /**
+     * Verify that a recorded trace reads back unchanged and that the
+     * parallel sweep reports the same misses as driving each cache directly.
+     */
+    private static void testTraceSweep() {
+        List<CacheConfig> configs = List.of(
+                CacheConfig.directMapped(8),
+                CacheConfig.setAssociative(8, 2).withBlockSize(2).withWritePolicy(WritePolicy.WRITE_BACK));
+        Cache[] direct = {new Cache(new Memory(), configs.get(0)), new Cache(new Memory(), configs.get(1))};
+
+        Path file = null;
+        try {
+            file = Files.createTempFile("cache-trace", ".bin");
+            try (TraceRecorder recorder = new TraceRecorder(file)) {
+                for (int i = 0; i < 300; i++) {
+                    int address = (i * 7) % 40;
+                    int kind = i % 5 == 0 ? TraceRecorder.WRITE : i % 2 == 0 ? TraceRecorder.READ : TraceRecorder.FETCH;
+                    recorder.record(kind, address);
+                    for (Cache c : direct) {
+                        if (kind == TraceRecorder.WRITE) {
+                            c.write(address, 0);
+                        } else {
+                            c.read(address);
+                        }
+                    }
+                }
+            }
+            for (Cache c : direct) {
+                c.flush();
+            }
+
+            TraceFile trace = TraceFile.open(file);
+            List<CacheSweep.Result> results = CacheSweep.run(trace, configs, ForkJoinPool.commonPool());
+            check(
+                    "trace sweep",
+                    trace.size() == 300
+                            && trace.kind(5) == TraceRecorder.WRITE && trace.address(5) == 35
+                            && results.get(0).getMisses() == direct[0].getMissCount()
+                            && results.get(1).getMisses() == direct[1].getMissCount()
+                            && results.get(1).getWritebacks() == direct[1].getWritebackCount()
+                            && results.get(0).getAccesses() == 300,
+                    "Expected 300 records and sweep counts equal to direct cache runs."
+            );
+        } catch (IOException ex) {
+            check("trace sweep", false, "I/O error: " + ex.getMessage());
+        } finally {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {
+                    // temp file; nothing else to do
+                }
+            }
+        }
+    }
+
+    /**
+     * Verify that a run which keeps recording after its thread is interrupted
+     * (Halt during turbo Run stops only after the current batch) still writes
+     * the whole trace. 40000 instructions of an LDR/JMA loop give 60000
+     * records, more than one buffer, so records are written while interrupted.
+     */
+    private static void testTraceAfterInterrupt() {
+        Encoder encoder = new Encoder();
+        Memory memory = new Memory();
+        memory.write(0, encoder.encodeBasic("LDR", 0, 0, 30));
+        memory.write(1, encoder.encodeXAddress("JMA", 0, 0));
+        MachineState state = new MachineState();
+        CPU cpu = new CPU(new Cache(memory), state);
+
+        Path file = null;
+        try {
+            file = Files.createTempFile("cache-trace", ".bin");
+            TraceRecorder recorder = new TraceRecorder(file);
+            cpu.setTraceRecorder(recorder);
+            Thread worker = new Thread(() -> {
+                Thread.currentThread().interrupt();     // Halt pressed mid-batch
+                cpu.run(40000);
+            });
+            worker.start();
+            worker.join();
+            cpu.setTraceRecorder(null);
+
+            String error = "";
+            try {
+                recorder.close();
+            } catch (IOException ex) {
+                error = ex.toString();
+            }
+            TraceFile trace = TraceFile.open(file);
+            check(
+                    "trace after interrupt",
+                    error.isEmpty() && recorder.getCount() == 60000 && trace.size() == 60000,
+                    "Expected all 60000 records in the file; got " + trace.size() + " of "
+                            + recorder.getCount() + (error.isEmpty() ? "" : ", close() threw " + error) + "."
+            );
+        } catch (IOException ex) {
+            check("trace after interrupt", false, "I/O error: " + ex.getMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            check("trace after interrupt", false, "interrupted");
+        } finally {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {
+                    // temp file; nothing else to do
+                }
+            }
+        }
+    }
+
+    /**
+     * Verify the MESI transitions between two write-back caches on a bus:
+     * E on a lone read, S once shared, BusUpgr + invalidation on a store,
+     * and a flush when the other cache reads the modified word.
+     */
+    private static void testMesiCoherence() {
+        Memory memory = new Memory();
+        memory.write(10, 3);
+        CacheConfig config = CacheConfig.fullyAssociative(4).withBlockSize(2).withWritePolicy(WritePolicy.WRITE_BACK);
+        Cache a = new Cache(memory, config);
+        Cache b = new Cache(memory, config);
+        CoherenceBus bus = new CoherenceBus();
+        bus.attach(a);
+        bus.attach(b);
+
+        a.read(10);
+        MesiState alone = stateOf(a, 10);
+        b.read(11);
+        MesiState sharedA = stateOf(a, 10);
+        a.write(10, 5);
+        MesiState afterStore = stateOf(a, 10);
+        MesiState otherAfterStore = stateOf(b, 10);
+        int seen = b.read(10);
+
+        check(
+                "MESI transitions",
+                alone == MesiState.EXCLUSIVE && sharedA == MesiState.SHARED
+                        && afterStore == MesiState.MODIFIED && otherAfterStore == MesiState.INVALID
+                        && seen == 5 && memory.read(10) == 5
+                        && stateOf(a, 10) == MesiState.SHARED && stateOf(b, 10) == MesiState.SHARED,
+                "Expected E, S, M/I after the store, then S/S with the new word flushed to memory."
+        );
+        check(
+                "MESI counters",
+                a.getBusReads() == 1 && a.getBusUpgrades() == 1 && a.getSnoopFlushes() == 1
+                        && b.getBusReads() == 2 && b.getSnoopInvalidations() == 1
+                        && b.getCoherenceMisses() == 1,
+                "Expected one upgrade, one invalidation, one flush and one coherence miss."
+        );
+    }
+
+    /**
+     * Verify that interleaved multi-core runs are repeatable and see each
+     * other's stores: two cores increment one shared word. Switching every
+     * instruction, both load 0 before either stores (result 1); with a
+     * longer quantum the second core sees the first core's store (result 2).
+     */
+    private static void testMultiCoreInterleaving() {
+        int[] program = {
+            002036,     // LDR 0,0,30
+            014001,     // AIR 0,1
+            004036,     // STR 0,0,30
+            000000      // HLT
+        };
+        int[] results = new int[2];
+        int[] quanta = {1, 4};
+        for (int run = 0; run < quanta.length; run++) {
+            MultiCore mc = new MultiCore(2, MultiCore.DEFAULT_CACHE);
+            for (int i = 0; i < program.length; i++) {
+                mc.getMemory().write(64 + i, program[i]);
+            }
+            mc.getState(0).setPC(64);
+            mc.getState(1).setPC(64);
+            mc.runInterleaved(quanta[run], 100);
+            mc.flushCaches();
+            results[run] = mc.getMemory().read(30);
+        }
+
+        check(
+                "multi-core interleaving",
+                results[0] == 1 && results[1] == 2,
+                "Expected 1 with a 1-instruction quantum and 2 with a 4-instruction quantum."
+        );
+    }
+
+    /**
+     * Verify that threaded cores really run in parallel and stay coherent.
+     * Two cores increment neighbouring words of one block 2000 times each
+     * (false sharing, so nearly every store is a bus transaction); both
+     * totals must be exact. Then, with their code cached, both cores run a
+     * register-only loop to completion while the test thread holds the bus:
+     * cache hits must not wait for it.
+     */
+    private static void testMultiCoreThreaded() {
+        Encoder encoder = new Encoder();
+        MultiCore mc = new MultiCore(2, MultiCore.DEFAULT_CACHE);
+        Memory memory = mc.getMemory();
+        memory.write(4, encoder.encodeImmediate("AIR", 0, 1));
+        memory.write(5, encoder.encodeBasic("SOB", 1, 0, 4));
+        memory.write(6, 0); // HLT
+        memory.write(8, encoder.encodeBasic("LDR", 0, 2, 0));
+        memory.write(9, encoder.encodeImmediate("AIR", 0, 1));
+        memory.write(10, encoder.encodeBasic("STR", 0, 2, 0));
+        memory.write(11, encoder.encodeBasic("SOB", 1, 0, 8));
+        memory.write(12, 0); // HLT
+
+        boolean exact = false;
+        boolean parallel = false;
+        try {
+            for (int core = 0; core < 2; core++) {
+                mc.getState(core).setPC(8);
+                mc.getState(core).setIXR(2, 20 + core);
+                mc.getState(core).setGPR(1, 2000);
+            }
+            mc.runThreaded(50, 100_000);
+            mc.flushCaches();
+            exact = memory.read(20) == 2000 && memory.read(21) == 2000;
+
+            for (int core = 0; core < 2; core++) {
+                mc.getCore(core).reset();
+                mc.getState(core).setPC(4);
+                mc.getState(core).setGPR(0, 0);
+                mc.getState(core).setGPR(1, 1);
+            }
+            mc.runInterleaved(1, 100);      // brings the loop's block into both caches
+            for (int core = 0; core < 2; core++) {
+                mc.getCore(core).reset();
+                mc.getState(core).setPC(4);
+                mc.getState(core).setGPR(0, 0);
+                mc.getState(core).setGPR(1, 1000);
+            }
+            Thread runner = new Thread(() -> {
+                try {
+                    mc.runThreaded(50, 100_000);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            synchronized (mc.getBus()) {
+                runner.start();
+                runner.join(5000);
+                parallel = !runner.isAlive()
+                        && mc.getState(0).getGPR(0) == 1000 && mc.getState(1).getGPR(0) == 1000;
+            }
+            runner.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        check(
+                "multi-core threaded",
+                exact && parallel,
+                "Expected exact totals of 2000 under false sharing (got " + memory.read(20) + ", "
+                        + memory.read(21) + ") and cached loops finishing without the bus (" + parallel + ")."
+        );
+    }
 
     /* ==========================
      * Helpers
      * ========================== */
 
+    /**
+     * @return MESI state of the line holding an address, INVALID if none does
+     */
+    private static MesiState stateOf(Cache cache, int address) {
+        for (int i = 0; i < cache.getLineCount(); i++) {
+            CacheLine line = cache.getLine(i);
+            int tag = line.getAddressTag();
+            if (line.isValid() && address >= tag && address < tag + line.getBlockSize()) {
+                return line.getState();
+            }
+        }
+        return MesiState.INVALID;
+    }
+
     /**
      * Record one test result.
      *
@@ -229,4 +1061,46 @@ public final class CacheTests {
             System.out.println("       " + failureMessage);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Run the access pattern from testReplacementVictims on a 4-line cache
+     * and report which of addresses 0..3 was evicted by reading 4.
+     */
+    private static int evictedAfterPattern(ReplacementPolicy.Kind kind) {
+        Cache cache = new Cache(new Memory(), CacheConfig.fullyAssociative(4).withReplacement(kind));
+        for (int address : new int[]{0, 1, 2, 3, 0, 1, 0}) {
+            cache.read(address);
+        }
+        cache.read(4);
+
+        for (int address = 0; address < 4; address++) {
+            boolean cached = false;
+            for (int i = 0; i < cache.getLineCount(); i++) {
+                cached |= cache.getLine(i).getAddressTag() == address;
+            }
+            if (!cached) {
+                return address;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Hit rate of a 64-line cache on a 40-word hot set read twice per round,
+     * followed by 60 words of a long sequential scan.
+     */
+    private static double hitRateHotSetWithScans(ReplacementPolicy.Kind kind) {
+        Cache cache = new Cache(new Memory(), CacheConfig.fullyAssociative(64).withReplacement(kind));
+        for (int round = 0; round < 100; round++) {
+            for (int pass = 0; pass < 2; pass++) {
+                for (int i = 0; i < 40; i++) {
+                    cache.read(i);
+                }
+            }
+            for (int i = 0; i < 60; i++) {
+                cache.read(200 + (round * 60 + i) % 1800);
+            }
+        }
+        return cache.getHitCount() / (double) cache.getAccessCount();
+    }
+}
@@ -4,9 +4,13 @@ import java.util.function.IntConsumer;
 import java.util.function.IntSupplier;
 import part0_assembler.Encoder;
 import simulator.cpu.CPU;
+import simulator.cpu.RunStatus;
+import simulator.cpu.StepResult;
 import simulator.machine.Memory;
 import simulator.machine.MachineState;
 import simulator.cache.Cache;
+import simulator.cache.CacheConfig;
+import simulator.cache.WritePolicy;
 
 /**
  * Test validation for opcode instructions in simulator
@@ -49,6 +53,7 @@ public final class InstructionTests {
         runRegisterToRegisterTests();
         runShiftRotateTests();
         runIOTests();
+        runRunLoopTests();
         printSummary();
     }
 
@@ -165,6 +170,7 @@ public final class InstructionTests {
 
         testTRREqual();
         testTRRNotEqual();
+        testCCBitsIndependent();
 
         testANDBasic();
         testORRBasic();
@@ -206,6 +212,25 @@ public final class InstructionTests {
         System.out.println();
     }
 
+    /**
+     * Run headless run-loop tests.
+     */
+    private static void runRunLoopTests() {
+        System.out.println("=====================================================");
+        System.out.println("Run Loop Tests");
+        System.out.println("=====================================================");
+        testRunUntilHalt();
+        testRunBudgetExhausted();
+        testRunWaitingForInput();
+        testRunFault();
+        testSelfModifyingCode();
+        testUnreportedCodeWrite();
+        testSplitCaches();
+        testStepResultFields();
+        testStepResultWaiting();
+        System.out.println();
+    }
+
     /**
      * Prints the final summary.
      */
@@ -235,7 +260,7 @@ public final class InstructionTests {
         mem.write(0, 0);
         s.setPC(0);
 
-        String log = cpu.step();
+        String log = cpu.step().format();
 
         check(
             "HLT",
@@ -263,7 +288,7 @@ public final class InstructionTests {
         cpu.step();
         int pcAfterHalt = s.getPC();
 
-        String log = cpu.step();
+        String log = cpu.step().format();
 
         check(
             "Step ignored after HLT",
@@ -464,7 +489,7 @@ public final class InstructionTests {
         mem.write(0, instr);
         s.setPC(0);
 
-        String log = cpu.step();
+        String log = cpu.step().format();
 
         check(
             "LDX invalid X0",
@@ -488,7 +513,7 @@ public final class InstructionTests {
         s.setPC(0);
         s.setGPR(1, 83); // decimal 83 = octal 000123
 
-        String log = cpu.step();
+        String log = cpu.step().format();
 
         check(
             "STR direct",
@@ -516,7 +541,7 @@ public final class InstructionTests {
         s.setGPR(3, 511); // decimal 511 = octal 000777
         s.setIXR(2, 10);
 
-        String log = cpu.step();
+        String log = cpu.step().format();
 
         check(
             "STR indexed",
@@ -543,7 +568,7 @@ public final class InstructionTests {
         s.setPC(0);
         s.setIXR(2, 302); // decimal 302 = octal 000456
 
-        String log = cpu.step();
+        String log = cpu.step().format();
 
         check(
             "STX direct",
@@ -570,7 +595,7 @@ public final class InstructionTests {
         s.setPC(0);
         s.setIXR(1, 209);  // decimal 209 = octal 000321
 
-        String log = cpu.step();
+        String log = cpu.step().format();
 
         check(
             "STX indirect",
@@ -595,7 +620,7 @@ public final class InstructionTests {
         mem.write(0, instr);
         s.setPC(0);
 
-        String log = cpu.step();
+        String log = cpu.step().format();
 
         check(
             "STX invalid X0",
@@ -1328,6 +1353,40 @@ public final class InstructionTests {
         );
     }
 
+    /**
+     * Each CC producer only changes its own bits:
+     * AIR overflow sets bit 0 without touching EQUAL/DIVZERO,
+     * a later MLT that fits clears bit 0, and JCC still sees EQUAL.
+     */
+    private static void testCCBitsIndependent() {
+        Memory mem = new Memory();
+        MachineState s = new MachineState();
+        CPU cpu = newCPU(mem, s);
+
+        mem.write(0, ENCODER.encodeImmediate("AIR", 1, 1));
+        mem.write(1, ENCODER.encodeRegReg("MLT", 0, 2));
+        mem.write(2, ENCODER.encodeBasic("JCC", 3, 0, 20));
+        s.setPC(0);
+        s.setGPR(1, 0x7FFF);
+        s.setGPR(0, 3);
+        s.setGPR(2, 4);
+        s.setCC(0b1100);
+
+        cpu.step();
+        int afterAIR = s.getCC();
+        cpu.step();
+        int afterMLT = s.getCC();
+        cpu.step();
+
+        check(
+            "CC bits independent",
+            afterAIR == 0b1101 && afterMLT == 0b1100 && s.getPC() == 20,
+            "Expected CC 1101 after AIR, 1100 after MLT and JCC on EQUAL taken; got "
+                + Integer.toBinaryString(afterAIR) + ", " + Integer.toBinaryString(afterMLT)
+                + ", PC=" + s.getPC()
+        );
+    }
+
     /**
      * MLT invalid register pair:
      * rx and ry must be 0 or 2.
@@ -1342,7 +1401,7 @@ public final class InstructionTests {
         mem.write(0, instr);
         s.setPC(0);
 
-        String log = cpu.step();
+        String log = cpu.step().format();
 
         check(
             "MLT invalid pair",
@@ -1417,7 +1476,7 @@ public final class InstructionTests {
         mem.write(0, instr);
         s.setPC(0);
 
-        String log = cpu.step();
+        String log = cpu.step().format();
 
         check(
             "DVD invalid pair",
@@ -1785,7 +1844,7 @@ public final class InstructionTests {
         s.setPC(0);
         s.setGPR(1, 0);
 
-        String log = cpu.step();
+        String log = cpu.step().format();
 
         check(
             "IN no input",
@@ -1835,7 +1894,7 @@ public final class InstructionTests {
         mem.write(0, instr);
         s.setPC(0);
 
-        String log = cpu.step();
+        String log = cpu.step().format();
 
         check(
             "IN invalid device",
@@ -1861,7 +1920,7 @@ public final class InstructionTests {
         s.setPC(0);
         s.setGPR(0, 'X');
 
-        String log = cpu.step();
+        String log = cpu.step().format();
 
         check(
             "OUT invalid device",
@@ -1886,7 +1945,7 @@ public final class InstructionTests {
         s.setPC(0);
         s.setGPR(1, 0);
 
-        String log = cpu.step();
+        String log = cpu.step().format();
 
         check(
             "IN wait restores PC",
@@ -1898,6 +1957,248 @@ public final class InstructionTests {
         );
     }
 
+    // =====================================================
+    // Run Loop Tests
+    // =====================================================
+
+    /**
+     * runUntilHalt should execute a short program to HLT:
+     * LDR R0,0,10 / AIR R0,5 / STR R0,0,11 / HLT
+     */
+    private static void testRunUntilHalt() {
+        Memory mem = new Memory();
+        MachineState s = new MachineState();
+        CPU cpu = newCPU(mem, s);
+
+        mem.write(0, ENCODER.encodeBasic("LDR", 0, 0, 10));
+        mem.write(1, ENCODER.encodeImmediate("AIR", 0, 5));
+        mem.write(2, ENCODER.encodeBasic("STR", 0, 0, 11));
+        mem.write(3, 0); // HLT
+        mem.write(10, 7);
+        s.setPC(0);
+
+        RunStatus status = cpu.runUntilHalt();
+
+        check(
+            "Run until HLT",
+            status == RunStatus.HALTED
+                && cpu.isHalted()
+                && mem.read(11) == 12
+                && cpu.getInstructionCount() == 4,
+            "Program should store 7+5 and stop on HLT after 4 instructions"
+        );
+    }
+
+    /**
+     * run(n) on an endless JMA loop should stop after exactly n instructions.
+     */
+    private static void testRunBudgetExhausted() {
+        Memory mem = new Memory();
+        MachineState s = new MachineState();
+        CPU cpu = newCPU(mem, s);
+
+        mem.write(0, ENCODER.encodeXAddress("JMA", 0, 0)); // JMA 0 -> loop forever
+        s.setPC(0);
+
+        RunStatus status = cpu.run(1000);
+
+        check(
+            "Run budget exhausted",
+            status == RunStatus.BUDGET_EXHAUSTED
+                && !cpu.isHalted()
+                && cpu.getInstructionCount() == 1000,
+            "Run loop should return after the instruction budget"
+        );
+    }
+
+    /**
+     * run(n) should report WAITING_FOR_INPUT and leave PC on the IN.
+     */
+    private static void testRunWaitingForInput() {
+        Memory mem = new Memory();
+        MachineState s = new MachineState();
+        CPU cpu = newCPU(mem, s, () -> -1, value -> {});
+
+        mem.write(0, ENCODER.encodeIO("IN", 1, 0));
+        s.setPC(0);
+
+        RunStatus status = cpu.run(100);
+
+        check(
+            "Run waiting for input",
+            status == RunStatus.WAITING_FOR_INPUT
+                && !cpu.isHalted()
+                && s.getPC() == 0,
+            "Run loop should stop at IN when no input is available"
+        );
+    }
+
+    /**
+     * step() reports the EA, the written register with old/new values,
+     * and the cache misses of this step.
+     */
+    private static void testStepResultFields() {
+        Memory mem = new Memory();
+        MachineState s = new MachineState();
+        CPU cpu = newCPU(mem, s);
+
+        mem.write(0, ENCODER.encodeBasic("LDR", 1, 0, 20));
+        mem.write(20, 0123);
+        s.setPC(0);
+        s.setGPR(1, 7);
+
+        StepResult result = cpu.step();
+
+        check(
+            "StepResult fields",
+            result.getOutcome() == StepResult.Outcome.COMPLETED
+                && "LDR".equals(result.getMnemonic())
+                && result.getPC() == 0
+                && result.getEA() == 20
+                && "R1".equals(result.getWrittenRegister())
+                && result.getOldValue() == 7
+                && result.getNewValue() == 0123
+                && result.getCacheMisses() == 2
+                && result.getCacheHits() == 0
+                && result.format().equals("[STEP] LDR R1 <- MEM[000024] = 000123\n"),
+            "LDR step should report EA 20, R1 7 -> 0123 and two cache misses; got " + result.format()
+        );
+    }
+
+    /**
+     * An IN with no input is reported as WAITING_FOR_INPUT without a
+     * written register.
+     */
+    private static void testStepResultWaiting() {
+        Memory mem = new Memory();
+        MachineState s = new MachineState();
+        CPU cpu = newCPU(mem, s, () -> -1, value -> {});
+
+        mem.write(0, ENCODER.encodeIO("IN", 1, 0));
+        s.setPC(0);
+
+        StepResult result = cpu.step();
+
+        check(
+            "StepResult waiting",
+            result.isWaitingForInput() && result.getWrittenRegister() == null,
+            "IN with no input should report WAITING_FOR_INPUT"
+        );
+    }
+
+    /**
+     * run(n) should report FAULT and halt on an invalid instruction.
+     */
+    private static void testRunFault() {
+        Memory mem = new Memory();
+        MachineState s = new MachineState();
+        CPU cpu = newCPU(mem, s);
+
+        mem.write(0, 33 << 10); // LDX with X=0
+        s.setPC(0);
+
+        RunStatus status = cpu.run(100);
+
+        check(
+            "Run fault",
+            status == RunStatus.FAULT
+                && cpu.isHalted()
+                && cpu.getLastFault() != null
+                && cpu.getLastFault().contains("LDX"),
+            "Run loop should halt and report the fault"
+        );
+    }
+
+    /**
+     * Self-modifying code: once an address has been fetched (and predecoded),
+     * a STR over that word must make the next fetch execute the new word.
+     */
+    private static void testSelfModifyingCode() {
+        Memory mem = new Memory();
+        MachineState s = new MachineState();
+        CPU cpu = newCPU(mem, s);
+
+        int newInstr = ENCODER.encodeImmediate("AIR", 1, 5);
+        mem.write(0, ENCODER.encodeBasic("STR", 0, 0, 1));
+        mem.write(1, ENCODER.encodeImmediate("AIR", 1, 1));
+        s.setGPR(0, newInstr);
+
+        s.setPC(1);
+        cpu.step();              // AIR R1,1 -> R1 = 1 (address 1 now predecoded)
+        s.setPC(0);
+        cpu.step();              // STR R0,0,1 -> MEM[1] = AIR R1,5
+        cpu.step();              // AIR R1,5 -> R1 = 6
+
+        check(
+            "Self-modifying code",
+            s.getGPR(1) == 6 && mem.read(1) == newInstr,
+            "Rewritten instruction word should be decoded again on its next fetch"
+        );
+    }
+
+    /**
+     * A predecoded entry is not reused once the fetched word differs, even
+     * if the write was never reported (the CPU has stopped listening).
+     */
+    private static void testUnreportedCodeWrite() {
+        Memory mem = new Memory();
+        MachineState s = new MachineState();
+        CPU cpu = newCPU(mem, s);
+
+        mem.write(1, ENCODER.encodeImmediate("AIR", 1, 1));
+        s.setPC(1);
+        cpu.step();              // AIR R1,1 -> R1 = 1 (address 1 now predecoded)
+
+        cpu.detach();
+        mem.write(1, ENCODER.encodeImmediate("AIR", 1, 5));
+        s.setPC(1);
+        cpu.step();              // fetches AIR R1,5 -> R1 = 6
+
+        check(
+            "Unreported code write",
+            s.getGPR(1) == 6,
+            "A fetched word that differs from the predecoded one should be decoded again"
+        );
+    }
+
+    /**
+     * Split I/D caches: fetches go to the I-cache, operands to the D-cache,
+     * and code stored through a write-back D-cache is still fetched correctly.
+     */
+    private static void testSplitCaches() {
+        Memory mem = new Memory();
+        MachineState s = new MachineState();
+        Cache icache = new Cache(mem);
+        Cache dcache = new Cache(mem, CacheConfig.fullyAssociative(16).withWritePolicy(WritePolicy.WRITE_BACK));
+        CPU cpu = new CPU(icache, dcache, s, () -> -1, value -> {});
+
+        int newInstr = ENCODER.encodeImmediate("AIR", 1, 5);
+        mem.write(0, ENCODER.encodeBasic("LDR", 2, 0, 20));
+        mem.write(1, ENCODER.encodeBasic("STR", 0, 0, 3));
+        mem.write(2, ENCODER.encodeImmediate("AIR", 1, 1));  // warms the I-cache line for address 3
+        mem.write(3, ENCODER.encodeImmediate("AIR", 1, 1));  // overwritten by the STR
+        mem.write(4, 0); // HLT
+        mem.write(20, 000042);
+        s.setGPR(0, newInstr);
+
+        s.setPC(3);
+        cpu.step();                     // fetch address 3 into the I-cache
+        s.setPC(0);
+        s.setGPR(1, 0);
+        RunStatus status = cpu.runUntilHalt();
+
+        check(
+            "Split caches route traffic",
+            cpu.isSplitCache() && icache.getAccessCount() == 6 && dcache.getAccessCount() == 2,
+            "Fetches should use the I-cache and the LDR/STR operands the D-cache"
+        );
+        check(
+            "Split caches stay coherent",
+            status == RunStatus.HALTED && s.getGPR(2) == 000042 && s.getGPR(1) == 6 && mem.read(3) != newInstr,
+            "Code stored through the write-back D-cache should run before it reaches memory"
+        );
+    }
+
     // =====================================================
     // Helpers
     // =====================================================
@@ -0,0 +1,425 @@
+package simulator.tests;
+
+import part0_assembler.Encoder;
+import part0_assembler.assembler.Assembler;
+import simulator.cache.Cache;
+import simulator.cache.CacheConfig;
+import simulator.cache.WritePolicy;
+import simulator.cpu.CPU;
+import simulator.cpu.RunStatus;
+import simulator.io.InputQueue;
+import simulator.io.PrinterDevice;
+import simulator.io.ProgramLoader;
+import simulator.machine.MachineState;
+import simulator.machine.Memory;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Tests for program loading and the I/O devices in simulator.io.
+ * - check bulk memory loads and the streaming program loader
+ * - check the assembler's binary load image against the text load file
+ * - check the text load file scanner's number forms and error positions
+ * - check the START directive's entry record
+ * - check IN against the bounded input queue, polled and blocking
+ * - check OUT through the buffered printer device
+ */
+public final class LoaderTests {
+
+    private static final Encoder ENCODER = new Encoder();
+
+    private static int passed = 0;
+    private static int failed = 0;
+
+    private LoaderTests() {}
+
+    /**
+     * Run all loader and I/O device tests.
+     *
+     * @param args ignored
+     */
+    public static void main(String[] args) {
+        System.out.println("=====================================================");
+        System.out.println("Loader Tests");
+        System.out.println("=====================================================");
+
+        testBulkLoad();
+        testLoadImage();
+        testLoadFileScanner();
+        testStartDirective();
+        testINFromInputQueue();
+        testINParksOnEmptyQueue();
+        testOUTBufferedPrinter();
+
+        System.out.println();
+        System.out.println("=====================================================");
+        System.out.println("Loader Test Summary");
+        System.out.println("=====================================================");
+        System.out.println("Passed: " + passed);
+        System.out.println("Failed: " + failed);
+    }
+
+    private static void testBulkLoad() {
+        Memory memory = new Memory();
+        Cache cache = new Cache(memory, CacheConfig.fullyAssociative(4)
+                .withBlockSize(4).withWritePolicy(WritePolicy.WRITE_BACK));
+        cache.read(8);
+        memory.loadRange(8, new int[] {0, 0, 0x1234, 0x15678}, 2, 2);
+        boolean rangeSeen = cache.read(8) == 0x1234 && cache.read(9) == 0x5678;
+
+        boolean atomic = false;
+        try {
+            memory.load(new int[] {20, 2048}, new int[] {7, 7});
+        } catch (IllegalArgumentException ex) {
+            atomic = memory.read(20) == 0;
+        }
+
+        boolean streamed = false;
+        try {
+            Path file = Files.createTempFile("load", ".txt");
+            Files.write(file, List.of("# program", "000100 000001", "000101 000002",
+                    "000102 000003", "000200 000004"));
+            Memory target = new Memory();
+            ProgramLoader.LoadFile loaded = new ProgramLoader().load(file.toFile(), target);
+            ProgramLoader.LoadFile parsed = new ProgramLoader().parse(file.toFile());
+            streamed = loaded.recordsLoaded == parsed.recordsLoaded && loaded.firstAddress == 0100;
+            for (ProgramLoader.Record r : parsed.records) {
+                streamed &= target.read(r.address) == r.word;
+            }
+            Files.delete(file);
+        } catch (IOException ex) {
+            streamed = false;
+        }
+
+        check(
+                "bulk load",
+                rangeSeen && atomic && streamed,
+                "Expected loadRange to reach a cached block, a bad address to store nothing,"
+                        + " and load() to match parse() (range " + rangeSeen + ", atomic "
+                        + atomic + ", streamed " + streamed + ")."
+        );
+    }
+
+    private static void testLoadImage() {
+        Path dir = null;
+        try {
+            dir = Files.createTempDirectory("image");
+            Path asm = dir.resolve("prog.asm");
+            Files.write(asm, List.of(
+                    "      LOC 6",
+                    "      Data 10",
+                    "      Data End",
+                    "      LDR 3,0,6",
+                    "      JZ 0,0,7",
+                    "      LOC 1024",
+                    "End:  HLT"));
+            Path text = dir.resolve("prog_load.txt");
+            Path image = dir.resolve("prog_load.img");
+            new Assembler().assemble(asm, dir.resolve("prog_listing.txt"), text, image);
+
+            Memory fromText = new Memory();
+            Memory fromImage = new Memory();
+            ProgramLoader loader = new ProgramLoader();
+            ProgramLoader.LoadFile t = loader.load(text.toFile(), fromText);
+            ProgramLoader.LoadFile i = loader.load(image.toFile(), fromImage);
+            boolean same = t.recordsLoaded == 5 && i.recordsLoaded == 5 && i.firstAddress == 6;
+            for (int address = 0; address < Memory.SIZE; address++) {
+                same &= fromText.read(address) == fromImage.read(address);
+            }
+
+            byte[] bytes = Files.readAllBytes(image);
+            bytes[bytes.length - 1] ^= 1;
+            Files.write(image, bytes);
+            Memory damaged = new Memory();
+            boolean rejected = false;
+            try {
+                loader.load(image.toFile(), damaged);
+            } catch (IllegalArgumentException ex) {
+                rejected = damaged.read(6) == 0;
+            }
+
+            check(
+                    "binary load image",
+                    same && i.entryAddress == 8 && t.entryAddress == 8 && rejected,
+                    "Expected the image to load like the text file with entry 8, and a damaged image to store nothing"
+                            + " (same " + same + ", entry " + i.entryAddress + ", rejected " + rejected + ")."
+            );
+        } catch (IOException ex) {
+            check("binary load image", false, "I/O error: " + ex.getMessage());
+        } finally {
+            if (dir != null) {
+                try {
+                    for (String name : new String[] {"prog.asm", "prog_listing.txt", "prog_load.txt", "prog_load.img"}) {
+                        Files.deleteIfExists(dir.resolve(name));
+                    }
+                    Files.delete(dir);
+                } catch (IOException ignored) {
+                    // temp files; nothing else to do
+                }
+            }
+        }
+    }
+
+    private static void testLoadFileScanner() {
+        Path file = null;
+        try {
+            file = Files.createTempFile("scan", ".txt");
+            Files.writeString(file, "; comment\r\n  000006 000012 trailing\r\n\t0x10 19\n// done\n30 -1");
+            Memory memory = new Memory();
+            int[] seen = new int[1];
+            new ProgramLoader().scan(file.toFile(), (address, word) -> {
+                memory.write(address, word);
+                seen[0]++;
+            });
+            boolean values = seen[0] == 3 && memory.read(6) == 10 && memory.read(16) == 19
+                    && memory.read(24) == 0xFFFF;
+
+            Files.writeString(file, "000006 000012\n\n000007 0001x2\n");
+            String message = "";
+            try {
+                new ProgramLoader().load(file.toFile(), new Memory());
+            } catch (IllegalArgumentException ex) {
+                message = ex.getMessage();
+            }
+
+            Files.writeString(file, "000006 000012\n000007 1\n 004000 1\n");
+            String range = "";
+            try {
+                new ProgramLoader().load(file.toFile(), new Memory());
+            } catch (IllegalArgumentException ex) {
+                range = ex.getMessage();
+            }
+
+            check(
+                    "load file scanner",
+                    values && message.startsWith("Line 3, column 12:")
+                            && range.equals("Line 3, column 2: address out of range: 2048"),
+                    "Expected octal/hex/decimal records and errors at line 3, columns 12 and 2; got \""
+                            + message + "\" and \"" + range + "\"."
+            );
+        } catch (IOException ex) {
+            check("load file scanner", false, "I/O error: " + ex.getMessage());
+        } finally {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {
+                    // temp file; nothing else to do
+                }
+            }
+        }
+    }
+
+    private static void testStartDirective() {
+        Path dir = null;
+        try {
+            dir = Files.createTempDirectory("start");
+            Path asm = dir.resolve("prog.asm");
+            Files.write(asm, List.of(
+                    "      START Go",
+                    "      LOC 6",
+                    "      LDR 0,0,20",
+                    "Go:   LDR 1,0,21",
+                    "      HLT"));
+            Path text = dir.resolve("prog_load.txt");
+            Path image = dir.resolve("prog_load.img");
+            new Assembler().assemble(asm, dir.resolve("prog_listing.txt"), text, image);
+
+            ProgramLoader loader = new ProgramLoader();
+            ProgramLoader.LoadFile t = loader.load(text.toFile(), new Memory());
+            ProgramLoader.LoadFile i = loader.load(image.toFile(), new Memory());
+            boolean firstLine = Files.readAllLines(text).get(0).equals("START 000007");
+
+            Files.write(text, List.of("START 7", "000006 000012", "start 10"));
+            String message = "";
+            try {
+                loader.load(text.toFile(), new Memory());
+            } catch (IllegalArgumentException ex) {
+                message = ex.getMessage();
+            }
+
+            Files.write(asm, List.of(
+                    "      LOC 6",
+                    "      HLT",
+                    "      START 2048"));
+            String range = "";
+            try {
+                new Assembler().assemble(asm, dir.resolve("prog_listing.txt"), text, image);
+            } catch (RuntimeException ex) {
+                range = ex.getMessage();
+            }
+
+            check(
+                    "START directive",
+                    firstLine && t.entryAddress == 7 && i.entryAddress == 7 && t.recordsLoaded == 3
+                            && message.startsWith("Line 3, column 7: duplicate START")
+                            && range.startsWith("START address 2048 out of range") && range.endsWith("at line 3"),
+                    "Expected entry 7 in both outputs, a duplicate START error and a range error at line 3; got "
+                            + t.entryAddress + ", " + i.entryAddress + ", \"" + message + "\", \"" + range + "\"."
+            );
+        } catch (IOException ex) {
+            check("START directive", false, "I/O error: " + ex.getMessage());
+        } finally {
+            if (dir != null) {
+                try {
+                    for (String name : new String[] {"prog.asm", "prog_listing.txt", "prog_load.txt", "prog_load.img"}) {
+                        Files.deleteIfExists(dir.resolve(name));
+                    }
+                    Files.delete(dir);
+                } catch (IOException ignored) {
+                    // temp files; nothing else to do
+                }
+            }
+        }
+    }
+
+    /**
+     * IN reads queued characters in order from a bounded InputQueue.
+     */
+    private static void testINFromInputQueue() {
+        Memory mem = new Memory();
+        MachineState s = new MachineState();
+        InputQueue input = new InputQueue(4);
+        CPU cpu = newCPU(mem, s, input::poll, value -> {});
+
+        mem.write(0, ENCODER.encodeIO("IN", 1, 0));
+        mem.write(1, ENCODER.encodeIO("IN", 2, 2));
+        mem.write(2, ENCODER.encodeIO("IN", 3, 0));
+        mem.write(3, 0); // HLT
+        s.setPC(0);
+
+        int accepted = input.offer("ABCDE"); // capacity 4: 'E' is dropped
+        input.poll();                         // drop 'A'
+        RunStatus status = cpu.run(10);
+
+        check(
+            "IN from input queue",
+            accepted == 4
+                && s.getGPR(1) == 'B' && s.getGPR(2) == 'C' && s.getGPR(3) == 'D'
+                && status == RunStatus.HALTED,
+            "IN should read B, C, D from the queue in order"
+        );
+    }
+
+    /**
+     * With a blocking reader, IN on an empty queue parks the executing thread
+     * and completes once input is offered, without rewinding PC.
+     */
+    private static void testINParksOnEmptyQueue() {
+        Memory mem = new Memory();
+        MachineState s = new MachineState();
+        InputQueue input = new InputQueue();
+        CPU cpu = newCPU(mem, s, () -> {
+            try {
+                return input.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return -1;
+            }
+        }, value -> {});
+
+        mem.write(0, ENCODER.encodeIO("IN", 1, 0));
+        mem.write(1, 0); // HLT
+        s.setPC(0);
+
+        RunStatus[] status = new RunStatus[1];
+        Thread worker = new Thread(() -> status[0] = cpu.runUntilHalt());
+        worker.start();
+
+        boolean parked = false;
+        try {
+            Thread.sleep(50);
+            parked = worker.isAlive() && s.getPC() == 1;
+            input.offer("Z");
+            worker.join(2000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        check(
+            "IN parks on empty queue",
+            parked && !worker.isAlive() && status[0] == RunStatus.HALTED && s.getGPR(1) == 'Z',
+            "IN should wait for input on the executing thread, then read it and continue"
+        );
+    }
+
+    /**
+     * OUT through a PrinterDevice reaches the sink in chunks: a whole line on
+     * newline, the rest on flush(); the tee Writer gets everything.
+     */
+    private static void testOUTBufferedPrinter() {
+        Memory mem = new Memory();
+        MachineState s = new MachineState();
+        List<String> chunks = new ArrayList<>();
+        PrinterDevice printer = new PrinterDevice(chunks::add);
+        StringWriter tee = new StringWriter();
+        printer.setTee(tee);
+        CPU cpu = newCPU(mem, s, () -> -1, printer::write);
+
+        mem.write(0, ENCODER.encodeIO("OUT", 0, 1));
+        mem.write(1, ENCODER.encodeIO("OUT", 1, 1));
+        mem.write(2, ENCODER.encodeIO("OUT", 2, 1));
+        mem.write(3, ENCODER.encodeIO("OUT", 3, 1));
+        mem.write(4, 0); // HLT
+        s.setGPR(0, 'H');
+        s.setGPR(1, 'I');
+        s.setGPR(2, '\n');
+        s.setGPR(3, 'X');
+        s.setPC(0);
+
+        cpu.runUntilHalt();
+        int chunksBeforeFlush = chunks.size();
+        printer.flush();
+
+        check(
+            "OUT buffered printer",
+            chunksBeforeFlush == 1
+                && chunks.equals(List.of("HI\n", "X"))
+                && tee.toString().equals("HI\nX"),
+            "Printer should deliver \"HI\\n\" on newline and \"X\" on flush; got " + chunks
+        );
+    }
+
+    /* ==========================
+     * Helpers
+     * ========================== */
+
+    /**
+     * CPU with custom input/output handlers for the device tests.
+     *
+     * @param mem           backing memory for the test
+     * @param s             machine state for the test
+     * @param inputReader   function to read input values for IN instruction
+     * @param outputWriter  function to handle output values from OUT instruction
+     * @return              CPU wired to a fresh cache
+     */
+    private static CPU newCPU(Memory mem, MachineState s,
+                            IntSupplier inputReader,
+                            IntConsumer outputWriter) {
+        return new CPU(new Cache(mem), s, inputReader, outputWriter);
+    }
+
+    /**
+     * Record one test result.
+     *
+     * @param name              test name
+     * @param condition         true if passing
+     * @param failureMessage    explanation shown on failure
+     */
+    private static void check(String name, boolean condition, String failureMessage) {
+        if (condition) {
+            passed++;
+            System.out.println("[PASS] " + name);
+        } else {
+            failed++;
+            System.out.println("[FAIL] " + name);
+            System.out.println("       " + failureMessage);
+        }
+    }
+}
@@ -18,6 +18,11 @@ public final class MemoryTest {
         System.out.println("mem[7]  = " + Memory.toOct6(mem.read(7)) + " (expected 000003)");
         System.out.println("mem[1024]= " + Memory.toOct6(mem.read(1024)) + " (expected 000000)");
 
+        int[] block = new int[4];
+        mem.readBlock(4, block, 0, 4);
+        System.out.println("readBlock(4..7) = " + Memory.toOct6(block[2]) + " " + Memory.toOct6(block[3])
+                + " (expected 000012 000003)");
+
         mem.clear();
         System.out.println("after clear, mem[6] = " + Memory.toOct6(mem.read(6)) + " (expected 000000)");
     }
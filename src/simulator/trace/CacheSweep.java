@@ -0,0 +1,278 @@
+package simulator.trace;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import simulator.cache.Cache;
+import simulator.cache.CacheConfig;
+import simulator.cache.ReplacementPolicy;
+import simulator.cache.WritePolicy;
+import simulator.machine.Memory;
+
+/**
+ * Offline cache simulator: replays a recorded address trace against many
+ * cache configurations and tabulates their miss rates, so a geometry can
+ * be evaluated without re-running the program.
+ *
+ * Usage:
+ *   java -cp out simulator.trace.CacheSweep <trace file> [csv file]
+ *
+ * Notes:
+ *  - The trace is memory-mapped once and shared; each configuration is
+ *    replayed by its own task on a fork-join pool, against its own Cache
+ *    and Memory.
+ *  - Every access (fetch, read, write) goes to one unified cache, like the
+ *    simulator's default. Stored values are not in the trace, so writes
+ *    store 0; hit/miss behaviour does not depend on data.
+ */
+public final class CacheSweep {
+
+    public static final String CSV_HEADER =
+            "lines,ways,block,replacement,write_policy,accesses,misses,miss_rate,"
+            + "compulsory,capacity,conflict,writebacks,amat";
+
+    private CacheSweep() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.out.println("Usage: java -cp out simulator.trace.CacheSweep <trace file> [csv file]");
+            return;
+        }
+
+        TraceFile trace = TraceFile.open(Path.of(args[0]));
+        List<CacheConfig> configs = defaultConfigs();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        long t0 = System.nanoTime();
+        List<Result> results = run(trace, configs, pool);
+        long ms = (System.nanoTime() - t0) / 1_000_000L;
+
+        if (args.length == 2) {
+            try (Writer out = Files.newBufferedWriter(Path.of(args[1]))) {
+                writeCsv(results, out);
+            }
+            System.out.println("Wrote " + results.size() + " rows to " + Path.of(args[1]).toAbsolutePath());
+        } else {
+            printTable(results, System.out);
+        }
+        System.out.println("Replayed " + trace.size() + " accesses against " + configs.size()
+                + " configurations in " + ms + " ms (" + pool.getParallelism() + " threads).");
+    }
+
+    /**
+     * Replay a trace against every configuration, in parallel.
+     *
+     * @param trace     mapped trace
+     * @param configs   cache configurations
+     * @param pool      pool to run the replays on
+     * @return          one result per configuration, in the same order
+     */
+    public static List<Result> run(TraceFile trace, List<CacheConfig> configs, ForkJoinPool pool) {
+        Result[] results = new Result[configs.size()];
+        pool.invoke(new ReplayTask(trace, configs, results, 0, results.length));
+        return List.of(results);
+    }
+
+    /**
+     * Replay a trace against one configuration.
+     *
+     * @param trace     mapped trace
+     * @param config    cache configuration
+     * @return          counts after the whole trace, with dirty lines
+     *                  flushed so write-back traffic is complete
+     */
+    public static Result replay(TraceFile trace, CacheConfig config) {
+        Cache cache = new Cache(new Memory(), config);
+        long n = trace.size();
+        for (long i = 0; i < n; i++) {
+            int record = trace.record(i);
+            int address = record & 0x3FFF;
+            if ((record >>> 14) == TraceRecorder.WRITE) {
+                cache.write(address, 0);
+            } else {
+                cache.read(address);
+            }
+        }
+        cache.flush();
+        return new Result(config, cache);
+    }
+
+    /**
+     * The standard sweep: 8 to 64 lines; direct-mapped, 2-way, 4-way and
+     * fully associative; 1-, 2- and 4-word blocks; FIFO and LRU;
+     * write-through and write-back.
+     *
+     * @return configurations in table order
+     */
+    public static List<CacheConfig> defaultConfigs() {
+        List<CacheConfig> configs = new ArrayList<>();
+        for (int lines : new int[] {8, 16, 32, 64}) {
+            for (int ways : new int[] {1, 2, 4, lines}) {
+                for (int block : new int[] {1, 2, 4}) {
+                    for (ReplacementPolicy.Kind kind : new ReplacementPolicy.Kind[] {
+                            ReplacementPolicy.Kind.FIFO, ReplacementPolicy.Kind.LRU}) {
+                        for (WritePolicy write : new WritePolicy[] {
+                                WritePolicy.WRITE_THROUGH, WritePolicy.WRITE_BACK}) {
+                            configs.add(CacheConfig.setAssociative(lines, ways).withBlockSize(block)
+                                    .withReplacement(kind).withWritePolicy(write));
+                        }
+                    }
+                }
+            }
+        }
+        return configs;
+    }
+
+    /**
+     * @param results   sweep results
+     * @param out       destination for CSV_HEADER and one line per result
+     * @throws IOException if writing fails
+     */
+    public static void writeCsv(List<Result> results, Writer out) throws IOException {
+        out.write(CSV_HEADER);
+        out.write('\n');
+        for (Result r : results) {
+            out.write(r.toCsv());
+            out.write('\n');
+        }
+    }
+
+    /**
+     * Print results as an aligned table, best miss rate first.
+     *
+     * @param results   sweep results
+     * @param out       destination
+     */
+    public static void printTable(List<Result> results, PrintStream out) {
+        List<Result> sorted = new ArrayList<>(results);
+        sorted.sort((a, b) -> Double.compare(a.getMissRate(), b.getMissRate()));
+        out.printf(Locale.ROOT, "%5s %5s %5s %-10s %-28s %9s %7s %7s %7s %7s%n",
+                "lines", "ways", "block", "policy", "write", "misses", "rate", "cap", "conf", "AMAT");
+        for (Result r : sorted) {
+            CacheConfig c = r.getConfig();
+            out.printf(Locale.ROOT, "%5d %5d %5d %-10s %-28s %9d %7.4f %7d %7d %7.2f%n",
+                    c.getLineCount(), c.getWays(), c.getBlockSize(), c.getReplacement(), c.getWritePolicy(),
+                    r.getMisses(), r.getMissRate(), r.getCapacity(), r.getConflict(), r.getAverageAccessTime());
+        }
+    }
+
+    /**
+     * Counts from replaying a trace against one configuration.
+     */
+    public static final class Result {
+
+        private final CacheConfig config;
+        private final long accesses;
+        private final long misses;
+        private final long compulsory;
+        private final long capacity;
+        private final long conflict;
+        private final long writebacks;
+        private final double amat;
+
+        private Result(CacheConfig config, Cache cache) {
+            this.config = config;
+            this.accesses = cache.getAccessCount();
+            this.misses = cache.getMissCount();
+            this.compulsory = cache.getCompulsoryMisses();
+            this.capacity = cache.getCapacityMisses();
+            this.conflict = cache.getConflictMisses();
+            this.writebacks = cache.getWritebackCount();
+            this.amat = cache.getAverageAccessTime();
+        }
+
+        public CacheConfig getConfig() {
+            return config;
+        }
+
+        public long getAccesses() {
+            return accesses;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        /** @return misses per access, or 0 for an empty trace */
+        public double getMissRate() {
+            return accesses == 0L ? 0.0 : (double) misses / accesses;
+        }
+
+        public long getCompulsory() {
+            return compulsory;
+        }
+
+        public long getCapacity() {
+            return capacity;
+        }
+
+        public long getConflict() {
+            return conflict;
+        }
+
+        public long getWritebacks() {
+            return writebacks;
+        }
+
+        public double getAverageAccessTime() {
+            return amat;
+        }
+
+        /** @return one CSV line in CSV_HEADER column order */
+        public String toCsv() {
+            return String.format(Locale.ROOT, "%d,%d,%d,%s,%s,%d,%d,%.6f,%d,%d,%d,%d,%.3f",
+                    config.getLineCount(), config.getWays(), config.getBlockSize(),
+                    config.getReplacement().name(), config.getWritePolicy().name(),
+                    accesses, misses, getMissRate(), compulsory, capacity, conflict, writebacks, amat);
+        }
+    }
+
+    /* ==========================
+     * Helpers
+     * ========================== */
+
+    /**
+     * Splits the configuration range in halves until each task replays one
+     * configuration.
+     */
+    private static final class ReplayTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final TraceFile trace;
+        private final List<CacheConfig> configs;
+        private final Result[] results;
+        private final int from;
+        private final int to;
+
+        ReplayTask(TraceFile trace, List<CacheConfig> configs, Result[] results, int from, int to) {
+            this.trace = trace;
+            this.configs = configs;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                results[from] = replay(trace, configs.get(from));
+                return;
+            }
+            if (to <= from) {
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ReplayTask(trace, configs, results, from, mid),
+                      new ReplayTask(trace, configs, results, mid, to));
+        }
+    }
+}
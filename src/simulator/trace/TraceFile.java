@@ -0,0 +1,95 @@
+package simulator.trace;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A trace written by TraceRecorder, memory-mapped read-only.
+ *
+ * Records are read with absolute gets only, so any number of threads can
+ * replay the same TraceFile at once. Files larger than one mapping are
+ * mapped in 1 GiB segments; records never straddle a segment.
+ */
+public final class TraceFile {
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final MappedByteBuffer[] segments;
+    private final long fileBytes;
+    private final long recordCount;
+
+    private TraceFile(MappedByteBuffer[] segments, long fileBytes) {
+        this.segments = segments;
+        this.fileBytes = fileBytes;
+        this.recordCount = (fileBytes - TraceRecorder.HEADER_BYTES) / 2;
+    }
+
+    /**
+     * Map a trace file and check its header.
+     *
+     * @param file          trace written by TraceRecorder
+     * @return              mapped trace
+     * @throws IOException  if the file cannot be read or is not a trace
+     */
+    public static TraceFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < TraceRecorder.HEADER_BYTES) {
+                throw new IOException("Not a trace file (too short): " + file);
+            }
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i << SEGMENT_SHIFT;
+                long length = Math.min(size - start, SEGMENT_MASK + 1);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            }
+            if (segments[0].getInt(0) != TraceRecorder.MAGIC || segments[0].getInt(4) != TraceRecorder.VERSION) {
+                throw new IOException("Not a version " + TraceRecorder.VERSION + " trace file: " + file);
+            }
+            return new TraceFile(segments, size);
+        }
+    }
+
+    /**
+     * @return number of recorded accesses
+     */
+    public long size() {
+        return recordCount;
+    }
+
+    /**
+     * @return size of the file in bytes
+     */
+    public long getFileBytes() {
+        return fileBytes;
+    }
+
+    /**
+     * @param i     record index, 0..size()-1
+     * @return      TraceRecorder.FETCH, READ or WRITE
+     */
+    public int kind(long i) {
+        return (record(i) >>> 14) & 0x3;
+    }
+
+    /**
+     * @param i     record index, 0..size()-1
+     * @return      accessed address
+     */
+    public int address(long i) {
+        return record(i) & 0x3FFF;
+    }
+
+    /**
+     * @param i     record index, 0..size()-1
+     * @return      raw 16-bit record (kind << 14 | address)
+     */
+    public int record(long i) {
+        long offset = TraceRecorder.HEADER_BYTES + 2 * i;
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].getShort((int) (offset & SEGMENT_MASK)) & 0xFFFF;
+    }
+}
@@ -0,0 +1,119 @@
+package simulator.trace;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Records the CPU's memory address stream to a compact binary trace file
+ * for offline cache studies (see CacheSweep).
+ *
+ * File format (big-endian):
+ *  - header: int MAGIC, int VERSION
+ *  - one 16-bit record per access: kind << 14 | address
+ *    (kind is FETCH, READ or WRITE; addresses are below Memory.SIZE)
+ *
+ * Records are collected in a buffer and written in large chunks, so
+ * recording costs a few array stores per access. record() is called on
+ * the CPU's hot path and cannot throw: a write failure stops the recording
+ * and is reported by close() (or takeError()).
+ *
+ * The file is written through a plain stream, not a FileChannel: the turbo
+ * worker records while it may carry an interrupt (Halt), and an interruptible
+ * channel would be closed by the first write after it.
+ */
+public final class TraceRecorder implements AutoCloseable {
+
+    public static final int MAGIC = 0x36343631;     // "6461"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 8;
+
+    public static final int FETCH = 0;
+    public static final int READ = 1;
+    public static final int WRITE = 2;
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final OutputStream out;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private long count = 0L;
+    private IOException error;
+
+    /**
+     * Create (or replace) a trace file and write its header.
+     *
+     * @param file          trace file to write
+     * @throws IOException  if the file cannot be opened or written
+     */
+    public TraceRecorder(Path file) throws IOException {
+        out = new FileOutputStream(file.toFile());
+        buffer.putInt(MAGIC).putInt(VERSION);
+    }
+
+    /**
+     * Record one access.
+     *
+     * @param kind      FETCH, READ or WRITE
+     * @param address   memory address
+     */
+    public void record(int kind, int address) {
+        if (error != null) {
+            return;
+        }
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.putShort((short) (kind << 14 | address));
+        count++;
+    }
+
+    /**
+     * @return accesses recorded so far
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Error that stopped the recording, if any. Cleared when read.
+     *
+     * @return last write failure, or null
+     */
+    public IOException takeError() {
+        IOException ex = error;
+        error = null;
+        return ex;
+    }
+
+    /**
+     * Write out the remaining records and close the file.
+     *
+     * @throws IOException if any part of the trace could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        drain();
+        out.close();
+        IOException ex = takeError();
+        if (ex != null) {
+            throw ex;
+        }
+    }
+
+    /* ==========================
+     * Helpers
+     * ========================== */
+
+    private void drain() {
+        try {
+            out.write(buffer.array(), 0, buffer.position());
+        } catch (IOException ex) {
+            if (error == null) {
+                error = ex;
+            }
+        }
+        buffer.clear();
+    }
+}
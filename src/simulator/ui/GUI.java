@@ -7,6 +7,8 @@ import javax.swing.text.AttributeSet;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.DocumentFilter;
 import java.awt.*;
+import simulator.cache.Prefetcher;
+import simulator.cache.ReplacementPolicy;
 import simulator.control.*;
 import simulator.control.Controller;
 import simulator.machine.Memory;
@@ -96,6 +98,13 @@ public final class GUI extends JFrame {
     private final JTextField mfrField = new JTextField("0", 6);
     private final JTextField octalInputField = new JTextField("0", 8);
     private final JTextField binaryInputField = new JTextField("0000000000000000", 16);
+    // Run speed choices for the controls panel (labels and matching rates)
+    private static final String[] RUN_SPEED_LABELS = {
+            "Timed (20/s)", "1K/s", "100K/s", "1M/s", "10M/s", "Max"
+    };
+    private static final long[] RUN_SPEED_RATES = {
+            Controller.RUN_RATE_TIMED, 1_000L, 100_000L, 1_000_000L, 10_000_000L, Controller.RUN_RATE_MAX
+    };
     // Target selector for writing values into registers from Binary/Octal inputs
     private final JComboBox<String> setTargetCombo =
             new JComboBox<>(new String[]{"PC","MAR","MBR","R0","R1","R2","R3","X1","X2","X3"});
@@ -262,6 +271,10 @@ public final class GUI extends JFrame {
         JPanel p = new JPanel(new BorderLayout(8, 0));
         p.setBorder(new TitledBorder("Console Input"));
 
+        // Enter hands the typed text to the input devices
+        consoleInputField.setToolTipText("Type input and press Enter (Run/Step also pick it up)");
+        consoleInputField.addActionListener(e -> controller.submitConsoleInput());
+
         p.add(consoleInputField, BorderLayout.CENTER);
         return p;    
     }
@@ -277,7 +290,12 @@ public final class GUI extends JFrame {
         printerArea.setEditable(false);
         printerArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
 
+        JCheckBox copyToFile = new JCheckBox("Copy to file");
+        copyToFile.addActionListener(e ->
+                copyToFile.setSelected(controller.handlePrinterLog(copyToFile.isSelected())));
+
         p.add(new JScrollPane(printerArea), BorderLayout.CENTER);
+        p.add(copyToFile, BorderLayout.SOUTH);
         return p;
     }
 
@@ -294,6 +312,10 @@ public final class GUI extends JFrame {
         JButton step = new JButton("Single Step");
         JButton halt = new JButton("Halt");
         JButton reset = new JButton("Reset");
+        JCheckBox trace = new JCheckBox("Trace", true);
+        JComboBox<String> speed = new JComboBox<>(RUN_SPEED_LABELS);
+        speed.setToolTipText("Run speed in instructions per second");
+        trace.setToolTipText("Log every instruction while running");
 
         ipl.setOpaque(true);
         ipl.setBackground(Color.RED);
@@ -308,12 +330,17 @@ public final class GUI extends JFrame {
         step.addActionListener(e -> controller.handleStep());
         halt.addActionListener(e -> controller.handleHalt());
         reset.addActionListener(e -> controller.handleReset());
+        trace.addActionListener(e -> controller.setTraceSteps(trace.isSelected()));
+        speed.addActionListener(e -> controller.setRunRate(RUN_SPEED_RATES[speed.getSelectedIndex()]));
 
         p.add(ipl);
         p.add(run);
         p.add(step);
         p.add(halt);
         p.add(reset);
+        p.add(trace);
+        p.add(new JLabel("Speed:"));
+        p.add(speed);
 
         return p;
     }
@@ -490,7 +517,55 @@ public final class GUI extends JFrame {
         cacheArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
         cacheArea.setText("(cache display placeholder)\n");
 
+        JComboBox<ReplacementPolicy.Kind> replacement = new JComboBox<>(ReplacementPolicy.Kind.values());
+        replacement.setToolTipText("Line to evict when a cache set is full");
+        replacement.addActionListener(e -> {
+            ReplacementPolicy.Kind chosen = (ReplacementPolicy.Kind) replacement.getSelectedItem();
+            ReplacementPolicy.Kind inEffect = controller.setCacheReplacement(chosen);
+            if (inEffect != chosen) {
+                replacement.setSelectedItem(inEffect);
+            }
+        });
+
+        JComboBox<Prefetcher.Kind> prefetch = new JComboBox<>(Prefetcher.Kind.values());
+        prefetch.setToolTipText("Load blocks into the L1 cache(s) before they are asked for");
+        prefetch.addActionListener(e -> {
+            Prefetcher.Kind chosen = (Prefetcher.Kind) prefetch.getSelectedItem();
+            Prefetcher.Kind inEffect = controller.setCachePrefetcher(chosen);
+            if (inEffect != chosen) {
+                prefetch.setSelectedItem(inEffect);
+            }
+        });
+
+        JCheckBox split = new JCheckBox("Split I/D");
+        split.setToolTipText("Separate instruction and data caches");
+        split.addActionListener(e -> split.setSelected(controller.setSplitCaches(split.isSelected())));
+
+        JCheckBox l2 = new JCheckBox("L2");
+        l2.setToolTipText("Shared second-level cache between the L1 cache(s) and memory");
+        l2.addActionListener(e -> l2.setSelected(controller.setL2Cache(l2.isSelected())));
+
+        JCheckBox victim = new JCheckBox("Victim buffer");
+        victim.setToolTipText("Small buffer that catches lines evicted from the L1 cache(s)");
+        victim.addActionListener(e -> victim.setSelected(controller.setVictimBuffer(victim.isSelected())));
+
+        JCheckBox recordTrace = new JCheckBox("Record trace");
+        recordTrace.setToolTipText("Write every memory address to a trace file for offline cache sweeps");
+        recordTrace.addActionListener(e ->
+                recordTrace.setSelected(controller.handleTraceRecording(recordTrace.isSelected())));
+
+        JPanel policyRow = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 0));
+        policyRow.add(new JLabel("Replacement:"));
+        policyRow.add(replacement);
+        policyRow.add(new JLabel("Prefetch:"));
+        policyRow.add(prefetch);
+        policyRow.add(split);
+        policyRow.add(l2);
+        policyRow.add(victim);
+        policyRow.add(recordTrace);
+
         p.add(new JScrollPane(cacheArea), BorderLayout.CENTER);
+        p.add(policyRow, BorderLayout.SOUTH);
         return p;
     }
 